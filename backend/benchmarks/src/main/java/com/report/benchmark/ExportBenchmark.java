@@ -0,0 +1,115 @@
+package com.report.benchmark;
+
+import com.report.cache.TemplateDocumentCache;
+import com.report.cache.TemplatePartsCache;
+import com.report.dto.SectionData;
+import com.report.entity.TemplateSection;
+import com.report.service.impl.TemplateBasedExportService;
+import com.report.service.impl.WordExportService;
+import com.report.utils.SectionTrees;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整体导出基准：模板式导出与回退导出
+ * 模板快照与样式部件缓存在预热阶段建立，测量的是缓存命中后的稳定导出开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int sections;
+
+    /**
+     * 每个章节的内容大小（KB）
+     */
+    @Param({"1", "10", "100"})
+    public int contentKb;
+
+    private Path workDir;
+    private Path templatePath;
+    private List<TemplateSection> sectionList;
+    private Map<String, String> contentMap;
+    private List<SectionData> sectionTree;
+
+    private TemplateBasedExportService templateBasedExportService;
+    private WordExportService wordExportService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("report-bench");
+        templatePath = workDir.resolve("template_" + sections + ".docx");
+        Files.write(templatePath, SyntheticTemplates.templateDocx(sections));
+
+        sectionList = SyntheticTemplates.sections(sections);
+        contentMap = SyntheticTemplates.contents(sectionList, contentKb);
+        sectionTree = SectionTrees.build(sectionList, contentMap);
+
+        templateBasedExportService = new TemplateBasedExportService(new TemplateDocumentCache(256L << 20));
+        wordExportService = new WordExportService(new TemplatePartsCache(64L << 20));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(templatePath);
+        Files.deleteIfExists(workDir);
+    }
+
+    @Benchmark
+    public long templateExport() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        templateBasedExportService.exportWithTemplate(templatePath, sectionList, contentMap, null, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long fallbackExport() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        wordExportService.exportReport(out, templatePath, "基准测试周报", "2024-05-06 至 2024-05-12",
+                sectionTree, Collections.emptyMap());
+        return out.count;
+    }
+
+    /**
+     * 丢弃输出只计数，排除磁盘 IO 的影响
+     */
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
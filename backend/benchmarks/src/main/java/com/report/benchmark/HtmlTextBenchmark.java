@@ -0,0 +1,82 @@
+package com.report.benchmark;
+
+import com.report.utils.HtmlText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容 HTML 转纯文本基准（所有渲染器共用的 HtmlText 扫描器），
+ * 与改造前的正则替换链对比
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlTextBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int contentKb;
+
+    private String html;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        html = SyntheticTemplates.contentHtml(contentKb * 1024);
+    }
+
+    @Benchmark
+    public String toPlainText() {
+        return HtmlText.toPlainText(html);
+    }
+
+    @Benchmark
+    public List<String> toLines() {
+        return HtmlText.toLines(html);
+    }
+
+    @Benchmark
+    public List<String> legacyRegexLines() {
+        return legacyLines(html);
+    }
+
+    /**
+     * 改造前的实现：正则替换链 + split + trim
+     */
+    static List<String> legacyLines(String html) {
+        String text = html.replaceAll("(?i)<br\\s*/?>", "\n");
+        text = text.replaceAll("(?i)</p>", "\n");
+        text = text.replaceAll("(?i)<p[^>]*>", "");
+        text = text.replaceAll("<[^>]*>", "");
+        text = text.replace("&nbsp;", " ");
+        text = text.replace("&lt;", "<");
+        text = text.replace("&gt;", ">");
+        text = text.replace("&amp;", "&");
+        text = text.replace("&quot;", "\"");
+        text = text.trim();
+
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                lines.add(trimmed);
+            }
+        }
+        return lines;
+    }
+}
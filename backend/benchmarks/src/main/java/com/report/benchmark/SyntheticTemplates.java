@@ -0,0 +1,101 @@
+package com.report.benchmark;
+
+import com.report.entity.TemplateSection;
+import com.report.utils.StyleManager;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试用的合成模板与内容
+ * 每 5 个章节中第一个为一级标题，其余为其下的二级标题；每个标题后有一段正文，
+ * 与实际上传的周报模板结构相近
+ */
+final class SyntheticTemplates {
+
+    private static final int SECTIONS_PER_GROUP = 5;
+
+    private SyntheticTemplates() {
+    }
+
+    /**
+     * 生成包含 sectionCount 个章节标题的模板 docx
+     */
+    static byte[] templateDocx(int sectionCount) throws IOException {
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            StyleManager.ensureDefaultStyles(doc);
+            for (TemplateSection section : sections(sectionCount)) {
+                XWPFParagraph heading = doc.createParagraph();
+                heading.setStyle(section.getParentId() == null ? "Heading1" : "Heading2");
+                heading.createRun().setText(section.getTitle());
+
+                XWPFParagraph body = doc.createParagraph();
+                body.createRun().setText("本节填写说明：请简要描述本周进展。");
+            }
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 与 templateDocx 对应的章节列表
+     */
+    static List<TemplateSection> sections(int sectionCount) {
+        List<TemplateSection> sections = new ArrayList<>(sectionCount);
+        Long parentId = null;
+        for (int i = 0; i < sectionCount; i++) {
+            TemplateSection section = new TemplateSection();
+            section.setId((long) i + 1);
+            section.setTemplateId(1L);
+            section.setSectionKey("section_" + i);
+            section.setSortOrder(i);
+            section.setIsActive(true);
+            if (i % SECTIONS_PER_GROUP == 0) {
+                section.setTitle("第" + (i / SECTIONS_PER_GROUP + 1) + "部分 工作概述");
+                parentId = section.getId();
+            } else {
+                section.setTitle("第" + (i / SECTIONS_PER_GROUP + 1) + "部分 事项" + (i % SECTIONS_PER_GROUP));
+                section.setParentId(parentId);
+            }
+            sections.add(section);
+        }
+        return sections;
+    }
+
+    /**
+     * 为每个章节生成约 contentKb KB 的内容 HTML
+     */
+    static Map<String, String> contents(List<TemplateSection> sections, int contentKb) {
+        String html = contentHtml(contentKb * 1024);
+        Map<String, String> contentMap = new HashMap<>();
+        for (TemplateSection section : sections) {
+            contentMap.put(section.getSectionKey(), html);
+        }
+        return contentMap;
+    }
+
+    /**
+     * 生成长度约为 targetChars 的内容 HTML，包含段落、加粗、实体和列表
+     */
+    static String contentHtml(int targetChars) {
+        StringBuilder sb = new StringBuilder(targetChars + 256);
+        int paragraph = 0;
+        while (sb.length() < targetChars) {
+            paragraph++;
+            if (paragraph % 4 == 0) {
+                sb.append("<ul><li>跟进事项 ").append(paragraph).append("</li><li>协调 &amp; 评审</li></ul>");
+            } else {
+                sb.append("<p>第 ").append(paragraph).append(" 段：完成了<b>接口联调</b>与<i>性能测试</i>，")
+                        .append("修复问题 &lt;").append(paragraph).append("&gt; 个，")
+                        .append("下周继续推进上线准备工作。</p>");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.report.benchmark;
+
+import com.report.entity.TemplateStyle;
+import com.report.utils.StyleExtractor;
+import com.report.utils.WordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板上传解析基准：章节结构识别与样式提取
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class TemplateParseBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int sections;
+
+    private byte[] templateBytes;
+    private BytesMultipartFile templateFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        templateBytes = SyntheticTemplates.templateDocx(sections);
+        templateFile = new BytesMultipartFile("template_" + sections + ".docx", templateBytes);
+    }
+
+    @Benchmark
+    public List<WordUtil.SectionNode> parseStructure() throws IOException {
+        return WordUtil.parseStructure(templateFile);
+    }
+
+    @Benchmark
+    public List<TemplateStyle> extractStyles() throws IOException {
+        return StyleExtractor.extractStyles(new ByteArrayInputStream(templateBytes), 1L);
+    }
+}
@@ -0,0 +1,64 @@
+package com.report.cache;
+
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * 编译后的 poi-tl 占位符模板
+ * poi-tl 的元素模板直接引用所编译文档中的 run，render 又会修改该文档，元素模板不能跨导出复用。
+ * 这里缓存的是编译一次之后的文档（占位符已合并到单个 run 中，正文保存为已解析的 DOM）和占位符列表：
+ * 每次导出复制正文得到新文档，不再解析 document.xml 和合并 run，
+ * 但仍需在新文档上调用 XWPFTemplate.compile 重新定位占位符（对已合并的 run 线性扫描一遍）
+ */
+@Getter
+public class CompiledTemplate {
+
+    /**
+     * 章节树占位符：{{sections}}
+     */
+    public static final String SECTIONS_TAG = "sections";
+
+    private static final long BASE_WEIGHT = 1024;
+
+    private final TemplateFingerprint fingerprint;
+
+    /**
+     * 编译后的文档，模板不含 {{sections}} 时为 null
+     */
+    private final SnapshotDocument.Parts parts;
+
+    private final Set<String> tagNames;
+
+    CompiledTemplate(TemplateFingerprint fingerprint, SnapshotDocument.Parts parts, Set<String> tagNames) {
+        this.fingerprint = fingerprint;
+        this.parts = parts;
+        this.tagNames = Set.copyOf(tagNames);
+    }
+
+    /**
+     * 是否为占位符模板（包含 {{sections}}）
+     */
+    public boolean hasSectionsTag() {
+        return parts != null;
+    }
+
+    /**
+     * 打开编译后文档的一份副本，调用方负责关闭
+     */
+    public XWPFDocument openDocument() throws IOException {
+        if (parts == null) {
+            throw new IllegalStateException("模板中没有 {{" + SECTIONS_TAG + "}} 占位符");
+        }
+        return parts.open();
+    }
+
+    /**
+     * 缓存权重：实际保留的模板包字节数和已解析正文的估算内存
+     */
+    public long weight() {
+        return BASE_WEIGHT + (parts != null ? parts.weight() : 0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.report.cache;
+
+import com.deepoove.poi.XWPFTemplate;
+import com.deepoove.poi.template.ElementTemplate;
+import com.deepoove.poi.template.MetaTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * poi-tl 占位符模板缓存
+ * 每个模板版本（路径 + 修改时间 + 大小）只从文件编译一次（解析 XML、合并占位符所在的 run），
+ * 导出时复制编译后的正文，只在副本上重新定位占位符；
+ * 不含 {{sections}} 的模板只缓存占位符列表，用于快速判断不走占位符渲染
+ */
+@Slf4j
+@Component
+public class CompiledTemplateCache {
+
+    private final WeightedCache<TemplateFingerprint, CompiledTemplate> cache;
+
+    public CompiledTemplateCache(@Value("${export.compiled-template-cache.max-bytes:67108864}") long maxBytes) {
+        this.cache = new WeightedCache<>("compiled-template", maxBytes, CompiledTemplate::weight);
+    }
+
+    /**
+     * 获取编译后的模板，文件变化后自动重新编译
+     */
+    public CompiledTemplate get(Path templatePath) throws IOException {
+        TemplateFingerprint fingerprint = TemplateFingerprint.of(templatePath);
+        return cache.get(fingerprint, () -> compile(templatePath, fingerprint));
+    }
+
+    public WeightedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private CompiledTemplate compile(Path templatePath, TemplateFingerprint fingerprint) throws IOException {
+        long start = System.nanoTime();
+
+        // 同一路径的旧版本已不可能再命中，提前释放
+        cache.invalidateIf(key -> key.samePath(fingerprint) && !key.equals(fingerprint));
+
+        Set<String> tagNames = new LinkedHashSet<>();
+        SnapshotDocument.Parts compiled = null;
+        try (InputStream is = Files.newInputStream(templatePath);
+                XWPFTemplate template = XWPFTemplate.compile(is)) {
+            for (MetaTemplate meta : template.getElementTemplates()) {
+                if (meta instanceof ElementTemplate element) {
+                    tagNames.add(element.getTagName());
+                }
+            }
+            if (tagNames.contains(CompiledTemplate.SECTIONS_TAG)) {
+                // 保留合并 run 之后的正文 DOM，导出时复制正文即可，不再解析和合并
+                compiled = SnapshotDocument.split(template.getXWPFDocument());
+            }
+        }
+
+        log.info("编译占位符模板: {} (占位符 {}, 耗时 {} ms)", templatePath, tagNames,
+                (System.nanoTime() - start) / 1_000_000);
+        return new CompiledTemplate(fingerprint, compiled, tagNames);
+    }
+}
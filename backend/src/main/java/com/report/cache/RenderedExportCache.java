@@ -0,0 +1,245 @@
+package com.report.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已渲染报告的磁盘缓存
+ * 文件名为 report_{报告ID}_{渲染键}.docx，渲染键由报告内容版本、模板指纹等渲染输入计算得出，
+ * 同时作为 HTTP 强 ETag。每个报告只保留最新一份，目录总大小超过上限时按最久未访问淘汰
+ */
+@Slf4j
+@Component
+public class RenderedExportCache {
+
+    /**
+     * 渲染函数，将文档写入给定输出流
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    private static final String PREFIX = "report_";
+    private static final String SUFFIX = ".docx";
+
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    private final Map<Path, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RenderedExportCache(@Value("${export.render-cache.dir:${file.upload-dir:./uploads}/export-cache}") String cacheDir,
+            @Value("${export.render-cache.max-bytes:1073741824}") long maxBytes) {
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取已渲染文件，不存在时调用 renderer 渲染后写入缓存
+     * 同一个文件的并发渲染会合并为一次
+     *
+     * @param reportId  报告 ID
+     * @param renderKey 渲染键（十六进制）
+     * @param renderer  渲染函数
+     * @return 缓存文件路径
+     */
+    public Path get(long reportId, String renderKey, Renderer renderer) throws IOException {
+        Path file = cacheDir.resolve(PREFIX + reportId + "_" + renderKey + SUFFIX);
+        if (Files.exists(file)) {
+            hits.incrementAndGet();
+            touch(file);
+            return file;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = rendering.putIfAbsent(file, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            render(reportId, file, renderer);
+            future.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(file, future);
+        }
+    }
+
+    /**
+     * 获取已渲染文件并打开读取通道，调用方负责关闭
+     * get 返回的路径在读取前可能被同一报告的并发渲染或容量淘汰删除；已打开的通道不受删除影响，
+     * 打开前文件已被删除时重新渲染一次
+     */
+    public FileChannel open(long reportId, String renderKey, Renderer renderer) throws IOException {
+        try {
+            return FileChannel.open(get(reportId, renderKey, renderer), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            log.debug("导出缓存文件打开前已被删除，重新渲染: {}", e.getFile());
+            return FileChannel.open(get(reportId, renderKey, renderer), StandardOpenOption.READ);
+        }
+    }
+
+    /**
+     * 删除某个报告的所有缓存文件
+     */
+    public void invalidate(long reportId) {
+        deleteReportFiles(reportId, null);
+    }
+
+    public WeightedCache.Stats stats() {
+        long size = 0;
+        int count = 0;
+        for (Path file : listCacheFiles()) {
+            try {
+                size += Files.size(file);
+                count++;
+            } catch (IOException ignored) {
+                // 文件已被并发删除
+            }
+        }
+        return new WeightedCache.Stats("rendered-export", count, size, maxBytes, hits.get(), misses.get(), 0);
+    }
+
+    private void render(long reportId, Path file, Renderer renderer) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(cacheDir);
+
+        // 先写临时文件再原子替换，读者永远不会看到写了一半的文件
+        Path tmp = Files.createTempFile(cacheDir, PREFIX + reportId + "_", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                renderer.render(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        log.info("渲染并缓存报告 {}: {} ({} 字节, 耗时 {} ms)", reportId, file.getFileName(), Files.size(file),
+                (System.nanoTime() - start) / 1_000_000);
+
+        // 同一报告的旧版本已不可能再命中
+        deleteReportFiles(reportId, file);
+        evictIfNeeded();
+    }
+
+    private void deleteReportFiles(long reportId, Path keep) {
+        String prefix = PREFIX + reportId + "_";
+        for (Path file : listCacheFiles()) {
+            if (file.getFileName().toString().startsWith(prefix) && !file.equals(keep)) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("删除导出缓存文件失败: {}", file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 目录总大小超过上限时，按最后访问时间从旧到新删除
+     */
+    private synchronized void evictIfNeeded() {
+        List<Path> files = listCacheFiles();
+        List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>(files.size());
+        long total = 0;
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                entries.add(Map.entry(file, attrs));
+                total += attrs.size();
+            } catch (IOException ignored) {
+                // 文件已被并发删除
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+        for (Map.Entry<Path, BasicFileAttributes> entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.getKey());
+                total -= entry.getValue().size();
+                log.debug("淘汰导出缓存文件: {}", entry.getKey().getFileName());
+            } catch (IOException e) {
+                log.warn("删除导出缓存文件失败: {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private List<Path> listCacheFiles() {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(cacheDir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("读取导出缓存目录失败: {}", cacheDir, e);
+        }
+        return files;
+    }
+
+    /**
+     * 命中时刷新修改时间，作为 LRU 淘汰依据
+     */
+    private void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // 文件刚被淘汰，下次访问会重新渲染
+        }
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待报告渲染被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
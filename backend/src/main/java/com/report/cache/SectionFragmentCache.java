@@ -0,0 +1,83 @@
+package com.report.cache;
+
+import com.report.utils.DocxFragment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 章节内容片段缓存
+ * 以 (报告ID, 章节键, 内容ID, 内容版本, 样式摘要) 为键缓存已渲染的 DocxFragment，
+ * 重新导出时只渲染版本变化的章节，其余章节直接拼接缓存片段。
+ * 片段不属于任何文档，列表编号在插入时才分配，可被多次导出共享
+ */
+@Component
+public class SectionFragmentCache {
+
+    private final WeightedCache<Key, DocxFragment> cache;
+
+    public SectionFragmentCache(@Value("${export.fragment-cache.max-bytes:67108864}") long maxBytes) {
+        this.cache = new WeightedCache<>("section-fragment", maxBytes, DocxFragment::weight);
+    }
+
+    /**
+     * 获取章节片段，不存在时调用 loader 渲染
+     * 同一章节的旧版本片段已不可能再命中，加载新版本时一并释放
+     *
+     * @param styleHash 影响片段输出的样式摘要（模板指纹、正文样式 ID 和正文样式配置）
+     */
+    public DocxFragment get(long reportId, String sectionKey, Long contentId, int version, String styleHash,
+            WeightedCache.Loader<DocxFragment> loader) throws IOException {
+        Key key = new Key(reportId, sectionKey, contentId, version, styleHash);
+        return cache.get(key, () -> {
+            cache.invalidateIf(k -> k.sameSection(key) && !k.equals(key));
+            return loader.load();
+        });
+    }
+
+    public WeightedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private static final class Key {
+
+        private final long reportId;
+        private final String sectionKey;
+        private final Long contentId;
+        private final int version;
+        private final String styleHash;
+
+        Key(long reportId, String sectionKey, Long contentId, int version, String styleHash) {
+            this.reportId = reportId;
+            this.sectionKey = sectionKey;
+            this.contentId = contentId;
+            this.version = version;
+            this.styleHash = styleHash;
+        }
+
+        boolean sameSection(Key other) {
+            return reportId == other.reportId && Objects.equals(sectionKey, other.sectionKey);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return reportId == other.reportId && version == other.version
+                    && Objects.equals(sectionKey, other.sectionKey)
+                    && Objects.equals(contentId, other.contentId)
+                    && Objects.equals(styleHash, other.styleHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(reportId, sectionKey, contentId, version, styleHash);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.report.cache;
+
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFSDT;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSdtBlock;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 从模板快照打开的文档
+ * 先解析去掉正文的模板包（只剩节属性，解析开销很小），再把快照中已解析的正文复制进来，
+ * 按复制后的正文重建段落、表格和内容控件列表
+ */
+final class SnapshotDocument extends XWPFDocument {
+
+    /**
+     * 已解析的正文和去掉正文后的模板包
+     */
+    @Getter
+    static final class Parts {
+
+        /**
+         * 已解析正文的估算开销：XMLBeans 存储中每个 XML 字符约占的字节数（字符数组 + 节点对象）
+         */
+        private static final int BODY_BYTES_PER_CHAR = 4;
+
+        /**
+         * 去掉正文段落和表格的模板包（保留节属性、页眉页脚、样式等其余部件）
+         */
+        private final byte[] shellBytes;
+
+        /**
+         * 已解析的正文，只读；打开文档时复制
+         */
+        private final CTBody body;
+
+        /**
+         * 正文序列化后的字符数，用于估算缓存权重
+         */
+        private final long bodyChars;
+
+        private Parts(byte[] shellBytes, CTBody body) {
+            this.shellBytes = shellBytes;
+            this.body = body;
+            this.bodyChars = body.xmlText().length();
+        }
+
+        /**
+         * 打开一份独立的文档副本，调用方负责关闭
+         */
+        XWPFDocument open() throws IOException {
+            return new SnapshotDocument(new ByteArrayInputStream(shellBytes), body);
+        }
+
+        /**
+         * 保留的内存：模板包字节数 + 已解析正文的估算内存
+         */
+        long weight() {
+            return shellBytes.length + bodyChars * BODY_BYTES_PER_CHAR;
+        }
+    }
+
+    /**
+     * 拆分文档：复制出正文后从文档中删除全部正文元素，再写出只剩节属性的模板包。
+     * 会修改传入的文档，调用后文档只能关闭
+     */
+    static Parts split(XWPFDocument doc) throws IOException {
+        CTBody body = (CTBody) doc.getDocument().getBody().copy();
+        for (int i = doc.getBodyElements().size() - 1; i >= 0; i--) {
+            doc.removeBodyElement(i);
+        }
+        ByteArrayOutputStream shell = new ByteArrayOutputStream();
+        doc.write(shell);
+        return new Parts(shell.toByteArray(), body);
+    }
+
+    private SnapshotDocument(InputStream shell, CTBody body) throws IOException {
+        super(shell);
+        // setBody 在 XMLBeans 存储之间直接复制节点，不经过 XML 文本解析
+        getDocument().setBody(body);
+
+        bodyElements.clear();
+        paragraphs.clear();
+        tables.clear();
+        contentControls.clear();
+
+        XmlCursor cursor = getDocument().getBody().newCursor();
+        if (cursor.toFirstChild()) {
+            do {
+                XmlObject object = cursor.getObject();
+                if (object instanceof CTP ctp) {
+                    XWPFParagraph paragraph = new XWPFParagraph(ctp, this);
+                    bodyElements.add(paragraph);
+                    paragraphs.add(paragraph);
+                } else if (object instanceof CTTbl tbl) {
+                    XWPFTable table = new XWPFTable(tbl, this);
+                    bodyElements.add(table);
+                    tables.add(table);
+                } else if (object instanceof CTSdtBlock sdt) {
+                    XWPFSDT control = new XWPFSDT(sdt, this);
+                    bodyElements.add(control);
+                    contentControls.add(control);
+                }
+            } while (cursor.toNextSibling());
+        }
+        cursor.dispose();
+    }
+}
@@ -0,0 +1,73 @@
+package com.report.cache;
+
+import com.report.utils.SectionAnchors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 模板快照缓存
+ * 以 模板路径 + 修改时间 + 大小 为键缓存已编译的模板，
+ * 避免每次导出都重新读取模板文件并重复探测样式
+ */
+@Slf4j
+@Component
+public class TemplateDocumentCache {
+
+    private final WeightedCache<TemplateFingerprint, TemplateSnapshot> cache;
+
+    public TemplateDocumentCache(@Value("${export.template-cache.max-bytes:67108864}") long maxBytes) {
+        this.cache = new WeightedCache<>("template-document", maxBytes, TemplateSnapshot::weight);
+    }
+
+    /**
+     * 获取模板快照，文件变化后自动重新编译
+     */
+    public TemplateSnapshot get(Path templatePath) throws IOException {
+        TemplateFingerprint fingerprint = TemplateFingerprint.of(templatePath);
+        return cache.get(fingerprint, () -> compile(templatePath, fingerprint));
+    }
+
+    /**
+     * 使某个模板文件的所有快照失效
+     */
+    public void invalidate(Path templatePath) {
+        String path = templatePath.toAbsolutePath().normalize().toString();
+        cache.invalidateIf(key -> key.getPath().equals(path));
+    }
+
+    public WeightedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private TemplateSnapshot compile(Path templatePath, TemplateFingerprint fingerprint) throws IOException {
+        long start = System.nanoTime();
+
+        // 同一路径的旧版本快照已不可能再命中，提前释放
+        cache.invalidateIf(key -> key.samePath(fingerprint) && !key.equals(fingerprint));
+
+        byte[] bytes = Files.readAllBytes(templatePath);
+        String bodyStyleId;
+        Map<String, Integer> anchorIndex;
+        SnapshotDocument.Parts parts;
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(bytes))) {
+            bodyStyleId = TemplateSnapshot.detectBodyStyleId(doc);
+            anchorIndex = SectionAnchors.indexAnchors(doc);
+
+            // 保留解析后的正文，模板包中只留下节属性，打开文档时不再解析正文
+            parts = SnapshotDocument.split(doc);
+        }
+
+        log.info("编译模板快照: {} ({} 字节, 正文 {} 字符, 正文样式 ID: {}, 章节书签 {} 个, 耗时 {} ms)", templatePath,
+                bytes.length, parts.getBodyChars(), bodyStyleId, anchorIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return new TemplateSnapshot(fingerprint, parts, bodyStyleId, anchorIndex);
+    }
+}
@@ -0,0 +1,41 @@
+package com.report.cache;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 模板文件指纹：路径 + 修改时间 + 文件大小
+ * 文件被替换或修改后指纹随之变化，旧的缓存条目自然失效
+ */
+@Value
+public class TemplateFingerprint {
+
+    String path;
+    long lastModified;
+    long size;
+
+    public static TemplateFingerprint of(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return new TemplateFingerprint(file.toAbsolutePath().normalize().toString(),
+                attrs.lastModifiedTime().toMillis(), attrs.size());
+    }
+
+    /**
+     * 是否指向同一个文件（不比较版本）
+     */
+    public boolean samePath(TemplateFingerprint other) {
+        return other != null && path.equals(other.path);
+    }
+
+    /**
+     * 紧凑的字符串形式，用于拼接其他缓存键
+     */
+    public String toToken() {
+        return Long.toHexString(path.hashCode() & 0xffffffffL) + "-"
+                + Long.toHexString(lastModified) + "-" + Long.toHexString(size);
+    }
+}
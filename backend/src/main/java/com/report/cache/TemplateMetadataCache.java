@@ -0,0 +1,122 @@
+package com.report.cache;
+
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 模板元数据缓存：按模板版本 ID 缓存模板行、章节列表和样式列表
+ * 还没有报告固定的最新版本会被直接修改，模板行、章节和样式的写入都按版本 ID 失效；
+ * 缓存的列表不可修改，调用方不得修改其中的实体
+ */
+@Slf4j
+@Component
+public class TemplateMetadataCache {
+
+    private final WeightedCache<Long, ReportTemplate> templates;
+    private final WeightedCache<Long, List<TemplateSection>> sections;
+    private final WeightedCache<Long, List<TemplateStyle>> styles;
+
+    public TemplateMetadataCache(@Value("${template.metadata-cache.max-entries:1000}") long maxEntries,
+            MeterRegistry meterRegistry) {
+        this.templates = new WeightedCache<>("template-rows", maxEntries, template -> 1);
+        this.sections = new WeightedCache<>("template-sections", maxEntries, list -> 1);
+        this.styles = new WeightedCache<>("template-styles", maxEntries, list -> 1);
+
+        register(meterRegistry, "templates", templates);
+        register(meterRegistry, "sections", sections);
+        register(meterRegistry, "styles", styles);
+    }
+
+    /**
+     * 查询模板行，不存在的模板不缓存
+     */
+    public ReportTemplate template(Long templateId, Supplier<ReportTemplate> loader) {
+        ReportTemplate template = templates.getIfPresent(templateId);
+        if (template != null) {
+            return template;
+        }
+        template = loader.get();
+        if (template != null) {
+            templates.put(templateId, template);
+        }
+        return template;
+    }
+
+    public List<TemplateSection> sections(Long templateId, Supplier<List<TemplateSection>> loader) {
+        return load(sections, templateId, loader);
+    }
+
+    public List<TemplateStyle> styles(Long templateId, Supplier<List<TemplateStyle>> loader) {
+        return load(styles, templateId, loader);
+    }
+
+    /**
+     * 使模板版本的缓存失效：立即失效一次，事务中再在提交后失效一次，
+     * 避免事务提交前其他线程读到旧数据又放回缓存
+     */
+    public void invalidate(Collection<Long> templateIds) {
+        Set<Long> ids = Set.copyOf(templateIds);
+        evict(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(ids);
+                }
+            });
+        }
+    }
+
+    public void invalidate(Long templateId) {
+        invalidate(List.of(templateId));
+    }
+
+    public List<WeightedCache.Stats> stats() {
+        return List.of(templates.stats(), sections.stats(), styles.stats());
+    }
+
+    private void evict(Set<Long> ids) {
+        templates.invalidateIf(ids::contains);
+        sections.invalidateIf(ids::contains);
+        styles.invalidateIf(ids::contains);
+        log.debug("模板元数据缓存失效: {}", ids);
+    }
+
+    private static <T> List<T> load(WeightedCache<Long, List<T>> cache, Long templateId, Supplier<List<T>> loader) {
+        try {
+            return cache.get(templateId, () -> {
+                List<T> rows = loader.get();
+                return rows == null ? List.of() : List.copyOf(rows);
+            });
+        } catch (IOException e) {
+            // 加载函数只查询数据库，不会抛出 IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void register(MeterRegistry meterRegistry, String tag, WeightedCache<Long, ?> cache) {
+        Gauge.builder("template.metadata.cache.hit.ratio", cache, c -> c.stats().getHitRatio())
+                .description("模板元数据缓存命中率")
+                .tag("cache", tag)
+                .register(meterRegistry);
+        Gauge.builder("template.metadata.cache.size", cache, c -> c.stats().getSize())
+                .description("模板元数据缓存条目数")
+                .tag("cache", tag)
+                .register(meterRegistry);
+    }
+}
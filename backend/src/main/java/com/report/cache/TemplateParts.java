@@ -0,0 +1,101 @@
+package com.report.cache;
+
+import lombok.Getter;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractNum;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFNum;
+import org.apache.poi.xwpf.usermodel.XWPFNumbering;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNumbering;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 模板的样式相关部件（样式、编号、主题、字体表）
+ * 样式和编号保存解析后的对象，每个新文档使用深拷贝；主题和字体表保存原始字节，按部件直接写入新文档
+ */
+public class TemplateParts {
+
+    /**
+     * 原样复制的包部件
+     */
+    @Getter
+    public static class RawPart {
+        private final String partName;
+        private final String contentType;
+        private final String relationshipType;
+        private final byte[] data;
+
+        public RawPart(String partName, String contentType, String relationshipType, byte[] data) {
+            this.partName = partName;
+            this.contentType = contentType;
+            this.relationshipType = relationshipType;
+            this.data = data;
+        }
+    }
+
+    @Getter
+    private final TemplateFingerprint fingerprint;
+    private final CTStyles styles;
+    private final CTNumbering numbering;
+    private final List<RawPart> rawParts;
+    private final long weight;
+
+    public TemplateParts(TemplateFingerprint fingerprint, CTStyles styles, CTNumbering numbering,
+            List<RawPart> rawParts, long sourceBytes) {
+        this.fingerprint = fingerprint;
+        this.styles = styles;
+        this.numbering = numbering;
+        this.rawParts = rawParts;
+        // 解析后的 XML 对象约为源字节的数倍
+        long weight = 1024 + sourceBytes * 4;
+        for (RawPart part : rawParts) {
+            weight += part.getData().length;
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * 将部件复制到新建的空白文档
+     */
+    public void applyTo(XWPFDocument doc) throws IOException {
+        if (styles != null) {
+            doc.createStyles().setStyles((CTStyles) styles.copy());
+        }
+        if (numbering != null) {
+            // XWPFNumbering.setNumbering 不会重建编号列表，逐个添加以保持对象模型一致
+            XWPFNumbering target = doc.createNumbering();
+            for (CTAbstractNum abstractNum : numbering.getAbstractNumArray()) {
+                target.addAbstractNum(new XWPFAbstractNum((CTAbstractNum) abstractNum.copy(), target));
+            }
+            for (CTNum num : numbering.getNumArray()) {
+                target.addNum(new XWPFNum((CTNum) num.copy(), target));
+            }
+        }
+        for (RawPart raw : rawParts) {
+            try {
+                PackagePartName name = PackagingURIHelper.createPartName(raw.getPartName());
+                PackagePart part = doc.getPackage().createPart(name, raw.getContentType());
+                try (OutputStream os = part.getOutputStream()) {
+                    os.write(raw.getData());
+                }
+                doc.getPackagePart().addRelationship(name, TargetMode.INTERNAL, raw.getRelationshipType());
+            } catch (InvalidFormatException e) {
+                throw new IOException("复制模板部件失败: " + raw.getPartName(), e);
+            }
+        }
+    }
+
+    public long weight() {
+        return weight;
+    }
+}
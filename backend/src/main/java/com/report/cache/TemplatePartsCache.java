@@ -0,0 +1,134 @@
+package com.report.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNumbering;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyles;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.NumberingDocument;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.StylesDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模板样式部件缓存
+ * 回退导出路径（WordExportService）只需要模板的样式定义，
+ * 这里直接从模板包中读取样式、编号、主题和字体表部件，不加载正文；缓存命中后不再读取模板文件
+ */
+@Slf4j
+@Component
+public class TemplatePartsCache {
+
+    private final WeightedCache<TemplateFingerprint, TemplateParts> cache;
+
+    public TemplatePartsCache(@Value("${export.template-parts-cache.max-bytes:16777216}") long maxBytes) {
+        this.cache = new WeightedCache<>("template-parts", maxBytes, TemplateParts::weight);
+    }
+
+    /**
+     * 获取模板的样式部件，文件变化后自动重新提取
+     */
+    public TemplateParts get(Path templatePath) throws IOException {
+        TemplateFingerprint fingerprint = TemplateFingerprint.of(templatePath);
+        return cache.get(fingerprint, () -> extract(templatePath, fingerprint));
+    }
+
+    public WeightedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private TemplateParts extract(Path templatePath, TemplateFingerprint fingerprint) throws IOException {
+        long start = System.nanoTime();
+
+        // 同一路径的旧版本已不可能再命中，提前释放
+        cache.invalidateIf(key -> key.samePath(fingerprint) && !key.equals(fingerprint));
+
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(templatePath.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("模板文件格式错误: " + templatePath, e);
+        }
+
+        try {
+            PackageRelationship docRel = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT)
+                    .getRelationship(0);
+            if (docRel == null) {
+                throw new IOException("模板中缺少主文档部件: " + templatePath);
+            }
+            PackagePart mainPart = pkg.getPart(docRel);
+
+            long sourceBytes = 0;
+            CTStyles styles = null;
+            PackagePart stylesPart = relatedPart(mainPart, XWPFRelation.STYLES.getRelation());
+            if (stylesPart != null) {
+                try (InputStream is = stylesPart.getInputStream()) {
+                    styles = StylesDocument.Factory.parse(is, POIXMLTypeLoader.DEFAULT_XML_OPTIONS).getStyles();
+                }
+                sourceBytes += stylesPart.getSize();
+            }
+
+            CTNumbering numbering = null;
+            PackagePart numberingPart = relatedPart(mainPart, XWPFRelation.NUMBERING.getRelation());
+            if (numberingPart != null) {
+                try (InputStream is = numberingPart.getInputStream()) {
+                    numbering = NumberingDocument.Factory.parse(is, POIXMLTypeLoader.DEFAULT_XML_OPTIONS)
+                            .getNumbering();
+                }
+                sourceBytes += numberingPart.getSize();
+            }
+
+            List<TemplateParts.RawPart> rawParts = new ArrayList<>();
+            addRawPart(rawParts, relatedPart(mainPart, XWPFRelation.THEME.getRelation()),
+                    XWPFRelation.THEME.getRelation());
+            addRawPart(rawParts, relatedPart(mainPart, XWPFRelation.FONT_TABLE.getRelation()),
+                    XWPFRelation.FONT_TABLE.getRelation());
+
+            log.info("提取模板样式部件: {} (样式 {}, 编号 {}, 原样部件 {} 个, 耗时 {} ms)", templatePath,
+                    styles != null, numbering != null, rawParts.size(), (System.nanoTime() - start) / 1_000_000);
+            return new TemplateParts(fingerprint, styles, numbering, rawParts, sourceBytes);
+        } catch (InvalidFormatException | XmlException e) {
+            throw new IOException("读取模板样式部件失败: " + templatePath, e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private PackagePart relatedPart(PackagePart source, String relationshipType) throws InvalidFormatException {
+        PackageRelationshipCollection rels = source.getRelationshipsByType(relationshipType);
+        if (rels.size() == 0) {
+            return null;
+        }
+        return source.getRelatedPart(rels.getRelationship(0));
+    }
+
+    private void addRawPart(List<TemplateParts.RawPart> rawParts, PackagePart part, String relationshipType)
+            throws IOException, InvalidFormatException {
+        if (part == null) {
+            return;
+        }
+        // 带有自身关系的部件（如嵌入字体）不能单独复制
+        if (part.hasRelationships()) {
+            log.debug("跳过带有关联部件的模板部件: {}", part.getPartName());
+            return;
+        }
+        try (InputStream is = part.getInputStream()) {
+            rawParts.add(new TemplateParts.RawPart(part.getPartName().getName(), part.getContentType(),
+                    relationshipType, is.readAllBytes()));
+        }
+    }
+}
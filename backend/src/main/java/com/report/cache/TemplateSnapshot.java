@@ -0,0 +1,79 @@
+package com.report.cache;
+
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 已编译的模板快照
+ * 保存已解析的正文（CTBody）、去掉正文后的模板包以及只需计算一次的派生信息（正文样式 ID、章节书签索引等），
+ * 每次导出复制正文得到一份独立的可修改文档，不再重新解析 document.xml
+ */
+@Getter
+public class TemplateSnapshot {
+
+    /**
+     * 快照对象本身的估算开销（字节）
+     */
+    private static final long BASE_WEIGHT = 1024;
+
+    private final TemplateFingerprint fingerprint;
+
+    /**
+     * 已解析的正文和去掉正文后的模板包
+     */
+    private final SnapshotDocument.Parts parts;
+
+    private final String bodyStyleId;
+
+    /**
+     * 章节书签名 -> 段落下标（对应 doc.getParagraphs()）
+     */
+    private final Map<String, Integer> anchorIndex;
+
+    TemplateSnapshot(TemplateFingerprint fingerprint, SnapshotDocument.Parts parts, String bodyStyleId,
+            Map<String, Integer> anchorIndex) {
+        this.fingerprint = fingerprint;
+        this.parts = parts;
+        this.bodyStyleId = bodyStyleId;
+        this.anchorIndex = Map.copyOf(anchorIndex);
+    }
+
+    /**
+     * 从快照创建一份独立的文档副本，调用方负责关闭
+     */
+    public XWPFDocument openDocument() throws IOException {
+        return parts.open();
+    }
+
+    /**
+     * 缓存权重：模板包字节数 + 已解析正文的估算内存
+     */
+    public long weight() {
+        return BASE_WEIGHT + parts.weight();
+    }
+
+    /**
+     * 检测文档中的正文样式 ID
+     */
+    static String detectBodyStyleId(XWPFDocument doc) {
+        // 尝试常见的正文样式 ID
+        String[] possibleIds = { "Normal", "a", "a0", "正文", "BodyText" };
+
+        if (doc.getStyles() != null) {
+            for (String id : possibleIds) {
+                try {
+                    if (doc.getStyles().getStyle(id) != null) {
+                        return id;
+                    }
+                } catch (Exception e) {
+                    // 忽略
+                }
+            }
+        }
+
+        return "Normal"; // 默认返回 Normal
+    }
+}
@@ -0,0 +1,202 @@
+package com.report.cache;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按权重（近似内存占用）限界的 LRU 缓存
+ * 总权重超过上限时按最近最少使用顺序淘汰，并发加载同一个 key 时只执行一次加载
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class WeightedCache<K, V> {
+
+    /**
+     * 缓存加载函数
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public WeightedCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * 查询缓存，不存在时返回 null
+     */
+    public V getIfPresent(K key) {
+        V value;
+        synchronized (this) {
+            value = entries.get(key);
+        }
+        if (value != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 查询缓存，不存在时调用 loader 加载并放入缓存
+     * 同一个 key 的并发加载会合并为一次
+     */
+    public V get(K key, Loader<V> loader) throws IOException {
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.incrementAndGet();
+                return value;
+            }
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = loader.load();
+            put(key, value);
+            future.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 放入缓存，超出权重上限时淘汰最久未使用的条目
+     * 单个条目权重超过上限时不缓存
+     */
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight) {
+            return;
+        }
+        synchronized (this) {
+            V previous = entries.put(key, value);
+            if (previous != null) {
+                totalWeight -= weigher.applyAsLong(previous);
+            }
+            totalWeight += weight;
+
+            Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+            while (totalWeight > maxWeight && it.hasNext()) {
+                Map.Entry<K, V> eldest = it.next();
+                totalWeight -= weigher.applyAsLong(eldest.getValue());
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 使单个条目失效
+     */
+    public synchronized void invalidate(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= weigher.applyAsLong(removed);
+        }
+    }
+
+    /**
+     * 使所有满足条件的条目失效
+     */
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, V> entry = it.next();
+            if (predicate.test(entry.getKey())) {
+                totalWeight -= weigher.applyAsLong(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Stats stats() {
+        return new Stats(name, entries.size(), totalWeight, maxWeight,
+                hits.get(), misses.get(), evictions.get());
+    }
+
+    private V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待缓存加载被中断: " + name, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 缓存统计快照
+     */
+    @Value
+    public static class Stats {
+        String name;
+        int size;
+        long weight;
+        long maxWeight;
+        long hits;
+        long misses;
+        long evictions;
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
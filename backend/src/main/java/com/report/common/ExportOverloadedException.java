@@ -0,0 +1,20 @@
+package com.report.common;
+
+/**
+ * 导出过载（内存预算不足且排队超时，或导出任务队列已满），由 GlobalExceptionHandler 转换为 429 + Retry-After
+ */
+public class ExportOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public ExportOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,9 @@
 package com.report.common;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -11,6 +14,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * 导出内存预算不足：429，客户端按 Retry-After 重试
+     */
+    @ExceptionHandler(ExportOverloadedException.class)
+    public ResponseEntity<Result<Void>> handleExportOverloaded(ExportOverloadedException e) {
+        log.warn("导出过载: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Result.error(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage()));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public Result<Void> handleRuntimeException(RuntimeException e) {
         log.error("运行时异常", e);
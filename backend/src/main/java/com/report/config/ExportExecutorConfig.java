@@ -0,0 +1,88 @@
+package com.report.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导出任务线程池
+ * 导出渲染在独立的有界线程池中执行，与处理交互请求的 Tomcat 线程隔离
+ */
+@Configuration
+public class ExportExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor exportExecutor(
+            @Value("${export.jobs.threads:0}") int threads,
+            @Value("${export.jobs.queue-capacity:100}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        // 渲染是 CPU 密集型任务，未配置时按 CPU 核数
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        // 队列满时直接拒绝，由调用方提示稍后重试
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("export.executor.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待执行的导出任务数")
+                .register(meterRegistry);
+        Gauge.builder("export.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行的导出任务数")
+                .register(meterRegistry);
+        Gauge.builder("export.executor.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("导出队列剩余容量")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * 导出读模型的并发查询线程池
+     * 查询是 IO 密集型，与渲染线程池分开，避免渲染任务等待同池中的子任务；队列满时由调用线程直接执行
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor exportReadExecutor(@Value("${export.read.threads:8}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "export-read-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 章节片段并行渲染的 fork/join 线程池（部门汇总导出使用）
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool exportForkJoinPool(@Value("${export.consolidation.parallelism:0}") int parallelism) {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("export-fj-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
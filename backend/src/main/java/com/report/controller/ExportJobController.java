@@ -0,0 +1,34 @@
+package com.report.controller;
+
+import com.report.common.Result;
+import com.report.dto.ExportJob;
+import com.report.service.ExportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/export-jobs")
+@RequiredArgsConstructor
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    /**
+     * 查询导出任务状态
+     */
+    @GetMapping("/{jobId}")
+    public Result<ExportJob> getJob(@PathVariable String jobId) {
+        return Result.success(exportJobService.getJob(jobId));
+    }
+
+    /**
+     * 下载导出结果
+     */
+    @GetMapping("/{jobId}/download")
+    public void download(@PathVariable String jobId, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        exportJobService.download(jobId, request, response);
+    }
+}
@@ -1,15 +1,24 @@
 package com.report.controller;
 
 import com.report.common.Result;
+import com.report.dto.BatchExportRequest;
+import com.report.dto.ExportJob;
 import com.report.entity.ReportContent;
 import com.report.entity.ReportInstance;
+import com.report.service.BatchExportService;
+import com.report.service.ConsolidatedExportService;
+import com.report.service.ExportJobService;
 import com.report.service.ExportService;
 import com.report.service.ReferenceService;
+import com.report.service.ReportPreviewService;
 import com.report.service.ReportService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +29,10 @@ public class ReportController {
 
     private final ReportService reportService;
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
+    private final BatchExportService batchExportService;
+    private final ConsolidatedExportService consolidatedExportService;
+    private final ReportPreviewService reportPreviewService;
     private final ReferenceService referenceService;
 
     /**
@@ -86,7 +99,43 @@ public class ReportController {
      * 导出Word文档
      */
     @GetMapping("/{id}/export")
-    public void exportWord(@PathVariable Long id, HttpServletResponse response) throws Exception {
-        exportService.exportToWord(id, response);
+    public void exportWord(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        exportService.exportToWord(id, request, response);
+    }
+
+    /**
+     * HTML 预览导出效果
+     */
+    @GetMapping("/{id}/preview")
+    public void preview(@PathVariable Long id, HttpServletResponse response) throws Exception {
+        reportPreviewService.writePreview(id, response);
+    }
+
+    /**
+     * 创建异步导出任务
+     */
+    @PostMapping("/{id}/export-jobs")
+    public Result<ExportJob> createExportJob(@PathVariable Long id) {
+        return Result.success(exportJobService.submit(id));
+    }
+
+    /**
+     * 批量导出为 zip
+     */
+    @PostMapping("/batch-export")
+    public void batchExport(@RequestBody BatchExportRequest request, HttpServletResponse response)
+            throws Exception {
+        batchExportService.exportZip(request, response);
+    }
+
+    /**
+     * 部门汇总导出：合并同一模板在指定周内的全部报告
+     */
+    @GetMapping("/consolidated-export")
+    public void consolidatedExport(@RequestParam Long templateId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate week,
+            HttpServletResponse response) throws Exception {
+        consolidatedExportService.exportConsolidated(templateId, week, response);
     }
 }
@@ -1,12 +1,13 @@
 package com.report.controller;
 
 import com.report.common.Result;
+import com.report.dto.TemplateIngestion;
+import com.report.dto.TemplateSyncResult;
 import com.report.entity.ReportTemplate;
 import com.report.entity.TemplateSection;
 import com.report.service.TemplateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.beans.factory.annotation.Value;
 
 import java.util.List;
 
@@ -52,13 +53,15 @@ public class TemplateController {
     }
 
     /**
-     * 添加章节
+     * 添加章节（在模板的最新版本上修改，返回的章节 templateId 为修改后的版本）
+     * 传入 reportId 时该草稿报告随之固定到修改后的版本
      */
     @PostMapping("/{id}/sections")
     public Result<TemplateSection> addSection(
             @PathVariable Long id,
-            @RequestBody TemplateSection section) {
-        return Result.success(templateService.addSection(id, section));
+            @RequestBody TemplateSection section,
+            @RequestParam(value = "reportId", required = false) Long reportId) {
+        return Result.success(templateService.addSection(id, section, reportId));
     }
 
     /**
@@ -67,37 +70,53 @@ public class TemplateController {
     @PutMapping("/sections/{sectionId}")
     public Result<TemplateSection> updateSection(
             @PathVariable Long sectionId,
-            @RequestBody TemplateSection section) {
-        return Result.success(templateService.updateSection(sectionId, section));
+            @RequestBody TemplateSection section,
+            @RequestParam(value = "reportId", required = false) Long reportId) {
+        return Result.success(templateService.updateSection(sectionId, section, reportId));
     }
 
     /**
-     * 删除章节
+     * 删除章节（返回修改后版本中已停用的章节）
      */
     @DeleteMapping("/sections/{sectionId}")
-    public Result<Void> deleteSection(@PathVariable Long sectionId) {
-        templateService.deleteSection(sectionId);
-        return Result.success(null);
+    public Result<TemplateSection> deleteSection(
+            @PathVariable Long sectionId,
+            @RequestParam(value = "reportId", required = false) Long reportId) {
+        return Result.success(templateService.deleteSection(sectionId, reportId));
     }
 
     /**
      * 重新提取模板样式（用于现有模板）
      */
     @PostMapping("/{id}/extract-styles")
-    public Result<Void> extractStyles(@PathVariable Long id) {
-        com.report.entity.ReportTemplate template = templateService.getById(id);
-        if (template == null) {
+    public Result<ReportTemplate> extractStyles(@PathVariable Long id) {
+        if (templateService.getById(id) == null) {
             return Result.error("模板不存在");
         }
-        if (template.getBaseDocxUrl() != null && !template.getBaseDocxUrl().isEmpty()) {
-            ((com.report.service.impl.TemplateServiceImpl) templateService)
-                    .extractAndSaveStylesFromPath(id, template.getBaseDocxUrl());
-        }
-        return Result.success(null);
+        // 样式有变化时返回新版本
+        return Result.success(templateService.reextractStyles(id));
     }
 
-    @Value("${file.upload-dir:./uploads}")
-    private String uploadDir;
+    /**
+     * 获取模板的全部版本
+     */
+    @GetMapping("/{id}/versions")
+    public Result<List<ReportTemplate>> getVersions(@PathVariable Long id) {
+        return Result.success(templateService.getVersions(id));
+    }
+
+    /**
+     * 重新同步模板的章节结构和样式（可上传修改后的模板文件），只写入有变化的行，原有章节的 key 保持不变
+     */
+    @PostMapping("/{id}/resync")
+    public Result<TemplateSyncResult> resync(@PathVariable Long id,
+            @RequestParam(value = "file", required = false) org.springframework.web.multipart.MultipartFile file)
+            throws java.io.IOException {
+        if (templateService.getById(id) == null) {
+            return Result.error("模板不存在");
+        }
+        return Result.success(templateService.resyncTemplate(id, file));
+    }
 
     /**
      * 解析Word获取章节结构并保存文件
@@ -106,37 +125,13 @@ public class TemplateController {
     public Result<ParseResult> parseWord(@RequestParam("file") org.springframework.web.multipart.MultipartFile file)
             throws java.io.IOException {
 
-        // 1. Save file
-        String fileName = "template_" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        java.nio.file.Path uploadPath = java.nio.file.Paths.get(uploadDir, "templates");
-        if (!java.nio.file.Files.exists(uploadPath)) {
-            java.nio.file.Files.createDirectories(uploadPath);
-        }
-
-        try (java.io.InputStream inputStream = file.getInputStream()) {
-            java.nio.file.Files.copy(inputStream, uploadPath.resolve(fileName),
-                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        // 2. Parse structure
-        // Re-open input stream for parsing since the previous one was consumed?
-        // Or parse first then save? XWPFDocument constructor takes InputStream.
-        // Let's read from the saved file to be sure.
-        List<com.report.utils.WordUtil.SectionNode> sections;
-        try (java.io.InputStream is = java.nio.file.Files.newInputStream(uploadPath.resolve(fileName))) {
-            // We need a helper that takes InputStream, or overload parseStructure
-            // WordUtil.parseStructure takes MultipartFile currently.
-            // Let's modify WordUtil to take InputStream or just create a MockMultipartFile?
-            // Better: Modify WordUtil to take InputStream.
-            // But for now, let's just parse the original file stream if possible?
-            // MultipartFile.getInputStream() returns a new stream each time usually?
-            // Yes, usually.
-            sections = com.report.utils.WordUtil.parseStructure(file);
-        }
+        // 保存文件并一次解析出章节结构和样式，样式缓存到创建模板时使用
+        TemplateIngestion ingestion = templateService.parseTemplate(file);
 
         ParseResult result = new ParseResult();
-        result.setSections(sections);
-        result.setFileName(fileName); // Return relative path or filename
+        result.setSections(ingestion.getSections());
+        result.setFileName(ingestion.getFileName()); // Return relative path or filename
+        result.setFingerprint(ingestion.getFingerprint());
 
         return Result.success(result);
     }
@@ -159,5 +154,6 @@ public class TemplateController {
     public static class ParseResult {
         private List<com.report.utils.WordUtil.SectionNode> sections;
         private String fileName;
+        private String fingerprint;
     }
 }
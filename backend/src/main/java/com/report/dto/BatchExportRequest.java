@@ -0,0 +1,34 @@
+package com.report.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 批量导出请求
+ * 指定 reportIds 时按列表导出，否则按模板和日期范围筛选报告
+ */
+@Data
+public class BatchExportRequest {
+
+    /**
+     * 模板 ID
+     */
+    private Long templateId;
+
+    /**
+     * 报告开始日期下限（含）
+     */
+    private LocalDate startDate;
+
+    /**
+     * 报告开始日期上限（含）
+     */
+    private LocalDate endDate;
+
+    /**
+     * 显式指定的报告 ID 列表
+     */
+    private List<Long> reportIds;
+}
@@ -0,0 +1,62 @@
+package com.report.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步导出任务
+ */
+@Data
+public class ExportJob {
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        PENDING, RUNNING, SUCCESS, FAILED
+    }
+
+    /**
+     * 任务 ID
+     */
+    private String jobId;
+
+    /**
+     * 报告 ID
+     */
+    private Long reportId;
+
+    /**
+     * 任务状态
+     */
+    private volatile Status status;
+
+    /**
+     * 失败原因
+     */
+    private volatile String errorMessage;
+
+    private LocalDateTime createdAt;
+
+    private volatile LocalDateTime startedAt;
+
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * 渲染结果，仅在 SUCCESS 状态下存在
+     */
+    @JsonIgnore
+    private volatile RenderedReport result;
+
+    /**
+     * 提交时刻（纳秒），用于统计排队时间
+     */
+    @JsonIgnore
+    private long submittedNanos;
+
+    public boolean isFinished() {
+        return status == Status.SUCCESS || status == Status.FAILED;
+    }
+}
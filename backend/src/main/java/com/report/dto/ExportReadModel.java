@@ -0,0 +1,127 @@
+package com.report.dto;
+
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单次导出所需的全部数据快照
+ * 由 ExportReadModelLoader 一次性加载，导出过程中不再访问数据库；
+ * 只用于计算渲染键的快照中内容只有章节键和版本号，渲染前再通过 withContents 补全正文
+ */
+@Getter
+public final class ExportReadModel {
+
+    /**
+     * 报告实例
+     */
+    private final ReportInstance report;
+
+    /**
+     * 模板（可能为 null）
+     */
+    private final ReportTemplate template;
+
+    /**
+     * 模板章节，按 sort_order 排序
+     */
+    private final List<TemplateSection> sections;
+
+    /**
+     * 样式类型 -> 样式配置
+     */
+    private final Map<String, TemplateStyle> styleMap;
+
+    /**
+     * 报告各章节内容（未加载正文时只有 id、sectionKey 和 version）
+     */
+    private final List<ReportContent> contents;
+
+    /**
+     * 是否已加载正文
+     */
+    private final boolean contentsLoaded;
+
+    /**
+     * section_key -> 内容 HTML
+     */
+    private final Map<String, String> contentMap;
+
+    /**
+     * 加载时执行的数据库调用次数
+     */
+    private final int dbCalls;
+
+    public ExportReadModel(ReportInstance report, ReportTemplate template, List<TemplateSection> sections,
+            List<TemplateStyle> styles, List<ReportContent> contents, int dbCalls) {
+        this(report, template, List.copyOf(sections), styleMap(styles), contents, true, dbCalls);
+    }
+
+    private ExportReadModel(ReportInstance report, ReportTemplate template, List<TemplateSection> sections,
+            Map<String, TemplateStyle> styleMap, List<ReportContent> contents, boolean contentsLoaded,
+            int dbCalls) {
+        this.report = report;
+        this.template = template;
+        this.sections = sections;
+        this.styleMap = styleMap;
+        this.contents = List.copyOf(contents);
+        this.contentsLoaded = contentsLoaded;
+        this.dbCalls = dbCalls;
+        this.contentMap = contentsLoaded ? contentMap(this.contents) : null;
+    }
+
+    /**
+     * 只含章节版本号的快照，用于计算渲染键
+     */
+    public static ExportReadModel withVersions(ReportInstance report, ReportTemplate template,
+            List<TemplateSection> sections, List<TemplateStyle> styles, List<ReportContent> versions, int dbCalls) {
+        return new ExportReadModel(report, template, List.copyOf(sections), styleMap(styles), versions, false,
+                dbCalls);
+    }
+
+    /**
+     * 补全正文后的快照，报告、模板、章节和样式沿用当前快照
+     */
+    public ExportReadModel withContents(List<ReportContent> contents, int extraDbCalls) {
+        return new ExportReadModel(report, template, sections, styleMap, contents, true, dbCalls + extraDbCalls);
+    }
+
+    /**
+     * section_key -> 内容 HTML
+     *
+     * @throws IllegalStateException 快照未加载正文
+     */
+    public Map<String, String> getContentMap() {
+        if (!contentsLoaded) {
+            throw new IllegalStateException("导出快照未加载正文: 报告 " + report.getId());
+        }
+        return contentMap;
+    }
+
+    private static Map<String, TemplateStyle> styleMap(List<TemplateStyle> styles) {
+        // 如果有重复，保留第一个（与 TemplateService#getTemplateStyleMap 一致）
+        Map<String, TemplateStyle> styleMap = new LinkedHashMap<>();
+        for (TemplateStyle style : styles) {
+            styleMap.putIfAbsent(style.getStyleType(), style);
+        }
+        return Collections.unmodifiableMap(styleMap);
+    }
+
+    private static Map<String, String> contentMap(List<ReportContent> contents) {
+        Map<String, String> contentMap = new HashMap<>();
+        for (ReportContent content : contents) {
+            contentMap.putIfAbsent(content.getSectionKey(),
+                    content.getContentHtml() != null ? content.getContentHtml() : "");
+        }
+        return Collections.unmodifiableMap(contentMap);
+    }
+}
@@ -0,0 +1,34 @@
+package com.report.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * 已渲染的报告文件
+ */
+@Data
+@AllArgsConstructor
+public class RenderedReport {
+
+    /**
+     * 报告 ID
+     */
+    private Long reportId;
+
+    /**
+     * 报告名称（用于下载文件名）
+     */
+    private String reportName;
+
+    /**
+     * 渲染结果文件
+     */
+    private Path file;
+
+    /**
+     * 渲染键，同时作为 HTTP 强 ETag 的值
+     */
+    private String renderKey;
+}
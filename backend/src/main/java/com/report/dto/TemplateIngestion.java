@@ -0,0 +1,36 @@
+package com.report.dto;
+
+import com.report.entity.TemplateStyle;
+import com.report.utils.WordUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 上传模板的解析结果：章节结构、样式和内容指纹由同一份上传内容一次得到
+ */
+@Data
+@AllArgsConstructor
+public class TemplateIngestion {
+
+    /**
+     * 保存后的文件名（即模板的 baseDocxUrl）
+     */
+    private String fileName;
+
+    /**
+     * 文件内容的 SHA-256（十六进制）
+     */
+    private String fingerprint;
+
+    /**
+     * 章节结构
+     */
+    private List<WordUtil.SectionNode> sections;
+
+    /**
+     * 提取的样式，templateId 为空，创建模板时复制使用
+     */
+    private List<TemplateStyle> styles;
+}
@@ -0,0 +1,38 @@
+package com.report.dto;
+
+import lombok.Data;
+
+/**
+ * 模板重新同步的结果：同步后的版本及各类变更的行数
+ */
+@Data
+public class TemplateSyncResult {
+
+    /**
+     * 同步后的模板版本 ID（有变化时为新版本）
+     */
+    private Long templateId;
+
+    private int versionNo;
+
+    /**
+     * 同步后模板引用的文件名（baseDocxUrl）
+     */
+    private String baseDocxUrl;
+
+    private int stylesInserted;
+
+    private int stylesUpdated;
+
+    private int stylesDeleted;
+
+    private int stylesUnchanged;
+
+    private int sectionsInserted;
+
+    private int sectionsUpdated;
+
+    private int sectionsDeactivated;
+
+    private int sectionsUnchanged;
+}
@@ -17,7 +17,7 @@ public class ReportInstance {
     private Long id;
 
     /**
-     * 关联模板ID
+     * 关联模板版本 ID（创建时的最新版本，之后模板修改不影响该报告；草稿报告可随章节修改迁移到修改所在的版本）
      */
     private Long templateId;
 
@@ -7,6 +7,8 @@ import java.time.LocalDateTime;
 /**
  * 报告模板定义表
  * 如：周报模板V1, 月报模板V2024
+ * 每一行是模板的一个版本，报告实例通过 templateId 固定在创建时的版本上；
+ * 已有报告固定的版本不再修改，修改模板时复制出新版本
  */
 @Data
 @TableName("report_template")
@@ -31,7 +33,17 @@ public class ReportTemplate {
     private String baseDocxUrl;
 
     /**
-     * 是否激活
+     * 模板族 ID（第一个版本的 ID），同一模板的各版本相同
+     */
+    private Long familyId;
+
+    /**
+     * 版本号，从 1 开始；修改已有报告固定的版本时复制出新版本并加 1，没有报告固定时直接修改不变
+     */
+    private Integer versionNo;
+
+    /**
+     * 是否激活（有新版本后旧版本自动停用）
      */
     private Boolean isActive;
 
@@ -14,4 +14,9 @@ public interface ReportContentMapper extends BaseMapper<ReportContent> {
      * 获取报告实例的所有内容
      */
     List<ReportContent> selectByReportInstanceId(@Param("reportInstanceId") Long reportInstanceId);
+
+    /**
+     * 获取报告实例各章节的版本号（不加载正文内容）
+     */
+    List<ReportContent> selectVersionsByReportInstanceId(@Param("reportInstanceId") Long reportInstanceId);
 }
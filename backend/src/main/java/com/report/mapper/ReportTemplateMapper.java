@@ -3,7 +3,18 @@ package com.report.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.report.entity.ReportTemplate;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 @Mapper
 public interface ReportTemplateMapper extends BaseMapper<ReportTemplate> {
+
+    /**
+     * 以排他锁锁住模板族的第一个版本（行不会删除），修改模板版本前调用，同一模板的修改依次进行
+     */
+    Long lockFamily(@Param("familyId") Long familyId);
+
+    /**
+     * 以共享锁锁住模板族的第一个版本，新建报告固定版本前调用，等待进行中的修改提交
+     */
+    Long lockFamilyShared(@Param("familyId") Long familyId);
 }
@@ -5,6 +5,8 @@ import com.deepoove.poi.render.RenderContext;
 import com.deepoove.poi.xwpf.NiceXWPFDocument;
 import com.report.dto.SectionData;
 import com.report.entity.TemplateStyle;
+import com.report.utils.HtmlDocxWriter;
+import com.report.utils.StylePrototype;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSpacing;
@@ -17,12 +19,21 @@ import java.util.Map;
 
 /**
  * 自定义渲染策略，用于动态生成树形章节结构
- * 在占位符位置插入内容
+ * 在占位符位置插入内容；标题和正文格式按样式配置各编译一次（见 StylePrototype），之后直接复制
  */
 public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>> {
 
+    private static final int MAX_TITLE_LEVEL = 4;
+
     private final Map<String, TemplateStyle> styleConfig;
 
+    /**
+     * 标题格式，下标为级别 - 1；首次使用时编译
+     */
+    private final StylePrototype[] titleFormats = new StylePrototype[MAX_TITLE_LEVEL];
+
+    private StylePrototype bodyFormat;
+
     public SectionRenderPolicy() {
         this.styleConfig = new HashMap<>();
     }
@@ -49,7 +60,7 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
         XmlCursor cursor = currentPara.getCTP().newCursor();
 
         // 渲染所有章节
-        renderSectionsWithCursor(doc, sections, cursor);
+        renderSectionsWithCursor(doc, new HtmlDocxWriter(doc), sections, cursor);
 
         cursor.dispose();
 
@@ -60,7 +71,8 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
     /**
      * 使用 XmlCursor 在指定位置插入章节
      */
-    private void renderSectionsWithCursor(NiceXWPFDocument doc, List<SectionData> sections, XmlCursor cursor) {
+    private void renderSectionsWithCursor(NiceXWPFDocument doc, HtmlDocxWriter writer,
+            List<SectionData> sections, XmlCursor cursor) {
         for (SectionData section : sections) {
             // 1. 创建标题段落
             XWPFParagraph titlePara = doc.insertNewParagraph(cursor);
@@ -73,32 +85,27 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
 
             // 2. 如果有内容，创建内容段落
             if (section.getContent() != null && !section.getContent().trim().isEmpty()) {
-                XWPFParagraph contentPara = doc.insertNewParagraph(cursor);
-                if (contentPara != null) {
-                    XWPFRun contentRun = contentPara.createRun();
-
-                    String plainText = stripHtml(section.getContent());
-                    String[] lines = plainText.split("\n");
-                    boolean first = true;
-                    for (String line : lines) {
-                        String trimmedLine = line.trim();
-                        if (!trimmedLine.isEmpty()) {
-                            if (!first) {
-                                contentRun.addBreak();
-                            }
-                            contentRun.setText(trimmedLine);
-                            first = false;
+                writer.write(section.getContent(), new HtmlDocxWriter.Target() {
+                    @Override
+                    public XWPFParagraph newParagraph() {
+                        XWPFParagraph contentPara = doc.insertNewParagraph(cursor);
+                        if (contentPara != null) {
+                            bodyFormat().formatParagraph(contentPara);
+                            cursor.toNextToken();
                         }
+                        return contentPara;
                     }
 
-                    applyBodyStyle(contentPara, contentRun);
-                    cursor.toNextToken();
-                }
+                    @Override
+                    public void formatRun(XWPFRun run) {
+                        bodyFormat().formatRun(run);
+                    }
+                });
             }
 
             // 3. 递归处理子章节
             if (section.getChildren() != null && !section.getChildren().isEmpty()) {
-                renderSectionsWithCursor(doc, section.getChildren(), cursor);
+                renderSectionsWithCursor(doc, writer, section.getChildren(), cursor);
             }
         }
     }
@@ -106,30 +113,45 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
     private void applyTitleStyle(XWPFParagraph para, XWPFRun run, int level) {
         if (level < 1)
             level = 1;
-        if (level > 4)
-            level = 4;
+        if (level > MAX_TITLE_LEVEL)
+            level = MAX_TITLE_LEVEL;
 
+        StylePrototype format = titleFormats[level - 1];
+        if (format == null) {
+            format = compileTitleFormat(level);
+            titleFormats[level - 1] = format;
+        }
+        format.formatParagraph(para);
+        format.formatRun(run);
+    }
+
+    private StylePrototype compileTitleFormat(int level) {
         String styleType = "HEADING_" + level;
         TemplateStyle style = styleConfig.get(styleType);
 
         if (style != null) {
-            applyStyle(para, run, style);
-        } else {
-            applyDefaultTitleStyle(para, run, level);
+            return StylePrototype.compile(para -> applyParagraphStyle(para, style), run -> applyRunStyle(run, style));
         }
+        return StylePrototype.compile(para -> applyDefaultTitleParagraphStyle(para, level),
+                run -> applyDefaultTitleRunStyle(run, level));
     }
 
-    private void applyBodyStyle(XWPFParagraph para, XWPFRun run) {
-        TemplateStyle style = styleConfig.get("BODY");
+    private StylePrototype bodyFormat() {
+        if (bodyFormat == null) {
+            TemplateStyle style = styleConfig.get("BODY");
 
-        if (style != null) {
-            applyStyle(para, run, style);
-        } else {
-            applyDefaultBodyStyle(para, run);
+            if (style != null) {
+                bodyFormat = StylePrototype.compile(para -> applyParagraphStyle(para, style),
+                        run -> applyRunStyle(run, style));
+            } else {
+                bodyFormat = StylePrototype.compile(this::applyDefaultBodyParagraphStyle,
+                        this::applyDefaultBodyRunStyle);
+            }
         }
+        return bodyFormat;
     }
 
-    private void applyStyle(XWPFParagraph para, XWPFRun run, TemplateStyle style) {
+    private void applyRunStyle(XWPFRun run, TemplateStyle style) {
         // 字体
         if (style.getFontFamily() != null && !style.getFontFamily().isEmpty()) {
             run.setFontFamily(style.getFontFamily());
@@ -155,7 +177,9 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
                 && !style.getFontColor().equals("auto")) {
             run.setColor(style.getFontColor());
         }
+    }
 
+    private void applyParagraphStyle(XWPFParagraph para, TemplateStyle style) {
         // 行间距
         if (style.getLineSpacing() != null && style.getLineSpacing() > 0) {
             setLineSpacing(para, style.getLineSpacing());
@@ -213,63 +237,59 @@ public class SectionRenderPolicy extends AbstractRenderPolicy<List<SectionData>>
         }
     }
 
-    private void applyDefaultTitleStyle(XWPFParagraph para, XWPFRun run, int level) {
+    private void applyDefaultTitleRunStyle(XWPFRun run, int level) {
         run.setBold(true);
         run.setFontFamily("黑体");
-        para.setAlignment(ParagraphAlignment.LEFT);
 
         switch (level) {
             case 1:
                 run.setFontSize(22);
-                para.setSpacingAfter(240);
                 break;
             case 2:
                 run.setFontSize(18);
-                para.setSpacingAfter(200);
                 break;
             case 3:
                 run.setFontSize(16);
-                para.setSpacingAfter(160);
                 break;
             case 4:
                 run.setFontSize(14);
-                para.setSpacingAfter(120);
                 break;
             default:
                 run.setFontSize(12);
+        }
+    }
+
+    private void applyDefaultTitleParagraphStyle(XWPFParagraph para, int level) {
+        para.setAlignment(ParagraphAlignment.LEFT);
+
+        switch (level) {
+            case 1:
+                para.setSpacingAfter(240);
+                break;
+            case 2:
+                para.setSpacingAfter(200);
+                break;
+            case 3:
+                para.setSpacingAfter(160);
+                break;
+            default:
                 para.setSpacingAfter(120);
         }
 
         setLineSpacing(para, 1.5);
     }
 
-    private void applyDefaultBodyStyle(XWPFParagraph para, XWPFRun run) {
+    private void applyDefaultBodyRunStyle(XWPFRun run) {
         run.setFontFamily("宋体");
         run.setFontSize(12);
         run.setBold(false);
+    }
 
+    private void applyDefaultBodyParagraphStyle(XWPFParagraph para) {
         para.setAlignment(ParagraphAlignment.LEFT);
         para.setSpacingAfter(120);
         para.setFirstLineIndent(480); // 首行缩进约两字符
 
         setLineSpacing(para, 1.5);
     }
-
-    private String stripHtml(String html) {
-        if (html == null)
-            return "";
-
-        String text = html.replaceAll("(?i)<br\\s*/?>", "\n");
-        text = text.replaceAll("(?i)</p>", "\n");
-        text = text.replaceAll("(?i)<p[^>]*>", "");
-        text = text.replaceAll("<[^>]*>", "");
-
-        text = text.replace("&nbsp;", " ");
-        text = text.replace("&lt;", "<");
-        text = text.replace("&gt;", ">");
-        text = text.replace("&amp;", "&");
-        text = text.replace("&quot;", "\"");
-
-        return text.trim();
-    }
 }
@@ -0,0 +1,14 @@
+package com.report.service;
+
+import com.report.dto.BatchExportRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+public interface BatchExportService {
+
+    /**
+     * 批量导出报告，打包为一个 zip 写入响应
+     */
+    void exportZip(BatchExportRequest request, HttpServletResponse response) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.report.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+public interface ConsolidatedExportService {
+
+    /**
+     * 部门汇总导出：将同一模板在指定周内的全部报告合并为一个 Word 文档
+     * 每个章节标题下依次放置各成员的内容
+     *
+     * @param templateId 模板 ID
+     * @param week       该周内的任意一天
+     */
+    void exportConsolidated(Long templateId, LocalDate week, HttpServletResponse response) throws IOException;
+}
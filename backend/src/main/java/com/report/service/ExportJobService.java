@@ -0,0 +1,25 @@
+package com.report.service;
+
+import com.report.dto.ExportJob;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+public interface ExportJobService {
+
+    /**
+     * 提交导出任务，立即返回任务信息
+     */
+    ExportJob submit(Long reportId);
+
+    /**
+     * 查询任务状态
+     */
+    ExportJob getJob(String jobId);
+
+    /**
+     * 下载已完成任务的导出文件
+     */
+    void download(String jobId, HttpServletRequest request, HttpServletResponse response) throws IOException;
+}
@@ -1,11 +1,28 @@
 package com.report.service;
 
+import com.report.dto.RenderedReport;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+
 public interface ExportService {
 
     /**
      * 导出报告为Word文档
+     * 内容未变化时直接发送缓存文件；请求携带的 If-None-Match 与当前 ETag 一致时返回 304
+     */
+    void exportToWord(Long reportId, HttpServletRequest request, HttpServletResponse response) throws Exception;
+
+    /**
+     * 渲染报告为 Word 文件，内容未变化时直接返回缓存文件
+     */
+    RenderedReport render(Long reportId) throws IOException;
+
+    /**
+     * 发送已渲染的报告文件（带 ETag，If-None-Match 匹配时返回 304）
+     * 先打开文件再写响应；文件已被替换或淘汰时抛出 NoSuchFileException，此时尚未写出任何响应头
      */
-    void exportToWord(Long reportId, HttpServletResponse response) throws Exception;
+    void sendRendered(RenderedReport rendered, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
 }
@@ -0,0 +1,14 @@
+package com.report.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+public interface ReportPreviewService {
+
+    /**
+     * 以 HTML 预览报告的导出效果
+     * 章节树与 Word 导出一致，模板样式转换为 CSS，不创建任何 POI 对象
+     */
+    void writePreview(Long reportId, HttpServletResponse response) throws IOException;
+}
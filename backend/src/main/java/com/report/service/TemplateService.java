@@ -12,7 +12,7 @@ import java.util.Map;
 public interface TemplateService extends IService<ReportTemplate> {
 
     /**
-     * 从上传的 Word 模板中提取样式并保存
+     * 从上传的 Word 模板中提取样式并保存（样式有变化时保存为模板的新版本）
      * 
      * @param templateId 模板 ID
      * @param file       上传的 Word 文件
@@ -47,23 +47,65 @@ public interface TemplateService extends IService<ReportTemplate> {
     List<TemplateSection> getTemplateSections(Long templateId);
 
     /**
-     * 添加章节到模板
+     * 添加章节到模板：在模板的最新版本上修改（传入旧版本 ID 时也按最新版本处理），
+     * 最新版本已有报告固定时先复制出新版本
+     *
+     * @param reportId 随修改一起迁移到修改后版本的草稿报告，可为空
+     * @return 新增的章节，templateId 为修改后的版本
      */
-    TemplateSection addSection(Long templateId, TemplateSection section);
+    TemplateSection addSection(Long templateId, TemplateSection section, Long reportId);
 
     /**
-     * 更新章节
+     * 更新章节（版本规则同 addSection），返回修改后版本中的章节
      */
-    TemplateSection updateSection(Long sectionId, TemplateSection section);
+    TemplateSection updateSection(Long sectionId, TemplateSection section, Long reportId);
 
     /**
-     * 删除章节（软删除）
+     * 删除章节（版本规则同 addSection），在修改后的版本中软删除，返回该版本中已停用的章节
      */
-    void deleteSection(Long sectionId);
+    TemplateSection deleteSection(Long sectionId, Long reportId);
 
     /**
      * 创建模板及章节
      */
     ReportTemplate createTemplateWithSections(ReportTemplate template,
             List<com.report.utils.WordUtil.SectionNode> sectionNodes);
+
+    /**
+     * 保存上传的模板文件并解析章节结构、样式和内容指纹
+     * 解析结果按文件名缓存，随后以该文件创建模板时不再解析文件
+     */
+    com.report.dto.TemplateIngestion parseTemplate(MultipartFile file) throws java.io.IOException;
+
+    /**
+     * 重新提取模板的章节结构和样式，与已保存的行比较后在一个事务中只写入变化
+     * 匹配到的章节沿用原有 sectionKey，报告内容和导出缓存不受影响
+     *
+     * @param file 新的模板文件，为空时重新提取模板当前的文件
+     */
+    com.report.dto.TemplateSyncResult resyncTemplate(Long templateId, MultipartFile file) throws java.io.IOException;
+
+    /**
+     * 从模板当前的 Word 文件重新提取样式，有变化时保存为新版本
+     *
+     * @return 保存样式的模板版本
+     */
+    ReportTemplate reextractStyles(Long templateId);
+
+    /**
+     * 获取模板的全部版本（按版本号升序）
+     * 已有报告固定的版本不再修改，章节和样式的修改复制出新版本
+     */
+    List<ReportTemplate> getVersions(Long templateId);
+
+    /**
+     * 获取同一模板全部版本的 ID（用于按模板查询报告）
+     */
+    List<Long> getVersionIds(Long templateId);
+
+    /**
+     * 以共享锁锁住模板族后获取最新版本 ID（新建报告固定在该版本上）
+     * 等待进行中的模板修改提交，避免报告固定到正被直接修改的版本；须在 READ_COMMITTED 事务中调用
+     */
+    Long lockLatestVersionId(Long templateId);
 }
@@ -0,0 +1,286 @@
+package com.report.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.report.common.ExportOverloadedException;
+import com.report.dto.BatchExportRequest;
+import com.report.dto.RenderedReport;
+import com.report.entity.ReportInstance;
+import com.report.service.BatchExportService;
+import com.report.service.ExportService;
+import com.report.service.ReportService;
+import com.report.service.TemplateService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量导出服务
+ * 各报告在导出线程池中并行渲染到磁盘缓存，按完成顺序依次写入 zip。
+ * 所有批量导出合计在途的渲染任务数不超过并行度，内存占用只与并行度有关，
+ * 线程池的其余线程留给单份导出和异步导出任务
+ */
+@Slf4j
+@Service
+public class BatchExportServiceImpl implements BatchExportService {
+
+    private static final String ERROR_ENTRY = "导出失败.txt";
+
+    private final ReportService reportService;
+    private final TemplateService templateService;
+    private final ExportService exportService;
+    private final ThreadPoolExecutor exportExecutor;
+    private final int parallelism;
+    private final long retryAfterSeconds;
+
+    /**
+     * 所有批量导出共用的渲染名额，数量等于并行度
+     */
+    private final Semaphore batchSlots;
+
+    public BatchExportServiceImpl(ReportService reportService,
+            TemplateService templateService,
+            ExportService exportService,
+            @Qualifier("exportExecutor") ThreadPoolExecutor exportExecutor,
+            @Value("${export.batch.parallelism:0}") int parallelism,
+            @Value("${export.jobs.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.reportService = reportService;
+        this.templateService = templateService;
+        this.exportService = exportService;
+        this.exportExecutor = exportExecutor;
+        this.retryAfterSeconds = retryAfterSeconds;
+        // 未配置时占导出线程数的一半（至少 1 个）
+        this.parallelism = parallelism > 0 ? parallelism : Math.max(1, exportExecutor.getMaximumPoolSize() / 2);
+        this.batchSlots = new Semaphore(this.parallelism);
+    }
+
+    @Override
+    public void exportZip(BatchExportRequest request, HttpServletResponse response) throws IOException {
+        List<ReportInstance> reports = resolveReports(request);
+        if (reports.isEmpty()) {
+            throw new RuntimeException("没有符合条件的报告");
+        }
+
+        log.info("开始批量导出 {} 份报告，并行度 {}", reports.size(), parallelism);
+        long start = System.nanoTime();
+
+        // 第一个渲染任务被线程池接受后才写出 zip 响应头，此前过载时按 429 返回
+        ZipOutputStream zos = null;
+        Set<String> usedNames = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+
+        CompletionService<Outcome> completionService = new ExecutorCompletionService<>(exportExecutor);
+        Deque<ReportInstance> pending = new ArrayDeque<>(reports);
+        int inFlight = 0;
+
+        while (!pending.isEmpty() || inFlight > 0) {
+            // 补满并行窗口：名额被其他批量导出占满时，有在途任务就先处理完成的结果，否则等待名额
+            Outcome outcome = null;
+            while (!pending.isEmpty() && acquireSlot(inFlight == 0)) {
+                ReportInstance report = pending.poll();
+                try {
+                    completionService.submit(() -> {
+                        try {
+                            return render(report);
+                        } finally {
+                            batchSlots.release();
+                        }
+                    });
+                    inFlight++;
+                } catch (RejectedExecutionException e) {
+                    batchSlots.release();
+                    // 线程池队列被其他导出占满：有在途任务时先等待其完成再重试
+                    if (inFlight > 0) {
+                        pending.addFirst(report);
+                    } else if (zos == null) {
+                        log.warn("导出队列已满，拒绝批量导出");
+                        throw new ExportOverloadedException("导出任务过多，请稍后重试", retryAfterSeconds);
+                    } else {
+                        // 已开始写出 zip，无法再返回 429：在请求线程中渲染这一份
+                        outcome = render(report);
+                    }
+                    break;
+                }
+            }
+
+            if (zos == null) {
+                String zipName = URLEncoder.encode(zipFileName(request), StandardCharsets.UTF_8);
+                response.setContentType("application/zip");
+                response.setHeader("Content-Disposition", "attachment; filename=\"" + zipName + "\"");
+                zos = new ZipOutputStream(response.getOutputStream(), StandardCharsets.UTF_8);
+            }
+
+            if (outcome == null) {
+                outcome = take(completionService);
+                inFlight--;
+            }
+
+            if (outcome.error != null) {
+                failures.add(outcome.report.getReportName() + "（ID " + outcome.report.getId() + "）: "
+                        + outcome.error);
+                continue;
+            }
+            // 打开后文件即被固定：缓存淘汰或替换只删除目录项，已打开的通道仍读取原文件
+            try (FileChannel channel = FileChannel.open(outcome.rendered.getFile(), StandardOpenOption.READ)) {
+                writeEntry(zos, uniqueName(outcome.report.getReportName(), usedNames), channel);
+            } catch (NoSuchFileException e) {
+                log.warn("批量导出中报告 {} 的渲染结果已被清理", outcome.report.getId());
+                failures.add(outcome.report.getReportName() + "（ID " + outcome.report.getId() + "）: "
+                        + "渲染结果已被清理，请重试");
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            zos.putNextEntry(new ZipEntry(ERROR_ENTRY));
+            zos.write(String.join("\n", failures).getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+        zos.finish();
+        zos.flush();
+
+        log.info("批量导出完成: 成功 {} 份，失败 {} 份，耗时 {} ms", reports.size() - failures.size(),
+                failures.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 确定要导出的报告
+     */
+    private List<ReportInstance> resolveReports(BatchExportRequest request) {
+        if (request.getReportIds() != null && !request.getReportIds().isEmpty()) {
+            List<ReportInstance> reports = reportService.listByIds(request.getReportIds());
+            // 保持请求中的顺序
+            Map<Long, Integer> order = new HashMap<>();
+            for (Long id : request.getReportIds()) {
+                order.putIfAbsent(id, order.size());
+            }
+            reports.sort(Comparator.comparingInt(r -> order.get(r.getId())));
+            return reports;
+        }
+
+        if (request.getTemplateId() == null) {
+            throw new RuntimeException("请指定模板或报告列表");
+        }
+        // 包含固定在该模板各个版本上的报告
+        return reportService.list(new LambdaQueryWrapper<ReportInstance>()
+                .in(ReportInstance::getTemplateId, templateService.getVersionIds(request.getTemplateId()))
+                .ge(request.getStartDate() != null, ReportInstance::getStartDate, request.getStartDate())
+                .le(request.getEndDate() != null, ReportInstance::getStartDate, request.getEndDate())
+                .orderByAsc(ReportInstance::getUserId)
+                .orderByAsc(ReportInstance::getStartDate));
+    }
+
+    private Outcome render(ReportInstance report) {
+        try {
+            return new Outcome(report, exportService.render(report.getId()), null);
+        } catch (Exception e) {
+            log.error("批量导出中报告 {} 渲染失败", report.getId(), e);
+            return new Outcome(report, null, e.getMessage());
+        }
+    }
+
+    private boolean acquireSlot(boolean wait) throws IOException {
+        if (!wait) {
+            return batchSlots.tryAcquire();
+        }
+        try {
+            batchSlots.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量导出被中断", e);
+        }
+    }
+
+    private Outcome take(CompletionService<Outcome> completionService) throws IOException {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量导出被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("批量导出失败", e.getCause());
+        }
+    }
+
+    /**
+     * 以 STORED 方式写入条目：docx 本身已压缩，再次压缩只浪费 CPU
+     * CRC、大小和写入的内容都从同一个已打开的通道读取，保证三者一致
+     */
+    private void writeEntry(ZipOutputStream zos, String name, FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long size = 0;
+        channel.position(0);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            size += buffer.remaining();
+            crc.update(buffer);
+            buffer.clear();
+        }
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+
+        zos.putNextEntry(entry);
+        channel.position(0);
+        long copied = 0;
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            copied += buffer.remaining();
+            zos.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+        if (copied != size) {
+            throw new IOException("批量导出条目 " + name + " 在写入过程中被修改");
+        }
+        zos.closeEntry();
+    }
+
+    private String uniqueName(String reportName, Set<String> usedNames) {
+        String base = (reportName == null || reportName.isBlank() ? "报告" : reportName)
+                .replaceAll("[\\\\/:*?\"<>|]", "_");
+        String name = base + ".docx";
+        for (int i = 2; !usedNames.add(name); i++) {
+            name = base + " (" + i + ").docx";
+        }
+        return name;
+    }
+
+    private String zipFileName(BatchExportRequest request) {
+        StringBuilder sb = new StringBuilder("reports");
+        if (request.getTemplateId() != null) {
+            sb.append('_').append(request.getTemplateId());
+        }
+        sb.append('_').append(request.getStartDate() != null ? request.getStartDate() : LocalDate.now());
+        return sb.append(".zip").toString();
+    }
+
+    /**
+     * 单份报告的渲染结果
+     */
+    private record Outcome(ReportInstance report, RenderedReport rendered, String error) {
+    }
+}
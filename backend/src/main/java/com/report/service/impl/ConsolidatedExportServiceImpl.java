@@ -0,0 +1,259 @@
+package com.report.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.mapper.ReportContentMapper;
+import com.report.service.ConsolidatedExportService;
+import com.report.service.ReportService;
+import com.report.service.TemplateService;
+import com.report.utils.DocxFragment;
+import com.report.utils.SectionTrees;
+import com.report.utils.StylePrototype;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 部门汇总导出服务
+ * 一次查询取出该周全部报告及其内容，按章节合并各成员内容；
+ * 有模板文件时各章节片段在 fork/join 线程池中并行渲染，再按 sort_order 拼接到模板标题下
+ */
+@Slf4j
+@Service
+public class ConsolidatedExportServiceImpl implements ConsolidatedExportService {
+
+    private final ReportService reportService;
+    private final ReportContentMapper contentMapper;
+    private final TemplateService templateService;
+    private final TemplateBasedExportService templateBasedExportService;
+    private final WordExportService wordExportService;
+    private final ForkJoinPool forkJoinPool;
+    private final ExportAdmission exportAdmission;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${file.upload-dir:./uploads}")
+    private String uploadDir;
+
+    public ConsolidatedExportServiceImpl(ReportService reportService,
+            ReportContentMapper contentMapper,
+            TemplateService templateService,
+            TemplateBasedExportService templateBasedExportService,
+            WordExportService wordExportService,
+            @Qualifier("exportForkJoinPool") ForkJoinPool forkJoinPool,
+            ExportAdmission exportAdmission,
+            MeterRegistry meterRegistry) {
+        this.reportService = reportService;
+        this.contentMapper = contentMapper;
+        this.templateService = templateService;
+        this.templateBasedExportService = templateBasedExportService;
+        this.wordExportService = wordExportService;
+        this.forkJoinPool = forkJoinPool;
+        this.exportAdmission = exportAdmission;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void exportConsolidated(Long templateId, LocalDate week, HttpServletResponse response)
+            throws IOException {
+        try (ExportPhases phases = ExportPhases.begin(meterRegistry)) {
+            doExportConsolidated(templateId, week, response, phases);
+            phases.success();
+        }
+    }
+
+    private void doExportConsolidated(Long templateId, LocalDate week, HttpServletResponse response,
+            ExportPhases phases) throws IOException {
+        long loadStart = System.nanoTime();
+        ReportTemplate template = templateService.getById(templateId);
+        if (template == null) {
+            throw new RuntimeException("模板不存在: " + templateId);
+        }
+
+        LocalDate monday = week.with(DayOfWeek.MONDAY);
+        LocalDate sunday = monday.plusDays(6);
+        // 该周的报告可能固定在模板的不同版本上，章节按 sectionKey 合并（各版本 key 不变）
+        List<ReportInstance> reports = reportService.list(new LambdaQueryWrapper<ReportInstance>()
+                .in(ReportInstance::getTemplateId, templateService.getVersionIds(templateId))
+                .between(ReportInstance::getStartDate, monday, sunday)
+                .orderByAsc(ReportInstance::getUserId)
+                .orderByAsc(ReportInstance::getId));
+        if (reports.isEmpty()) {
+            throw new RuntimeException("该周没有可汇总的报告");
+        }
+
+        long start = System.nanoTime();
+        List<TemplateSection> sections = templateService.getTemplateSections(templateId);
+        Map<String, TemplateStyle> styleMap = templateService.getTemplateStyleMap(templateId);
+        Map<String, String> mergedContent = mergeContents(reports, sections);
+        ExportPhases.record("load", loadStart);
+
+        String documentName = template.getName() + " 部门汇总 " + monday + " 至 " + sunday;
+        Path templatePath = getTemplatePath(template);
+        phases.tag(templatePath != null ? "template" : "fallback", template);
+        long contentChars = mergedContent.values().stream().mapToLong(String::length).sum();
+        Path tempFile = Files.createTempFile("consolidated_", ".docx");
+        try {
+            try (ExportAdmission.Permit ignored = exportAdmission.acquire(
+                    exportAdmission.estimate(templatePath, contentChars));
+                    OutputStream os = Files.newOutputStream(tempFile)) {
+                if (templatePath != null) {
+                    renderWithTemplate(templatePath, sections, mergedContent, styleMap.get("BODY"), os);
+                } else {
+                    log.info("没有模板文件，使用 WordExportService 导出汇总");
+                    wordExportService.exportReport(os, null, documentName, monday + " 至 " + sunday,
+                            SectionTrees.build(sections, mergedContent), styleMap);
+                }
+            }
+
+            String fileName = URLEncoder.encode(documentName + ".docx", StandardCharsets.UTF_8);
+            response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+            response.setContentLengthLong(Files.size(tempFile));
+            ExportPhases.time("send", () -> Files.copy(tempFile, response.getOutputStream()));
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        log.info("部门汇总导出完成: 模板 {}，{} 份报告，{} 个章节，耗时 {} ms", templateId, reports.size(),
+                sections.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 一次查询取出全部报告内容，按章节合并：每位成员的内容前加一行加粗的成员名
+     */
+    private Map<String, String> mergeContents(List<ReportInstance> reports, List<TemplateSection> sections) {
+        List<Long> reportIds = reports.stream().map(ReportInstance::getId).toList();
+        Map<Long, Map<String, String>> contentByReport = new HashMap<>();
+        for (ReportContent content : contentMapper.selectList(new LambdaQueryWrapper<ReportContent>()
+                .in(ReportContent::getReportInstanceId, reportIds))) {
+            if (content.getContentHtml() != null && !content.getContentHtml().trim().isEmpty()) {
+                contentByReport.computeIfAbsent(content.getReportInstanceId(), id -> new HashMap<>())
+                        .putIfAbsent(content.getSectionKey(), content.getContentHtml());
+            }
+        }
+
+        Map<String, String> merged = new HashMap<>();
+        for (TemplateSection section : sections) {
+            StringBuilder sb = new StringBuilder();
+            for (ReportInstance report : reports) {
+                String html = contentByReport.getOrDefault(report.getId(), Collections.emptyMap())
+                        .get(section.getSectionKey());
+                if (html != null) {
+                    sb.append("<p><b>").append(escapeHtml(memberLabel(report))).append("</b></p>")
+                            .append(html);
+                }
+            }
+            if (sb.length() > 0) {
+                merged.put(section.getSectionKey(), sb.toString());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 模板式导出：各章节片段并行渲染，再按章节顺序拼接
+     */
+    private void renderWithTemplate(Path templatePath, List<TemplateSection> sections,
+            Map<String, String> mergedContent, TemplateStyle bodyStyle, OutputStream os) throws IOException {
+        StylePrototype body = templateBasedExportService.bodyPrototype(
+                templateBasedExportService.getBodyStyleId(templatePath), bodyStyle);
+
+        DocxFragment[] fragments = new DocxFragment[sections.size()];
+        long fragmentStart = System.nanoTime();
+        forkJoinPool.invoke(new FragmentTask(sections, mergedContent, body, fragments,
+                0, sections.size()));
+        ExportPhases.record("fragments", fragmentStart);
+
+        Map<String, DocxFragment> fragmentMap = new HashMap<>();
+        for (int i = 0; i < fragments.length; i++) {
+            if (fragments[i] != null) {
+                fragmentMap.put(sections.get(i).getSectionKey(), fragments[i]);
+            }
+        }
+        templateBasedExportService.exportWithFragments(templatePath, sections, fragmentMap, os);
+    }
+
+    /**
+     * 对章节区间二分递归，叶子任务渲染单个章节的片段
+     */
+    private final class FragmentTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<TemplateSection> sections;
+        private final Map<String, String> mergedContent;
+        private final StylePrototype body;
+        private final DocxFragment[] results;
+        private final int from;
+        private final int to;
+
+        FragmentTask(List<TemplateSection> sections, Map<String, String> mergedContent, StylePrototype body,
+                DocxFragment[] results, int from, int to) {
+            this.sections = sections;
+            this.mergedContent = mergedContent;
+            this.body = body;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                String html = mergedContent.get(sections.get(from).getSectionKey());
+                if (html != null) {
+                    results[from] = templateBasedExportService.renderFragment(html, body);
+                }
+                return;
+            }
+            if (to <= from) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FragmentTask(sections, mergedContent, body, results, from, mid),
+                    new FragmentTask(sections, mergedContent, body, results, mid, to));
+        }
+    }
+
+    private String memberLabel(ReportInstance report) {
+        if (report.getUserId() != null) {
+            return "用户 " + report.getUserId();
+        }
+        return report.getReportName() != null ? report.getReportName() : "报告 " + report.getId();
+    }
+
+    private String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * 获取模板文件路径
+     */
+    private Path getTemplatePath(ReportTemplate template) {
+        if (template.getBaseDocxUrl() == null || template.getBaseDocxUrl().isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(uploadDir, "templates", template.getBaseDocxUrl());
+        return Files.exists(path) ? path : null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.report.service.impl;
+
+import com.report.common.ExportOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出准入控制
+ * 按模板文件大小和内容长度估算每次渲染的堆内存占用，同时存活的文档总估算不超过堆预算；
+ * 超出预算的渲染按到达顺序排队，队列已满或等待超时时抛出 ExportOverloadedException（429）。
+ * 单次估算超过整个预算时按整个预算计算，即独占执行，不会永远无法准入
+ */
+@Slf4j
+@Component
+public class ExportAdmission {
+
+    /**
+     * 文档对象之外的固定开销（包、样式、编号等）
+     */
+    private static final long BASE_BYTES = 4L << 20;
+
+    private final long budgetBytes;
+    private final long templateFactor;
+    private final long contentFactor;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    private long inUseBytes;
+    private final Deque<Object> waiters = new ArrayDeque<>();
+
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public ExportAdmission(@Value("${export.admission.heap-budget-bytes:0}") long budgetBytes,
+            @Value("${export.admission.template-factor:12}") long templateFactor,
+            @Value("${export.admission.content-factor:24}") long contentFactor,
+            @Value("${export.admission.max-queue:50}") int maxQueue,
+            @Value("${export.admission.max-wait-ms:10000}") long maxWaitMillis,
+            @Value("${export.admission.retry-after-seconds:5}") long retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        // 未配置时取最大堆的一半，留出空间给请求处理和各类缓存
+        this.budgetBytes = budgetBytes > 0 ? budgetBytes : Runtime.getRuntime().maxMemory() / 2;
+        this.templateFactor = templateFactor;
+        this.contentFactor = contentFactor;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("export.admission.queue.depth", this, ExportAdmission::getWaiting)
+                .description("等待内存预算的导出渲染数")
+                .register(meterRegistry);
+        Gauge.builder("export.admission.in-use.bytes", this, ExportAdmission::getInUseBytes)
+                .description("正在渲染的导出估算占用的堆内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("export.admission.wait")
+                .description("导出渲染等待内存预算的时间")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("export.admission.rejected")
+                .description("因内存预算不足被拒绝的导出渲染数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 准入许可，渲染结束后关闭以归还预算
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long bytes;
+        private boolean released;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ExportAdmission.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                inUseBytes -= bytes;
+                ExportAdmission.this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 估算一次渲染的堆内存占用：解压后的文档对象约为模板文件的数倍，内容按字符数折算
+     *
+     * @param templatePath 模板文件，可为 null（回退导出）
+     * @param contentChars 内容 HTML 总长度
+     */
+    public long estimate(Path templatePath, long contentChars) {
+        long templateBytes = 0;
+        if (templatePath != null) {
+            try {
+                templateBytes = Files.size(templatePath);
+            } catch (IOException e) {
+                log.debug("读取模板大小失败: {}", templatePath);
+            }
+        }
+        return BASE_BYTES + templateBytes * templateFactor + contentChars * contentFactor;
+    }
+
+    /**
+     * 按估算占用申请预算，不足时排队等待
+     *
+     * @throws ExportOverloadedException 队列已满或等待超时
+     */
+    public Permit acquire(long estimatedBytes) {
+        long bytes = Math.min(Math.max(estimatedBytes, 0), budgetBytes);
+        long start = System.nanoTime();
+        synchronized (this) {
+            // 没有排队者且预算充足时直接准入
+            if (waiters.isEmpty() && inUseBytes + bytes <= budgetBytes) {
+                inUseBytes += bytes;
+                waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return new Permit(bytes);
+            }
+            if (waiters.size() >= maxQueue) {
+                throw reject(bytes, "排队已满");
+            }
+
+            // 按到达顺序准入，避免大任务被后来的小任务饿死
+            Object token = new Object();
+            waiters.addLast(token);
+            try {
+                long deadline = start + maxWaitNanos;
+                while (waiters.peekFirst() != token || inUseBytes + bytes > budgetBytes) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw reject(bytes, "等待超时");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw reject(bytes, "等待被中断");
+                    }
+                }
+                inUseBytes += bytes;
+            } finally {
+                waiters.remove(token);
+                notifyAll();
+            }
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(bytes);
+    }
+
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    public synchronized long getInUseBytes() {
+        return inUseBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    private ExportOverloadedException reject(long bytes, String reason) {
+        rejectedCounter.increment();
+        log.warn("导出内存预算不足（{}）：需要 {} 字节，已占用 {} / {} 字节，排队 {} 个", reason, bytes, inUseBytes,
+                budgetBytes, waiters.size());
+        return new ExportOverloadedException("导出任务过多，请稍后重试", retryAfterSeconds);
+    }
+}
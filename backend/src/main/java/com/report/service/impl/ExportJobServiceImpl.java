@@ -0,0 +1,157 @@
+package com.report.service.impl;
+
+import com.report.common.ExportOverloadedException;
+import com.report.dto.ExportJob;
+import com.report.service.ExportJobService;
+import com.report.service.ExportService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步导出任务服务
+ * 任务在 exportExecutor 中渲染，状态保存在内存中，完成的任务保留一段时间供下载
+ */
+@Slf4j
+@Service
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private final ExportService exportService;
+    private final ThreadPoolExecutor exportExecutor;
+    private final long retentionMinutes;
+    private final long retryAfterSeconds;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private final Timer waitTimer;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Counter rejectedCounter;
+
+    public ExportJobServiceImpl(ExportService exportService,
+            @Qualifier("exportExecutor") ThreadPoolExecutor exportExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${export.jobs.retention-minutes:60}") long retentionMinutes,
+            @Value("${export.jobs.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.exportService = exportService;
+        this.exportExecutor = exportExecutor;
+        this.retentionMinutes = retentionMinutes;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.waitTimer = Timer.builder("export.jobs.wait")
+                .description("导出任务排队等待时间")
+                .register(meterRegistry);
+        this.successTimer = Timer.builder("export.jobs.duration")
+                .description("导出任务执行时间")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failureTimer = Timer.builder("export.jobs.duration")
+                .description("导出任务执行时间")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("export.jobs.rejected")
+                .description("因队列已满被拒绝的导出任务数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ExportJob submit(Long reportId) {
+        pruneExpiredJobs();
+
+        ExportJob job = new ExportJob();
+        job.setJobId(UUID.randomUUID().toString().replace("-", ""));
+        job.setReportId(reportId);
+        job.setStatus(ExportJob.Status.PENDING);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setSubmittedNanos(System.nanoTime());
+        jobs.put(job.getJobId(), job);
+
+        try {
+            exportExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            rejectedCounter.increment();
+            log.warn("导出队列已满，拒绝报告 {} 的导出任务", reportId);
+            throw new ExportOverloadedException("导出任务过多，请稍后重试", retryAfterSeconds);
+        }
+
+        log.info("提交导出任务 {}，报告 {}，当前排队 {} 个", job.getJobId(), reportId,
+                exportExecutor.getQueue().size());
+        return job;
+    }
+
+    @Override
+    public ExportJob getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("导出任务不存在或已过期: " + jobId);
+        }
+        return job;
+    }
+
+    @Override
+    public void download(String jobId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExportJob job = getJob(jobId);
+        if (job.getStatus() == ExportJob.Status.FAILED) {
+            throw new RuntimeException("导出失败: " + job.getErrorMessage());
+        }
+        if (job.getStatus() != ExportJob.Status.SUCCESS) {
+            throw new RuntimeException("导出任务尚未完成");
+        }
+
+        // 报告在任务完成后被修改时，旧的渲染文件会被新版本替换；发送前先打开文件，文件已删除时不写出任何响应头
+        try {
+            exportService.sendRendered(job.getResult(), request, response);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("导出文件已失效，请重新导出");
+        }
+    }
+
+    private void run(ExportJob job) {
+        long waitNanos = System.nanoTime() - job.getSubmittedNanos();
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+
+        job.setStartedAt(LocalDateTime.now());
+        job.setStatus(ExportJob.Status.RUNNING);
+        long start = System.nanoTime();
+        try {
+            job.setResult(exportService.render(job.getReportId()));
+            job.setStatus(ExportJob.Status.SUCCESS);
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("导出任务 {} 完成，排队 {} ms，渲染 {} ms", job.getJobId(),
+                    waitNanos / 1_000_000, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            job.setErrorMessage(e.getMessage());
+            job.setStatus(ExportJob.Status.FAILED);
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("导出任务 {} 失败，报告 {}", job.getJobId(), job.getReportId(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 清理超过保留时间的已完成任务
+     */
+    private void pruneExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished()
+                && job.getFinishedAt() != null && job.getFinishedAt().isBefore(threshold));
+    }
+}
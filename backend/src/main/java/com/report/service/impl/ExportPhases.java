@@ -0,0 +1,140 @@
+package com.report.service.impl;
+
+import com.report.entity.ReportTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次导出的分阶段计时
+ * 导出入口用 begin 开启计时范围，各渲染服务用 time 记录所在阶段；计时先缓存在范围内，
+ * 关闭时再按最终的导出方式、模板族 ID 和结果发布为 export.phase.duration（按 phase 区分）和 export.duration。
+ * 模板每次修改都会生成新的版本 ID，标签使用模板族 ID，序列数只与模板数有关；
+ * 导出入口在成功后调用 success，未调用时按 failure 记录，失败的导出不计入成功耗时。
+ * 范围保存在当前线程中，没有开启范围时 time 只执行不计时
+ */
+public final class ExportPhases implements AutoCloseable {
+
+    private static final ThreadLocal<ExportPhases> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 可抛出 IOException 的计时代码块
+     */
+    @FunctionalInterface
+    public interface Phase<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface VoidPhase {
+        void run() throws IOException;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ExportPhases previous;
+    private final long start = System.nanoTime();
+    private final List<String> phaseNames = new ArrayList<>();
+    private final List<Long> phaseNanos = new ArrayList<>();
+
+    private String mode = "unknown";
+    private String templateId = "none";
+    private String outcome = "failure";
+
+    private ExportPhases(MeterRegistry meterRegistry, ExportPhases previous) {
+        this.meterRegistry = meterRegistry;
+        this.previous = previous;
+    }
+
+    /**
+     * 在当前线程开启计时范围
+     */
+    public static ExportPhases begin(MeterRegistry meterRegistry) {
+        ExportPhases phases = new ExportPhases(meterRegistry, CURRENT.get());
+        CURRENT.set(phases);
+        return phases;
+    }
+
+    /**
+     * 设置标签，导出方式在加载数据后才能确定
+     *
+     * @param mode     导出方式：template（模板式）或 fallback（WordExportService）
+     * @param template 导出使用的模板版本，可能为 null
+     */
+    public void tag(String mode, ReportTemplate template) {
+        this.mode = mode;
+        if (template == null) {
+            this.templateId = "none";
+        } else {
+            // 迁移前创建、还没有 familyId 的模板自成一族
+            Long familyId = template.getFamilyId() != null ? template.getFamilyId() : template.getId();
+            this.templateId = String.valueOf(familyId);
+        }
+    }
+
+    /**
+     * 标记导出成功
+     */
+    public void success() {
+        this.outcome = "success";
+    }
+
+    public static <T> T time(String phase, Phase<T> body) throws IOException {
+        long phaseStart = System.nanoTime();
+        try {
+            return body.run();
+        } finally {
+            record(phase, phaseStart);
+        }
+    }
+
+    /**
+     * 记录从 startNanos（System.nanoTime）到现在的阶段耗时，用于不便包装为代码块的阶段
+     */
+    public static void record(String phase, long startNanos) {
+        ExportPhases current = CURRENT.get();
+        if (current != null) {
+            current.phaseNames.add(phase);
+            current.phaseNanos.add(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void time(String phase, VoidPhase body) throws IOException {
+        time(phase, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+
+        for (int i = 0; i < phaseNames.size(); i++) {
+            Timer.builder("export.phase.duration")
+                    .description("导出各阶段耗时")
+                    .tag("phase", phaseNames.get(i))
+                    .tag("mode", mode)
+                    .tag("template", templateId)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(phaseNanos.get(i), TimeUnit.NANOSECONDS);
+        }
+        Timer.builder("export.duration")
+                .description("导出总耗时")
+                .tag("mode", mode)
+                .tag("template", templateId)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
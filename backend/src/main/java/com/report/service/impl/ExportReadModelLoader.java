@@ -0,0 +1,159 @@
+package com.report.service.impl;
+
+import com.report.cache.TemplateMetadataCache;
+import com.report.dto.ExportReadModel;
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.mapper.ReportContentMapper;
+import com.report.mapper.ReportInstanceMapper;
+import com.report.mapper.ReportTemplateMapper;
+import com.report.mapper.TemplateSectionMapper;
+import com.report.mapper.TemplateStyleMapper;
+import com.report.utils.StyleExtractor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 导出读模型加载器
+ * 先查询报告，再并发查询模板、章节、样式和内容，组装为不可变快照；
+ * 模板、章节和样式经过模板元数据缓存，命中时不查询数据库。
+ * 导出先只加载章节版本号计算渲染键，304 和命中磁盘缓存时不读取正文，需要渲染时再补全正文
+ */
+@Slf4j
+@Service
+public class ExportReadModelLoader {
+
+    private final ReportInstanceMapper reportMapper;
+    private final ReportTemplateMapper templateMapper;
+    private final TemplateSectionMapper sectionMapper;
+    private final TemplateStyleMapper styleMapper;
+    private final ReportContentMapper contentMapper;
+    private final TemplateMetadataCache metadataCache;
+    private final Executor readExecutor;
+
+    private final DistributionSummary dbCallsSummary;
+    private final Timer loadTimer;
+
+    public ExportReadModelLoader(ReportInstanceMapper reportMapper,
+            ReportTemplateMapper templateMapper,
+            TemplateSectionMapper sectionMapper,
+            TemplateStyleMapper styleMapper,
+            ReportContentMapper contentMapper,
+            TemplateMetadataCache metadataCache,
+            @Qualifier("exportReadExecutor") Executor readExecutor,
+            MeterRegistry meterRegistry) {
+        this.reportMapper = reportMapper;
+        this.templateMapper = templateMapper;
+        this.sectionMapper = sectionMapper;
+        this.styleMapper = styleMapper;
+        this.contentMapper = contentMapper;
+        this.metadataCache = metadataCache;
+        this.readExecutor = readExecutor;
+
+        this.dbCallsSummary = DistributionSummary.builder("export.read.db.calls")
+                .description("单次导出加载读模型的数据库调用次数（不含渲染前补全正文的 1 次）")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("export.read.duration")
+                .description("导出读模型加载时间")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加载导出所需的全部数据
+     */
+    public ExportReadModel load(Long reportId) {
+        return load(reportId, true);
+    }
+
+    /**
+     * 加载计算渲染键所需的数据：内容只查询章节键和版本号，不加载正文
+     */
+    public ExportReadModel loadVersions(Long reportId) {
+        return load(reportId, false);
+    }
+
+    /**
+     * 为只含版本号的快照补全正文
+     */
+    public ExportReadModel loadContents(ExportReadModel model) {
+        if (model.isContentsLoaded()) {
+            return model;
+        }
+        return model.withContents(contentMapper.selectByReportInstanceId(model.getReport().getId()), 1);
+    }
+
+    private ExportReadModel load(Long reportId, boolean withContents) {
+        long start = System.nanoTime();
+        AtomicInteger dbCalls = new AtomicInteger();
+
+        ReportInstance report = query(dbCalls, () -> reportMapper.selectById(reportId));
+        if (report == null) {
+            throw new RuntimeException("报告不存在: " + reportId);
+        }
+        Long templateId = report.getTemplateId();
+
+        // 其余查询只依赖报告和模板 ID，并发执行
+        CompletableFuture<ReportTemplate> template = async(() -> metadataCache.template(templateId,
+                () -> query(dbCalls, () -> templateMapper.selectById(templateId))));
+        CompletableFuture<List<TemplateSection>> sections = async(() -> metadataCache.sections(templateId,
+                () -> query(dbCalls, () -> sectionMapper.selectByTemplateIdOrdered(templateId))));
+        CompletableFuture<List<TemplateStyle>> styles = async(() -> metadataCache.styles(templateId,
+                () -> query(dbCalls, () -> styleMapper.selectByTemplateId(templateId))));
+        CompletableFuture<List<ReportContent>> contents = async(() -> query(dbCalls, () -> withContents
+                ? contentMapper.selectByReportInstanceId(reportId)
+                : contentMapper.selectVersionsByReportInstanceId(reportId)));
+
+        ExportReadModel model;
+        try {
+            List<TemplateStyle> styleList = stylesOrDefault(templateId, styles.join());
+            model = withContents
+                    ? new ExportReadModel(report, template.join(), sections.join(), styleList, contents.join(),
+                            dbCalls.get())
+                    : ExportReadModel.withVersions(report, template.join(), sections.join(), styleList,
+                            contents.join(), dbCalls.get());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        loadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        dbCallsSummary.record(model.getDbCalls());
+        log.debug("加载报告 {} 的导出数据: {} 次数据库调用, 耗时 {} ms", reportId, model.getDbCalls(),
+                elapsed / 1_000_000);
+        return model;
+    }
+
+    /**
+     * 模板没有样式配置时使用默认样式（与 TemplateService#getTemplateStyles 一致）
+     */
+    private static List<TemplateStyle> stylesOrDefault(Long templateId, List<TemplateStyle> styles) {
+        return styles.isEmpty() ? StyleExtractor.createDefaultStyles(templateId) : styles;
+    }
+
+    private <T> T query(AtomicInteger dbCalls, Supplier<T> query) {
+        dbCalls.incrementAndGet();
+        return query.get();
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, readExecutor);
+    }
+}
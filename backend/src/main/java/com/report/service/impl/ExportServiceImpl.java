@@ -1,118 +1,345 @@
 package com.report.service.impl;
 
+import com.report.cache.RenderedExportCache;
+import com.report.cache.SectionFragmentCache;
+import com.report.cache.TemplateFingerprint;
+import com.report.dto.ExportReadModel;
+import com.report.dto.RenderedReport;
 import com.report.dto.SectionData;
 import com.report.entity.ReportContent;
 import com.report.entity.ReportInstance;
 import com.report.entity.ReportTemplate;
 import com.report.entity.TemplateSection;
 import com.report.entity.TemplateStyle;
-import com.report.mapper.ReportContentMapper;
-import com.report.mapper.ReportInstanceMapper;
 import com.report.service.ExportService;
-import com.report.service.TemplateService;
+import com.report.utils.DocxFragment;
+import com.report.utils.SectionTrees;
+import com.report.utils.StylePrototype;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 导出服务实现
- * 优先使用模板式导出（保持100%样式一致）
+ * 模板含 {{sections}} 占位符时使用 poi-tl 渲染章节树，否则使用模板式导出（保持100%样式一致）
  * 如果没有模板文件，则回退到 WordExportService
+ * 渲染结果按渲染键缓存在磁盘上，重复下载直接发送缓存文件；
+ * dom 模式下各章节片段按内容版本缓存在内存中，重新导出只渲染有修改的章节
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExportServiceImpl implements ExportService {
 
-    private final ReportInstanceMapper reportMapper;
-    private final ReportContentMapper contentMapper;
-    private final TemplateService templateService;
+    /**
+     * 渲染输出格式版本，渲染逻辑改变输出时递增，使磁盘缓存中的旧文件失效
+     */
+    private static final int RENDER_FORMAT_VERSION = 3;
+
+    private final ExportReadModelLoader readModelLoader;
     private final WordExportService wordExportService;
     private final TemplateBasedExportService templateBasedExportService;
+    private final StreamingTemplateExportService streamingTemplateExportService;
+    private final PlaceholderExportService placeholderExportService;
+    private final RenderedExportCache renderedExportCache;
+    private final SectionFragmentCache sectionFragmentCache;
+    private final ExportAdmission exportAdmission;
+    private final MeterRegistry meterRegistry;
 
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
 
+    /**
+     * 模板式导出实现：dom（XWPFDocument）或 streaming（逐事件重写 document.xml）
+     */
+    @Value("${export.mode:dom}")
+    private String exportMode;
+
     @Override
-    public void exportToWord(Long reportId, HttpServletResponse response) throws Exception {
-        // 1. 加载报告实例
-        ReportInstance report = reportMapper.selectById(reportId);
-        if (report == null) {
-            throw new RuntimeException("报告不存在: " + reportId);
+    public void exportToWord(Long reportId, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        try (ExportPhases phases = ExportPhases.begin(meterRegistry)) {
+            doExportToWord(reportId, request, response, phases);
+            phases.success();
         }
+    }
 
-        // 2. 加载报告内容
-        List<ReportContent> contents = contentMapper.selectByReportInstanceId(reportId);
-        Map<String, String> contentMap = contents.stream()
-                .collect(Collectors.toMap(
-                        ReportContent::getSectionKey,
-                        c -> c.getContentHtml() != null ? c.getContentHtml() : "",
-                        (v1, v2) -> v1));
+    private void doExportToWord(Long reportId, HttpServletRequest request, HttpServletResponse response,
+            ExportPhases phases) throws IOException {
+        // 1. 计算渲染键（只读取版本号等元数据，不加载正文）
+        RenderInput input = prepare(reportId, phases);
+        String etag = "\"" + input.renderKey + "\"";
 
-        // 3. 加载模板章节结构
-        List<TemplateSection> sections = templateService.getTemplateSections(report.getTemplateId());
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
 
-        // 4. 获取模板文件路径
-        Path templatePath = getTemplatePath(report.getTemplateId());
+        // 2. 客户端已有最新版本
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            log.debug("报告 {} 未变化，返回 304", reportId);
+            return;
+        }
 
-        // 5. 设置响应头
-        String fileName = URLEncoder.encode(report.getReportName() + ".docx", StandardCharsets.UTF_8);
-        response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        // 3. 获取并打开渲染结果（命中磁盘缓存时不再渲染），打开后文件被并发删除也能读完
+        try (FileChannel channel = renderedExportCache.open(reportId, input.renderKey,
+                out -> renderDocument(input, out))) {
+            // 4. 发送文件
+            ExportPhases.time("send", () -> writeFile(channel, input.model.getReport().getReportName(), response));
+        }
+        log.info("成功导出报告: {}", input.model.getReport().getReportName());
+    }
 
-        // 6. 根据是否有模板文件选择导出方式
-        if (templatePath != null && Files.exists(templatePath)) {
+    @Override
+    public RenderedReport render(Long reportId) throws IOException {
+        try (ExportPhases phases = ExportPhases.begin(meterRegistry)) {
+            RenderInput input = prepare(reportId, phases);
+            Path file = renderedExportCache.get(reportId, input.renderKey, out -> renderDocument(input, out));
+            phases.success();
+            return new RenderedReport(reportId, input.model.getReport().getReportName(), file, input.renderKey);
+        }
+    }
+
+    @Override
+    public void sendRendered(RenderedReport rendered, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // 先打开文件：文件已被删除时在写出响应头之前抛出 NoSuchFileException
+        try (FileChannel channel = FileChannel.open(rendered.getFile(), StandardOpenOption.READ)) {
+            String etag = "\"" + rendered.getRenderKey() + "\"";
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+            if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            writeFile(channel, rendered.getReportName(), response);
+        }
+    }
+
+    /**
+     * 加载导出读模型（只含章节版本号）并计算渲染键，渲染时只再读取一次章节正文
+     */
+    private RenderInput prepare(Long reportId, ExportPhases phases) throws IOException {
+        RenderInput input = new RenderInput();
+        input.model = ExportPhases.time("load", () -> readModelLoader.loadVersions(reportId));
+        input.templatePath = getTemplatePath(input.model.getTemplate());
+        phases.tag(input.templatePath != null ? "template" : "fallback", input.model.getTemplate());
+        input.renderKey = computeRenderKey(input);
+        return input;
+    }
+
+    /**
+     * 渲染键：报告 ID、各章节内容版本、模板文件指纹以及影响输出的报告属性、章节结构和样式配置
+     * 只取最大版本号无法发现非最新章节的修改，因此对每个章节的版本号一并计算摘要
+     */
+    private String computeRenderKey(RenderInput input) throws IOException {
+        ReportInstance report = input.model.getReport();
+        List<ReportContent> contents = input.model.getContents();
+        int maxVersion = 0;
+        List<String> sectionVersions = new ArrayList<>(contents.size());
+        for (ReportContent content : contents) {
+            int version = content.getVersion() != null ? content.getVersion() : 0;
+            maxVersion = Math.max(maxVersion, version);
+            sectionVersions.add(content.getSectionKey() + ":" + version);
+        }
+        Collections.sort(sectionVersions);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(RENDER_FORMAT_VERSION).append('|').append(report.getId()).append('|').append(maxVersion).append('|').append(sectionVersions)
+                .append('|').append(input.templatePath != null
+                        ? TemplateFingerprint.of(input.templatePath).toToken() : "-")
+                .append('|').append(exportMode)
+                .append('|').append(report.getReportName())
+                .append('|').append(report.getStartDate()).append('|').append(report.getEndDate());
+        for (TemplateSection section : input.model.getSections()) {
+            sb.append('|').append(section.getId()).append(',').append(section.getSectionKey())
+                    .append(',').append(section.getTitle()).append(',').append(section.getParentId())
+                    .append(',').append(section.getSortOrder());
+        }
+        new TreeMap<>(input.model.getStyleMap()).forEach((type, style) -> sb.append('|').append(style));
+
+        return sha256Hex(sb.toString());
+    }
+
+    /**
+     * 按章节获取内容片段：版本未变化的章节直接取缓存，只渲染有修改的章节
+     */
+    private Map<String, DocxFragment> loadFragments(ExportReadModel model, Path templatePath,
+            TemplateStyle bodyStyle) throws IOException {
+        String bodyStyleId = templateBasedExportService.getBodyStyleId(templatePath);
+        String styleHash = sha256Hex(RENDER_FORMAT_VERSION + "|" + TemplateFingerprint.of(templatePath).toToken()
+                + "|" + bodyStyleId + "|" + bodyStyle);
+        StylePrototype body = templateBasedExportService.bodyPrototype(bodyStyleId, bodyStyle);
+        long reportId = model.getReport().getId();
+
+        Map<String, DocxFragment> fragments = new HashMap<>();
+        int[] rendered = {0};
+        for (ReportContent content : model.getContents()) {
+            String html = content.getContentHtml();
+            // 与 contentMap 一致，同一章节键只取第一条
+            if (fragments.containsKey(content.getSectionKey()) || html == null || html.trim().isEmpty()) {
+                continue;
+            }
+            int version = content.getVersion() != null ? content.getVersion() : 0;
+            DocxFragment fragment = sectionFragmentCache.get(reportId, content.getSectionKey(), content.getId(),
+                    version, styleHash, () -> {
+                        rendered[0]++;
+                        return templateBasedExportService.renderFragment(html, body);
+                    });
+            fragments.put(content.getSectionKey(), fragment);
+        }
+        log.info("报告 {} 共 {} 个章节内容，本次渲染 {} 个，其余使用缓存片段", reportId, fragments.size(), rendered[0]);
+        return fragments;
+    }
+
+    private String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 渲染报告到输出流：先补全正文，再按估算的内存占用申请准入
+     * 正文在渲染键之后读取，期间内容若有修改，下次导出的渲染键不同，会重新渲染
+     */
+    private void renderDocument(RenderInput input, OutputStream outputStream) throws IOException {
+        input.model = ExportPhases.time("content-load", () -> readModelLoader.loadContents(input.model));
+        long contentChars = 0;
+        for (String html : input.model.getContentMap().values()) {
+            contentChars += html.length();
+        }
+        try (ExportAdmission.Permit ignored = exportAdmission.acquire(
+                exportAdmission.estimate(input.templatePath, contentChars))) {
+            doRenderDocument(input, outputStream);
+        }
+    }
+
+    private void doRenderDocument(RenderInput input, OutputStream outputStream) throws IOException {
+        ExportReadModel model = input.model;
+        ReportInstance report = model.getReport();
+        Map<String, String> contentMap = model.getContentMap();
+        Path templatePath = input.templatePath;
+        List<TemplateSection> sections = model.getSections();
+
+        // 根据是否有模板文件选择导出方式
+        if (templatePath != null && Files.exists(templatePath) && placeholderExportService.supports(templatePath)) {
+            // 占位符模板：在 {{sections}} 处生成整个章节树
+            log.info("使用占位符模板导出，模板路径: {}", templatePath);
+            placeholderExportService.export(
+                    templatePath,
+                    report.getReportName(),
+                    formatDateRange(report),
+                    SectionTrees.build(sections, contentMap),
+                    model.getStyleMap(),
+                    outputStream);
+        } else if (templatePath != null && Files.exists(templatePath)) {
             // 模板式导出：保持100%样式一致
             log.info("使用模板式导出，模板路径: {}", templatePath);
 
             // 获取正文样式配置
-            Map<String, TemplateStyle> styleConfig = templateService.getTemplateStyleMap(report.getTemplateId());
-            TemplateStyle bodyStyle = styleConfig.get("BODY");
+            TemplateStyle bodyStyle = model.getStyleMap().get("BODY");
 
-            templateBasedExportService.exportWithTemplate(
-                    templatePath,
-                    sections,
-                    contentMap,
-                    bodyStyle,
-                    response.getOutputStream());
+            if ("streaming".equalsIgnoreCase(exportMode)) {
+                streamingTemplateExportService.exportWithTemplate(
+                        templatePath,
+                        sections,
+                        contentMap,
+                        bodyStyle,
+                        outputStream);
+            } else {
+                Map<String, DocxFragment> fragments = ExportPhases.time("fragments",
+                        () -> loadFragments(model, templatePath, bodyStyle));
+                templateBasedExportService.exportWithFragments(
+                        templatePath,
+                        sections,
+                        fragments,
+                        outputStream);
+            }
 
-            log.info("成功导出报告: {} (模板式导出，样式完全保留)", report.getReportName());
+            log.info("成功渲染报告: {} (模板式导出[{}]，样式完全保留)", report.getReportName(), exportMode);
         } else {
             // 回退到原有的 WordExportService
             log.info("没有模板文件，使用 WordExportService 导出");
 
-            Map<String, TemplateStyle> styleConfig = templateService.getTemplateStyleMap(report.getTemplateId());
-            List<SectionData> sectionTree = buildSectionDataTree(sections, contentMap);
+            List<SectionData> sectionTree = SectionTrees.build(sections, contentMap);
             String dateRange = formatDateRange(report);
 
             wordExportService.exportReport(
-                    response.getOutputStream(),
+                    outputStream,
                     templatePath,
                     report.getReportName(),
                     dateRange,
                     sectionTree,
-                    styleConfig);
+                    model.getStyleMap());
+
+            log.info("成功渲染报告: {} (使用 Word 内置样式)", report.getReportName());
+        }
+    }
 
-            log.info("成功导出报告: {} (使用 Word 内置样式)", report.getReportName());
+    /**
+     * 写出下载响应头并通过 FileChannel.transferTo 发送已打开的文件，不在堆内缓冲整个文档
+     */
+    private void writeFile(FileChannel channel, String reportName, HttpServletResponse response) throws IOException {
+        String fileName = URLEncoder.encode(reportName + ".docx", StandardCharsets.UTF_8);
+        response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+
+        long size = channel.size();
+        response.setContentLengthLong(size);
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        long position = 0;
+        while (position < size) {
+            position += channel.transferTo(position, size - position, target);
+        }
+    }
+
+    /**
+     * If-None-Match 比较（弱比较，支持多个值和 *）
+     */
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
      * 获取模板文件路径
      */
-    private Path getTemplatePath(Long templateId) {
+    private Path getTemplatePath(ReportTemplate reportTemplate) {
         try {
-            ReportTemplate reportTemplate = templateService.getById(templateId);
             if (reportTemplate != null && reportTemplate.getBaseDocxUrl() != null
                     && !reportTemplate.getBaseDocxUrl().isEmpty()) {
                 Path path = Paths.get(uploadDir, "templates", reportTemplate.getBaseDocxUrl());
@@ -127,80 +354,6 @@ public class ExportServiceImpl implements ExportService {
         return null;
     }
 
-    /**
-     * 构建章节数据树
-     */
-    private List<SectionData> buildSectionDataTree(List<TemplateSection> sections,
-            Map<String, String> contentMap) {
-        // 构建 ID -> Section 映射
-        Map<Long, TemplateSection> sectionMap = sections.stream()
-                .collect(Collectors.toMap(TemplateSection::getId, s -> s));
-
-        // 构建 ID -> SectionData 映射
-        Map<Long, SectionData> dataMap = new HashMap<>();
-        for (TemplateSection section : sections) {
-            SectionData data = new SectionData();
-            data.setTitle(section.getTitle());
-            data.setContent(contentMap.getOrDefault(section.getSectionKey(), ""));
-            data.setLevel(calculateLevel(section, sectionMap));
-            data.setChildren(new ArrayList<>());
-            dataMap.put(section.getId(), data);
-        }
-
-        // 构建树结构
-        List<SectionData> roots = new ArrayList<>();
-        for (TemplateSection section : sections) {
-            SectionData data = dataMap.get(section.getId());
-            if (section.getParentId() == null || !dataMap.containsKey(section.getParentId())) {
-                roots.add(data);
-            } else {
-                dataMap.get(section.getParentId()).getChildren().add(data);
-            }
-        }
-
-        // 排序
-        sortSectionDataRecursive(roots, sections, dataMap);
-
-        return roots;
-    }
-
-    /**
-     * 计算章节层级
-     */
-    private int calculateLevel(TemplateSection section, Map<Long, TemplateSection> sectionMap) {
-        int level = 1;
-        Long parentId = section.getParentId();
-        while (parentId != null && sectionMap.containsKey(parentId)) {
-            level++;
-            parentId = sectionMap.get(parentId).getParentId();
-        }
-        return level;
-    }
-
-    /**
-     * 递归排序章节
-     */
-    private void sortSectionDataRecursive(List<SectionData> dataList,
-            List<TemplateSection> sections,
-            Map<Long, SectionData> dataMap) {
-        // 创建 SectionData -> sortOrder 的映射
-        Map<SectionData, Integer> sortOrderMap = new HashMap<>();
-        for (TemplateSection section : sections) {
-            SectionData data = dataMap.get(section.getId());
-            sortOrderMap.put(data, section.getSortOrder() != null ? section.getSortOrder() : 0);
-        }
-
-        // 排序当前层级
-        dataList.sort(Comparator.comparingInt(d -> sortOrderMap.getOrDefault(d, 0)));
-
-        // 递归排序子节点
-        for (SectionData data : dataList) {
-            if (data.getChildren() != null && !data.getChildren().isEmpty()) {
-                sortSectionDataRecursive(data.getChildren(), sections, dataMap);
-            }
-        }
-    }
-
     /**
      * 格式化日期范围
      */
@@ -215,4 +368,13 @@ public class ExportServiceImpl implements ExportService {
         }
         return sb.toString();
     }
+
+    /**
+     * 单次渲染的输入
+     */
+    private static class RenderInput {
+        ExportReadModel model;
+        Path templatePath;
+        String renderKey;
+    }
 }
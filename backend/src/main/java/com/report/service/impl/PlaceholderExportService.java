@@ -0,0 +1,79 @@
+package com.report.service.impl;
+
+import com.deepoove.poi.XWPFTemplate;
+import com.deepoove.poi.config.Configure;
+import com.report.cache.CompiledTemplate;
+import com.report.cache.CompiledTemplateCache;
+import com.report.dto.SectionData;
+import com.report.entity.TemplateStyle;
+import com.report.policy.SectionRenderPolicy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 占位符模板导出服务
+ * 模板中含有 {{sections}} 占位符时，由 SectionRenderPolicy 在占位符位置生成整个章节树，
+ * 不需要按标题文本定位；{{report_title}}、{{date_range}} 作为普通文本占位符填充
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlaceholderExportService {
+
+    private final CompiledTemplateCache compiledTemplateCache;
+
+    /**
+     * 模板是否为占位符模板
+     */
+    public boolean supports(Path templatePath) throws IOException {
+        return templatePath != null && compiledTemplateCache.get(templatePath).hasSectionsTag();
+    }
+
+    /**
+     * 基于占位符模板导出 Word 文档
+     *
+     * @param sections 章节树（见 SectionTrees）
+     * @param styleMap 样式配置，用于章节标题和正文
+     */
+    public void export(Path templatePath,
+            String reportName,
+            String dateRange,
+            List<SectionData> sections,
+            Map<String, TemplateStyle> styleMap,
+            OutputStream outputStream) throws IOException {
+
+        long openStart = System.nanoTime();
+        CompiledTemplate compiled = compiledTemplateCache.get(templatePath);
+        if (!compiled.hasSectionsTag()) {
+            throw new IOException("模板中没有 {{" + CompiledTemplate.SECTIONS_TAG + "}} 占位符: " + templatePath);
+        }
+
+        Configure config = Configure.builder()
+                .bind(CompiledTemplate.SECTIONS_TAG, new SectionRenderPolicy(styleMap))
+                .build();
+        // 复制已合并 run 的正文得到新文档；元素模板引用具体文档中的 run，仍需在新文档上定位占位符
+        XWPFDocument doc = compiled.openDocument();
+        try (XWPFTemplate template = XWPFTemplate.compile(doc, config)) {
+            ExportPhases.record("template-open", openStart);
+
+            Map<String, Object> data = new HashMap<>();
+            data.put(CompiledTemplate.SECTIONS_TAG, sections);
+            data.put("report_title", reportName);
+            data.put("date_range", dateRange);
+            ExportPhases.time("content-insert", () -> template.render(data));
+
+            ExportPhases.time("write", () -> template.write(outputStream));
+        }
+
+        log.info("占位符模板导出完成: {}，共 {} 个顶级章节", reportName, sections.size());
+    }
+}
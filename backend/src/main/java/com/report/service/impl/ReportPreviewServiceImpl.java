@@ -0,0 +1,244 @@
+package com.report.service.impl;
+
+import com.report.dto.ExportReadModel;
+import com.report.dto.SectionData;
+import com.report.entity.ReportInstance;
+import com.report.entity.TemplateStyle;
+import com.report.service.ReportPreviewService;
+import com.report.utils.HtmlRuns;
+import com.report.utils.SectionTrees;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 报告 HTML 预览服务
+ * 章节树和内容解析与 Word 导出共用（SectionTrees / HtmlRuns），样式配置转换为 CSS，
+ * 直接写入响应流，不经过 XWPFDocument
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportPreviewServiceImpl implements ReportPreviewService {
+
+    private static final int MAX_STYLED_LEVEL = 4;
+
+    private final ExportReadModelLoader readModelLoader;
+
+    @Override
+    public void writePreview(Long reportId, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        ExportReadModel model = readModelLoader.load(reportId);
+        ReportInstance report = model.getReport();
+        List<SectionData> sectionTree = SectionTrees.build(model.getSections(), model.getContentMap());
+
+        response.setContentType("text/html;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        PrintWriter out = response.getWriter();
+
+        out.write("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+        out.write(escape(report.getReportName()));
+        out.write("</title>\n<style>\n");
+        writeCss(out, model.getStyleMap(), model.getTemplate() != null ? model.getTemplate().getId() : null);
+        out.write("</style>\n</head>\n<body>\n<div class=\"page\">\n");
+
+        out.write("<h1 class=\"report-title\">");
+        out.write(escape(report.getReportName()));
+        out.write("</h1>\n<p class=\"date-range\">");
+        out.write(escape(formatDateRange(report)));
+        out.write("</p>\n<hr>\n");
+
+        ParagraphWriter paragraphWriter = new ParagraphWriter(out);
+        writeSections(out, paragraphWriter, sectionTree);
+
+        out.write("</div>\n</body>\n</html>\n");
+        out.flush();
+
+        log.debug("生成报告 {} 的预览，耗时 {} ms", reportId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 递归写出章节标题和内容
+     */
+    private void writeSections(PrintWriter out, ParagraphWriter paragraphWriter, List<SectionData> sections) {
+        if (sections == null) {
+            return;
+        }
+        for (SectionData section : sections) {
+            if (section.getTitle() != null && !section.getTitle().trim().isEmpty()) {
+                int level = Math.max(1, Math.min(section.getLevel(), MAX_STYLED_LEVEL));
+                out.write("<h" + (level + 1) + " class=\"heading-" + level + "\">");
+                out.write(escape(section.getTitle()));
+                out.write("</h" + (level + 1) + ">\n");
+            }
+            if (section.getContent() != null && !section.getContent().trim().isEmpty()) {
+                HtmlRuns.parse(section.getContent(), paragraphWriter);
+            }
+            writeSections(out, paragraphWriter, section.getChildren());
+        }
+    }
+
+    /**
+     * 将样式配置转换为 CSS，缺失的样式使用与导出相同的默认值
+     */
+    private void writeCss(PrintWriter out, Map<String, TemplateStyle> styleMap, Long templateId) {
+        out.write("body { background: #f0f0f0; margin: 0; }\n");
+        out.write(".page { background: #fff; max-width: 794px; margin: 24px auto; padding: 72px 90px;"
+                + " box-shadow: 0 1px 4px rgba(0, 0, 0, .2); }\n");
+        out.write(".report-title { text-align: center; font-family: \"黑体\", sans-serif; font-size: 22pt; }\n");
+        out.write(".date-range { text-align: center; font-family: \"宋体\", serif; font-size: 12pt; }\n");
+        out.write("p, h2, h3, h4, h5 { margin: 0; }\n");
+        out.write(".list-item { text-indent: 0; }\n");
+        out.write(".marker { display: inline-block; min-width: 1.5em; }\n");
+
+        for (int level = 1; level <= MAX_STYLED_LEVEL; level++) {
+            TemplateStyle style = styleMap.get("HEADING_" + level);
+            writeRule(out, ".heading-" + level,
+                    style != null ? style : TemplateStyle.createDefaultHeading(templateId, level));
+        }
+        TemplateStyle body = styleMap.get("BODY");
+        writeRule(out, ".body", body != null ? body : TemplateStyle.createDefaultBody(templateId));
+    }
+
+    private void writeRule(PrintWriter out, String selector, TemplateStyle style) {
+        StringBuilder css = new StringBuilder(selector).append(" {");
+        if (style.getFontFamily() != null && !style.getFontFamily().isEmpty()) {
+            css.append(" font-family: \"").append(style.getFontFamily().replaceAll("[\"\\\\<>;{}]", ""))
+                    .append("\", serif;");
+        }
+        if (style.getFontSize() != null && style.getFontSize() > 0) {
+            css.append(" font-size: ").append(style.getFontSize()).append("pt;");
+        }
+        css.append(" font-weight: ").append(Boolean.TRUE.equals(style.getBold()) ? "bold" : "normal").append(';');
+        css.append(" font-style: ").append(Boolean.TRUE.equals(style.getItalic()) ? "italic" : "normal").append(';');
+        if (style.getFontColor() != null && style.getFontColor().matches("[0-9A-Fa-f]{6}")) {
+            css.append(" color: #").append(style.getFontColor()).append(';');
+        }
+        if (style.getLineSpacing() != null && style.getLineSpacing() > 0) {
+            css.append(" line-height: ").append(style.getLineSpacing()).append(';');
+        }
+        if (style.getSpacingBefore() != null && style.getSpacingBefore() > 0) {
+            css.append(" margin-top: ").append(style.getSpacingBefore()).append("pt;");
+        }
+        if (style.getSpacingAfter() != null && style.getSpacingAfter() > 0) {
+            css.append(" margin-bottom: ").append(style.getSpacingAfter()).append("pt;");
+        }
+        if (style.getFirstLineIndent() != null && style.getFirstLineIndent() > 0) {
+            css.append(" text-indent: ").append(style.getFirstLineIndent()).append("pt;");
+        }
+        css.append(" text-align: ").append(cssAlignment(style.getAlignment())).append("; }\n");
+        out.write(css.toString());
+    }
+
+    private String cssAlignment(String alignment) {
+        if (alignment == null) {
+            return "left";
+        }
+        switch (alignment) {
+            case "CENTER":
+                return "center";
+            case "RIGHT":
+                return "right";
+            case "JUSTIFY":
+                return "justify";
+            default:
+                return "left";
+        }
+    }
+
+    private String formatDateRange(ReportInstance report) {
+        return (report.getStartDate() != null ? report.getStartDate().toString() : "") + " 至 "
+                + (report.getEndDate() != null ? report.getEndDate().toString() : "");
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement;
+            switch (text.charAt(i)) {
+                case '&' -> replacement = "&amp;";
+                case '<' -> replacement = "&lt;";
+                case '>' -> replacement = "&gt;";
+                case '"' -> replacement = "&quot;";
+                default -> replacement = null;
+            }
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(text.charAt(i));
+                }
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+
+    /**
+     * 将 HtmlRuns 事件写为 HTML 段落，只输出与 Word 导出对应的标签，内容中的其他标签和脚本不会原样输出
+     */
+    private static final class ParagraphWriter implements HtmlRuns.Sink {
+
+        private final PrintWriter out;
+
+        ParagraphWriter(PrintWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startParagraph(HtmlRuns.ListItem item) {
+            if (item == null) {
+                out.write("<p class=\"body\">");
+                return;
+            }
+            out.write("<p class=\"body list-item\" style=\"margin-left: " + (item.getLevel() + 1) * 2 + "em\">");
+            out.write("<span class=\"marker\">");
+            out.write(item.isOrdered() ? item.getOrdinal() + "." : "•");
+            out.write("</span>");
+        }
+
+        @Override
+        public void run(String text, int format) {
+            if ((format & HtmlRuns.BOLD) != 0) {
+                out.write("<b>");
+            }
+            if ((format & HtmlRuns.ITALIC) != 0) {
+                out.write("<i>");
+            }
+            if ((format & HtmlRuns.UNDERLINE) != 0) {
+                out.write("<u>");
+            }
+            out.write(escape(text));
+            if ((format & HtmlRuns.UNDERLINE) != 0) {
+                out.write("</u>");
+            }
+            if ((format & HtmlRuns.ITALIC) != 0) {
+                out.write("</i>");
+            }
+            if ((format & HtmlRuns.BOLD) != 0) {
+                out.write("</b>");
+            }
+        }
+
+        @Override
+        public void lineBreak() {
+            out.write("<br>");
+        }
+
+        @Override
+        public void endParagraph() {
+            out.write("</p>\n");
+        }
+    }
+}
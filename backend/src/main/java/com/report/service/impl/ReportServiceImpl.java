@@ -9,8 +9,10 @@ import com.report.mapper.ReportContentMapper;
 import com.report.mapper.ReportInstanceMapper;
 import com.report.mapper.TemplateSectionMapper;
 import com.report.service.ReportService;
+import com.report.service.TemplateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -25,6 +27,7 @@ public class ReportServiceImpl extends ServiceImpl<ReportInstanceMapper, ReportI
 
     private final ReportContentMapper contentMapper;
     private final TemplateSectionMapper sectionMapper;
+    private final TemplateService templateService;
 
     @Override
     public List<ReportInstance> getUserReports(Long userId) {
@@ -34,8 +37,10 @@ public class ReportServiceImpl extends ServiceImpl<ReportInstanceMapper, ReportI
     }
 
     @Override
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public ReportInstance createReport(ReportInstance report) {
+        // 固定在模板的最新版本上，之后模板修改不影响该报告
+        report.setTemplateId(templateService.lockLatestVersionId(report.getTemplateId()));
         report.setStatus("DRAFT");
         report.setCreatedAt(LocalDateTime.now());
         save(report);
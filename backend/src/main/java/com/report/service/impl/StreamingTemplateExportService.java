@@ -0,0 +1,589 @@
+package com.report.service.impl;
+
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.utils.HtmlRuns;
+import com.report.utils.SectionAnchors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.stereotype.Service;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 流式模板导出服务
+ * 不构建 XWPFDocument：模板包中的其他部件按压缩后的原始字节直接复制（不解压、不重新压缩），
+ * 只有主文档部件（word/document.xml）经 StAX 逐事件重写，并在标题段落后拼接章节内容。
+ * 单次导出的内存占用与模板和报告大小基本无关。
+ */
+@Slf4j
+@Service
+public class StreamingTemplateExportService {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+    private static final String DEFAULT_DOCUMENT_PART = "word/document.xml";
+    private static final QName BOOKMARK_NAME = new QName(W_NS, "name");
+    private static final String[] BODY_STYLE_CANDIDATES = { "Normal", "a", "a0", "正文", "BodyText" };
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory EVENTS = XMLEventFactory.newInstance();
+
+    /**
+     * 流式导出
+     *
+     * @param templatePath    模板文件路径
+     * @param sections        模板章节列表
+     * @param contentMap      section_key -> 内容 的映射
+     * @param bodyStyleConfig 正文样式配置（可选）
+     * @param outputStream    输出流（不会被关闭）
+     */
+    public void exportWithTemplate(Path templatePath,
+            List<TemplateSection> sections,
+            Map<String, String> contentMap,
+            TemplateStyle bodyStyleConfig,
+            OutputStream outputStream) throws IOException {
+
+        if (templatePath == null || !Files.exists(templatePath)) {
+            throw new IOException("模板文件不存在: " + templatePath);
+        }
+
+        long phaseStart = System.nanoTime();
+        try (ZipFile zip = new ZipFile(templatePath.toFile())) {
+            String documentPart = findDocumentPart(zip);
+            if (zip.getEntry(documentPart) == null) {
+                throw new IOException("模板中缺少主文档部件: " + documentPart);
+            }
+            String bodyStyleId = detectBodyStyleId(zip, documentPart);
+            ExportPhases.record("template-open", phaseStart);
+
+            phaseStart = System.nanoTime();
+            SectionMatcher matcher = new SectionMatcher(sections, scanAnchors(zip, documentPart));
+            ExportPhases.record("heading-match", phaseStart);
+            phaseStart = System.nanoTime();
+
+            log.info("开始流式模板导出，共 {} 个章节，正文样式 ID: {}", sections.size(), bodyStyleId);
+
+            ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new NonClosingOutputStream(outputStream));
+            int insertedCount = 0;
+
+            Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.getName().equals(documentPart)) {
+                    ZipArchiveEntry rewritten = new ZipArchiveEntry(entry.getName());
+                    rewritten.setMethod(ZipArchiveEntry.DEFLATED);
+                    zos.putArchiveEntry(rewritten);
+                    try (InputStream is = zip.getInputStream(entry)) {
+                        insertedCount = rewriteDocument(is, zos, matcher, contentMap, bodyStyleId, bodyStyleConfig);
+                    }
+                    zos.closeArchiveEntry();
+                } else {
+                    try (InputStream raw = zip.getRawInputStream(entry)) {
+                        zos.addRawArchiveEntry(entry, raw);
+                    }
+                }
+            }
+            zos.finish();
+            zos.flush();
+            // 流式导出中解析、插入内容和写出交替进行，合并为一个阶段
+            ExportPhases.record("rewrite", phaseStart);
+
+            log.info("流式模板导出完成，共插入 {} 个内容段落", insertedCount);
+        } catch (XMLStreamException e) {
+            throw new IOException("模板 XML 解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 逐事件重写主文档，在匹配到的标题段落后写入内容段落
+     *
+     * @return 插入的内容段落数
+     */
+    private int rewriteDocument(InputStream in, OutputStream out,
+            SectionMatcher matcher,
+            Map<String, String> contentMap,
+            String bodyStyleId,
+            TemplateStyle bodyStyleConfig) throws XMLStreamException {
+
+        XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+        XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(new NonClosingOutputStream(out), "UTF-8");
+        BodyFormat format = BodyFormat.of(bodyStyleConfig);
+
+        int depth = 0;
+        int bodyDepth = -1;
+        int paragraphDepth = -1;
+        boolean inText = false;
+        String anchorName = null;
+        StringBuilder paragraphText = new StringBuilder();
+        int insertedCount = 0;
+
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            writer.add(event);
+
+            if (event.isStartElement()) {
+                depth++;
+                StartElement start = event.asStartElement();
+                if (!W_NS.equals(start.getName().getNamespaceURI())) {
+                    continue;
+                }
+                String local = start.getName().getLocalPart();
+                if (bodyDepth < 0 && "body".equals(local)) {
+                    bodyDepth = depth;
+                } else if (paragraphDepth < 0 && "p".equals(local) && depth == bodyDepth + 1) {
+                    // 正文级段落（与 doc.getParagraphs() 范围一致）
+                    paragraphDepth = depth;
+                    anchorName = null;
+                    paragraphText.setLength(0);
+                } else if (paragraphDepth > 0) {
+                    if ("bookmarkStart".equals(local) && depth == paragraphDepth + 1 && anchorName == null) {
+                        Attribute name = start.getAttributeByName(BOOKMARK_NAME);
+                        if (name != null && name.getValue().startsWith(SectionAnchors.PREFIX)) {
+                            anchorName = name.getValue();
+                        }
+                    } else if ("t".equals(local)) {
+                        inText = true;
+                    }
+                }
+            } else if (event.isCharacters()) {
+                if (inText && matcher.needsText()) {
+                    paragraphText.append(event.asCharacters().getData());
+                }
+            } else if (event.isEndElement()) {
+                if (inText && "t".equals(event.asEndElement().getName().getLocalPart())) {
+                    inText = false;
+                }
+                if (depth == paragraphDepth) {
+                    paragraphDepth = -1;
+                    TemplateSection section = matcher.match(anchorName, paragraphText);
+                    if (section != null) {
+                        String content = contentMap.get(section.getSectionKey());
+                        if (content != null && !content.trim().isEmpty()) {
+                            if (writeContent(writer, content, bodyStyleId, format) > 0) {
+                                insertedCount++;
+                            }
+                        }
+                    }
+                } else if (depth == bodyDepth) {
+                    bodyDepth = -1;
+                }
+                depth--;
+            }
+        }
+
+        writer.flush();
+        writer.close();
+        reader.close();
+        return insertedCount;
+    }
+
+    /**
+     * 写出一个章节的内容段落
+     *
+     * @return 写出的段落数
+     */
+    private int writeContent(XMLEventWriter writer, String content,
+            String bodyStyleId, BodyFormat format) throws XMLStreamException {
+        ContentWriter sink = new ContentWriter(writer, bodyStyleId, format);
+        try {
+            HtmlRuns.parse(content, sink);
+        } catch (UncheckedXMLStreamException e) {
+            throw e.getCause();
+        }
+        return sink.paragraphCount;
+    }
+
+    private static void start(XMLEventWriter writer, String local) throws XMLStreamException {
+        writer.add(EVENTS.createStartElement("w", W_NS, local));
+    }
+
+    private static void attr(XMLEventWriter writer, String local, String value) throws XMLStreamException {
+        writer.add(EVENTS.createAttribute("w", W_NS, local, value));
+    }
+
+    private static void end(XMLEventWriter writer, String local) throws XMLStreamException {
+        writer.add(EVENTS.createEndElement("w", W_NS, local));
+    }
+
+    private static void empty(XMLEventWriter writer, String local, String attrName, String value)
+            throws XMLStreamException {
+        start(writer, local);
+        attr(writer, attrName, value);
+        end(writer, local);
+    }
+
+    /**
+     * 预扫描主文档中正文段落上的章节书签名（只读属性，不构建对象模型）
+     */
+    private Set<String> scanAnchors(ZipFile zip, String documentPart) throws IOException, XMLStreamException {
+        Set<String> anchors = new HashSet<>();
+        try (InputStream is = zip.getInputStream(zip.getEntry(documentPart))) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                int depth = 0;
+                int bodyDepth = -1;
+                while (reader.hasNext()) {
+                    int type = reader.next();
+                    if (type == XMLStreamReader.START_ELEMENT) {
+                        depth++;
+                        if (bodyDepth < 0 && W_NS.equals(reader.getNamespaceURI())
+                                && "body".equals(reader.getLocalName())) {
+                            bodyDepth = depth;
+                        } else if (bodyDepth > 0 && depth == bodyDepth + 2
+                                && W_NS.equals(reader.getNamespaceURI())
+                                && "bookmarkStart".equals(reader.getLocalName())) {
+                            String name = reader.getAttributeValue(W_NS, "name");
+                            if (name != null && name.startsWith(SectionAnchors.PREFIX)) {
+                                anchors.add(name);
+                            }
+                        }
+                    } else if (type == XMLStreamReader.END_ELEMENT) {
+                        if (depth == bodyDepth) {
+                            bodyDepth = -1;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * 从包关系中找到主文档部件名
+     */
+    private String findDocumentPart(ZipFile zip) throws IOException, XMLStreamException {
+        ZipArchiveEntry rels = zip.getEntry("_rels/.rels");
+        if (rels == null) {
+            return DEFAULT_DOCUMENT_PART;
+        }
+        try (InputStream is = zip.getInputStream(rels)) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT
+                            && REL_NS.equals(reader.getNamespaceURI())
+                            && "Relationship".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "Type");
+                        String target = reader.getAttributeValue(null, "Target");
+                        if (type != null && type.endsWith(OFFICE_DOCUMENT_REL) && target != null) {
+                            return target.startsWith("/") ? target.substring(1) : target;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return DEFAULT_DOCUMENT_PART;
+    }
+
+    /**
+     * 扫描样式部件，探测正文样式 ID（与 TemplateBasedExportService 的候选顺序一致）
+     */
+    private String detectBodyStyleId(ZipFile zip, String documentPart) throws IOException, XMLStreamException {
+        String dir = documentPart.contains("/") ? documentPart.substring(0, documentPart.lastIndexOf('/') + 1) : "";
+        ZipArchiveEntry styles = zip.getEntry(dir + "styles.xml");
+        if (styles == null) {
+            return "Normal";
+        }
+
+        Set<String> styleIds = new HashSet<>();
+        try (InputStream is = zip.getInputStream(styles)) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT
+                            && W_NS.equals(reader.getNamespaceURI())
+                            && "style".equals(reader.getLocalName())) {
+                        String styleId = reader.getAttributeValue(W_NS, "styleId");
+                        if (styleId != null) {
+                            styleIds.add(styleId);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        for (String candidate : BODY_STYLE_CANDIDATES) {
+            if (styleIds.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return "Normal";
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * 章节匹配，规则与 TemplateBasedExportService#locateHeadings 一致：
+     * 模板中存在书签的章节只按书签定位，其余章节按标题文本匹配
+     */
+    private static final class SectionMatcher {
+
+        private final Map<String, TemplateSection> anchorToSection = new HashMap<>();
+        private final Map<String, TemplateSection> titleToSection = new HashMap<>();
+
+        SectionMatcher(List<TemplateSection> sections, Set<String> presentAnchors) {
+            for (TemplateSection section : sections) {
+                String anchor = SectionAnchors.anchorName(section.getSectionKey());
+                if (presentAnchors.contains(anchor)) {
+                    anchorToSection.put(anchor, section);
+                } else if (section.getTitle() != null && !section.getTitle().trim().isEmpty()) {
+                    titleToSection.put(section.getTitle().trim(), section);
+                }
+            }
+        }
+
+        boolean needsText() {
+            return !titleToSection.isEmpty();
+        }
+
+        TemplateSection match(String anchorName, CharSequence paragraphText) {
+            if (anchorName != null) {
+                TemplateSection section = anchorToSection.get(anchorName);
+                if (section != null) {
+                    return section;
+                }
+            }
+            if (titleToSection.isEmpty() || paragraphText.length() == 0) {
+                return null;
+            }
+            return titleToSection.get(paragraphText.toString().trim());
+        }
+    }
+
+    /**
+     * 内容段落的格式参数（twips / 半磅），取值规则与 TemplateBasedExportService 相同
+     */
+    private static final class BodyFormat {
+        String fontFamily;
+        Integer halfPoints;
+        boolean bold;
+        boolean italic;
+        String color;
+        Integer firstLineIndent;
+        Long line;
+        Integer spacingAfter;
+
+        static BodyFormat of(TemplateStyle style) {
+            BodyFormat format = new BodyFormat();
+            if (style == null) {
+                // 默认正文格式：宋体四号，首行缩进两字符，1.5 倍行距
+                format.fontFamily = "宋体";
+                format.halfPoints = 28;
+                format.firstLineIndent = 560;
+                format.line = 360L;
+                return format;
+            }
+            if (style.getFontFamily() != null && !style.getFontFamily().isEmpty()) {
+                format.fontFamily = style.getFontFamily();
+            }
+            if (style.getFontSize() != null && style.getFontSize() > 0) {
+                format.halfPoints = style.getFontSize() * 2;
+            }
+            format.bold = Boolean.TRUE.equals(style.getBold());
+            format.italic = Boolean.TRUE.equals(style.getItalic());
+            if (style.getFontColor() != null && !style.getFontColor().isEmpty()
+                    && !"auto".equals(style.getFontColor())) {
+                format.color = style.getFontColor();
+            }
+            if (style.getFirstLineIndent() != null && style.getFirstLineIndent() > 0) {
+                format.firstLineIndent = style.getFirstLineIndent().intValue() * 20;
+            }
+            if (style.getLineSpacing() != null && style.getLineSpacing() > 0) {
+                format.line = (long) (style.getLineSpacing() * 240);
+            }
+            if (style.getSpacingAfter() != null && style.getSpacingAfter() > 0) {
+                format.spacingAfter = style.getSpacingAfter().intValue() * 20;
+            }
+            return format;
+        }
+    }
+
+    /**
+     * 将 HtmlRuns 事件写为内容段落，格式与 TemplateBasedExportService 插入的段落一致
+     * 流式路径不改写编号部件，列表项以文字前缀（• / 1.）表示
+     */
+    private static final class ContentWriter implements HtmlRuns.Sink {
+
+        private final XMLEventWriter writer;
+        private final String bodyStyleId;
+        private final BodyFormat format;
+        private boolean pendingBreak;
+        int paragraphCount;
+
+        ContentWriter(XMLEventWriter writer, String bodyStyleId, BodyFormat format) {
+            this.writer = writer;
+            this.bodyStyleId = bodyStyleId;
+            this.format = format;
+        }
+
+        @Override
+        public void startParagraph(HtmlRuns.ListItem item) {
+            try {
+                start(writer, "p");
+
+                // 段落属性（按 schema 顺序：pStyle, spacing, ind）
+                start(writer, "pPr");
+                empty(writer, "pStyle", "val", bodyStyleId);
+                if (format.spacingAfter != null || format.line != null) {
+                    start(writer, "spacing");
+                    if (format.spacingAfter != null) {
+                        attr(writer, "after", format.spacingAfter.toString());
+                    }
+                    if (format.line != null) {
+                        attr(writer, "line", format.line.toString());
+                        attr(writer, "lineRule", "auto");
+                    }
+                    end(writer, "spacing");
+                }
+                if (format.firstLineIndent != null && item == null) {
+                    empty(writer, "ind", "firstLine", format.firstLineIndent.toString());
+                }
+                end(writer, "pPr");
+            } catch (XMLStreamException e) {
+                throw new UncheckedXMLStreamException(e);
+            }
+            paragraphCount++;
+
+            if (item != null) {
+                String indent = "  ".repeat(item.getLevel());
+                run(indent + (item.isOrdered() ? item.getOrdinal() + ". " : "• "), 0);
+            }
+        }
+
+        @Override
+        public void run(String text, int inline) {
+            try {
+                start(writer, "r");
+
+                // 字符属性（按 schema 顺序：rFonts, b, i, color, sz, u）
+                start(writer, "rPr");
+                if (format.fontFamily != null) {
+                    start(writer, "rFonts");
+                    attr(writer, "ascii", format.fontFamily);
+                    attr(writer, "hAnsi", format.fontFamily);
+                    attr(writer, "cs", format.fontFamily);
+                    attr(writer, "eastAsia", format.fontFamily);
+                    end(writer, "rFonts");
+                }
+                boolean bold = format.bold || (inline & HtmlRuns.BOLD) != 0;
+                boolean italic = format.italic || (inline & HtmlRuns.ITALIC) != 0;
+                empty(writer, "b", "val", bold ? "on" : "off");
+                empty(writer, "i", "val", italic ? "on" : "off");
+                if (format.color != null) {
+                    empty(writer, "color", "val", format.color);
+                }
+                if (format.halfPoints != null) {
+                    empty(writer, "sz", "val", format.halfPoints.toString());
+                }
+                if ((inline & HtmlRuns.UNDERLINE) != 0) {
+                    empty(writer, "u", "val", "single");
+                }
+                end(writer, "rPr");
+
+                if (pendingBreak) {
+                    start(writer, "br");
+                    end(writer, "br");
+                    pendingBreak = false;
+                }
+                start(writer, "t");
+                if (Character.isWhitespace(text.charAt(0))
+                        || Character.isWhitespace(text.charAt(text.length() - 1))) {
+                    writer.add(EVENTS.createAttribute("xml", XMLConstants.XML_NS_URI, "space", "preserve"));
+                }
+                writer.add(EVENTS.createCharacters(text));
+                end(writer, "t");
+
+                end(writer, "r");
+            } catch (XMLStreamException e) {
+                throw new UncheckedXMLStreamException(e);
+            }
+        }
+
+        @Override
+        public void lineBreak() {
+            pendingBreak = true;
+        }
+
+        @Override
+        public void endParagraph() {
+            pendingBreak = false;
+            try {
+                end(writer, "p");
+            } catch (XMLStreamException e) {
+                throw new UncheckedXMLStreamException(e);
+            }
+        }
+    }
+
+    /**
+     * 在 HtmlRuns 回调中传递 XMLStreamException
+     */
+    private static final class UncheckedXMLStreamException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UncheckedXMLStreamException(XMLStreamException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized XMLStreamException getCause() {
+            return (XMLStreamException) super.getCause();
+        }
+    }
+
+    /**
+     * 包装输出流，close 时只 flush，避免关闭 servlet 输出流
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.report.service.impl;
 
+import com.report.cache.TemplateDocumentCache;
+import com.report.cache.TemplateSnapshot;
 import com.report.entity.TemplateSection;
 import com.report.entity.TemplateStyle;
+import com.report.utils.DocxFragment;
+import com.report.utils.HtmlDocxWriter;
+import com.report.utils.SectionAnchors;
+import com.report.utils.StylePrototype;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
@@ -9,12 +16,12 @@ import org.openxmlformats.schemas.wordprocessingml.x2006.main.*;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * 基于模板的 Word 导出服务
@@ -23,8 +30,11 @@ import java.util.*;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TemplateBasedExportService {
 
+    private final TemplateDocumentCache templateDocumentCache;
+
     /**
      * 基于模板导出 Word 文档
      *
@@ -40,154 +50,265 @@ public class TemplateBasedExportService {
             TemplateStyle bodyStyleConfig,
             OutputStream outputStream) throws IOException {
 
-        if (templatePath == null || !Files.exists(templatePath)) {
-            throw new IOException("模板文件不存在: " + templatePath);
-        }
+        requireTemplate(templatePath);
+        StylePrototype body = bodyPrototype(getBodyStyleId(templatePath), bodyStyleConfig);
 
-        // 构建标题 -> section 映射
-        Map<String, TemplateSection> titleToSection = new LinkedHashMap<>();
-        for (TemplateSection section : sections) {
-            if (section.getTitle() != null && !section.getTitle().trim().isEmpty()) {
-                titleToSection.put(normalizeTitle(section.getTitle()), section);
+        export(templatePath, sections, outputStream, (doc, writer, heading, section) -> {
+            String content = contentMap.get(section.getSectionKey());
+
+            // 仅当内容不为空时插入
+            if (content == null || content.trim().isEmpty()) {
+                return 0;
             }
-        }
+            return insertContentAfterParagraph(doc, writer, heading, content, body);
+        });
+    }
 
-        log.info("开始模板式导出，共 {} 个章节标题需要匹配", titleToSection.size());
+    /**
+     * 基于模板导出 Word 文档，章节内容为预先渲染好的片段（见 renderFragment）
+     *
+     * @param templatePath 模板文件路径
+     * @param sections     模板章节列表
+     * @param fragments    section_key -> 内容片段 的映射
+     * @param outputStream 输出流
+     */
+    public void exportWithFragments(Path templatePath,
+            List<TemplateSection> sections,
+            Map<String, DocxFragment> fragments,
+            OutputStream outputStream) throws IOException {
 
-        try (InputStream is = Files.newInputStream(templatePath);
-                XWPFDocument doc = new XWPFDocument(is)) {
+        export(templatePath, sections, outputStream, (doc, writer, heading, section) -> {
+            DocxFragment fragment = fragments.get(section.getSectionKey());
+            if (fragment == null || fragment.isEmpty()) {
+                return 0;
+            }
+            return writer.insert(fragment, new ParagraphChain(doc, heading));
+        });
+    }
 
-            // 获取正文样式信息（用于新插入的内容段落）
-            String bodyStyleId = detectBodyStyleId(doc);
-            log.info("检测到正文样式 ID: {}", bodyStyleId);
+    /**
+     * 渲染章节内容片段，不依赖具体文档，可在多个线程中并行调用
+     *
+     * @param body 正文格式，见 bodyPrototype
+     */
+    public DocxFragment renderFragment(String content, StylePrototype body) {
+        return HtmlDocxWriter.renderFragment(content, body::formatParagraph, body::formatRun);
+    }
 
-            // 遍历所有段落，找到标题并在其后插入内容
-            List<XWPFParagraph> paragraphs = new ArrayList<>(doc.getParagraphs());
-            int insertedCount = 0;
+    /**
+     * 编译正文格式，一次导出只需编译一次
+     *
+     * @param bodyStyleId     正文样式 ID，见 getBodyStyleId
+     * @param bodyStyleConfig 正文样式配置（可选）
+     */
+    public StylePrototype bodyPrototype(String bodyStyleId, TemplateStyle bodyStyleConfig) {
+        return StylePrototype.compile(
+                para -> formatBodyParagraph(para, bodyStyleId, bodyStyleConfig),
+                run -> formatBodyRun(run, bodyStyleConfig));
+    }
 
-            for (int i = 0; i < paragraphs.size(); i++) {
-                XWPFParagraph para = paragraphs.get(i);
-                String paraText = normalizeTitle(para.getText());
+    /**
+     * 获取模板的正文样式 ID（来自模板快照缓存）
+     */
+    public String getBodyStyleId(Path templatePath) throws IOException {
+        return templateDocumentCache.get(templatePath).getBodyStyleId();
+    }
 
-                if (paraText.isEmpty()) {
-                    continue;
-                }
+    /**
+     * 在一个章节标题后插入内容
+     */
+    @FunctionalInterface
+    private interface SectionInserter {
+
+        /**
+         * @return 插入的段落数
+         */
+        int insert(XWPFDocument doc, HtmlDocxWriter writer, XWPFParagraph heading, TemplateSection section);
+    }
+
+    private void export(Path templatePath,
+            List<TemplateSection> sections,
+            OutputStream outputStream,
+            SectionInserter inserter) throws IOException {
+
+        requireTemplate(templatePath);
+
+        log.info("开始模板式导出，共 {} 个章节", sections.size());
+
+        // 从缓存获取已编译的模板快照，复制出本次导出使用的文档
+        long openStart = System.nanoTime();
+        TemplateSnapshot snapshot = templateDocumentCache.get(templatePath);
 
-                // 检查是否匹配某个标题
-                TemplateSection matchedSection = titleToSection.get(paraText);
-                if (matchedSection != null) {
-                    String sectionKey = matchedSection.getSectionKey();
-                    String content = contentMap.get(sectionKey);
-
-                    log.debug("匹配到标题: '{}' -> sectionKey: {}", paraText, sectionKey);
-
-                    // 仅当内容不为空时插入
-                    if (content != null && !content.trim().isEmpty()) {
-                        String plainText = stripHtml(content);
-                        if (!plainText.isEmpty()) {
-                            insertContentAfterParagraph(doc, para, plainText, bodyStyleId, bodyStyleConfig);
-                            insertedCount++;
-                            log.debug("在标题 '{}' 下方插入内容", matchedSection.getTitle());
-                        }
+        try (XWPFDocument doc = snapshot.openDocument()) {
+            ExportPhases.record("template-open", openStart);
+
+            // 获取正文样式信息（用于新插入的内容段落）
+            String bodyStyleId = snapshot.getBodyStyleId();
+            log.debug("正文样式 ID: {}", bodyStyleId);
+
+            // 定位每个章节的标题段落（插入前先全部定位，避免插入导致下标偏移）
+            List<XWPFParagraph> paragraphs = new ArrayList<>(doc.getParagraphs());
+            List<Map.Entry<XWPFParagraph, TemplateSection>> targets = ExportPhases.time("heading-match",
+                    () -> locateHeadings(paragraphs, sections, snapshot.getAnchorIndex()));
+
+            int insertedCount = ExportPhases.time("content-insert", () -> {
+                HtmlDocxWriter writer = new HtmlDocxWriter(doc);
+                int count = 0;
+                for (Map.Entry<XWPFParagraph, TemplateSection> target : targets) {
+                    TemplateSection section = target.getValue();
+                    if (inserter.insert(doc, writer, target.getKey(), section) > 0) {
+                        count++;
+                        log.debug("在标题 '{}' 下方插入内容", section.getTitle());
                     }
                 }
-            }
+                return count;
+            });
 
             log.info("模板式导出完成，共插入 {} 个内容段落", insertedCount);
 
             // 写入输出流
-            doc.write(outputStream);
+            ExportPhases.time("write", () -> doc.write(outputStream));
         }
     }
 
     /**
-     * 检测文档中的正文样式 ID
+     * 定位章节标题段落
+     * 优先使用模板中的章节书签直接定位；没有书签的章节（旧模板）回退到逐段比对标题文本
      */
-    private String detectBodyStyleId(XWPFDocument doc) {
-        // 尝试常见的正文样式 ID
-        String[] possibleIds = { "Normal", "a", "a0", "正文", "BodyText" };
-
-        if (doc.getStyles() != null) {
-            for (String id : possibleIds) {
-                try {
-                    if (doc.getStyles().getStyle(id) != null) {
-                        return id;
-                    }
-                } catch (Exception e) {
-                    // 忽略
-                }
+    private List<Map.Entry<XWPFParagraph, TemplateSection>> locateHeadings(List<XWPFParagraph> paragraphs,
+            List<TemplateSection> sections,
+            Map<String, Integer> anchorIndex) {
+        List<Map.Entry<XWPFParagraph, TemplateSection>> targets = new ArrayList<>();
+
+        // 构建标题 -> section 映射（仅包含没有书签的章节）
+        Map<String, TemplateSection> titleToSection = new LinkedHashMap<>();
+        for (TemplateSection section : sections) {
+            Integer index = anchorIndex.get(SectionAnchors.anchorName(section.getSectionKey()));
+            if (index != null && index < paragraphs.size()) {
+                targets.add(Map.entry(paragraphs.get(index), section));
+            } else if (section.getTitle() != null && !section.getTitle().trim().isEmpty()) {
+                titleToSection.put(normalizeTitle(section.getTitle()), section);
             }
         }
 
-        return "Normal"; // 默认返回 Normal
+        log.debug("书签定位 {} 个章节，{} 个章节需要按标题匹配", targets.size(), titleToSection.size());
+
+        if (titleToSection.isEmpty()) {
+            return targets;
+        }
+
+        for (XWPFParagraph para : paragraphs) {
+            String paraText = normalizeTitle(para.getText());
+            if (paraText.isEmpty()) {
+                continue;
+            }
+
+            // 检查是否匹配某个标题
+            TemplateSection matchedSection = titleToSection.get(paraText);
+            if (matchedSection != null) {
+                log.debug("匹配到标题: '{}' -> sectionKey: {}", paraText, matchedSection.getSectionKey());
+                targets.add(Map.entry(para, matchedSection));
+            }
+        }
+        return targets;
     }
 
     /**
-     * 在指定段落后插入内容段落
+     * 在指定段落后依次插入内容段落
+     *
+     * @return 插入的段落数
      */
-    private void insertContentAfterParagraph(XWPFDocument doc,
+    private int insertContentAfterParagraph(XWPFDocument doc,
+            HtmlDocxWriter writer,
             XWPFParagraph headingPara,
             String content,
-            String bodyStyleId,
-            TemplateStyle bodyStyleConfig) {
-
-        // 使用 XmlCursor 在标题后插入新段落
-        XmlCursor cursor = headingPara.getCTP().newCursor();
-        cursor.toNextSibling();
-
-        XWPFParagraph newPara = doc.insertNewParagraph(cursor);
-        if (newPara == null) {
-            // 如果插入失败，使用 createParagraph 作为备选
-            newPara = doc.createParagraph();
-            log.warn("使用 XmlCursor 插入失败，使用 createParagraph 作为备选");
+            StylePrototype body) {
+
+        ParagraphChain chain = new ParagraphChain(doc, headingPara);
+        return writer.write(content, new HtmlDocxWriter.Target() {
+            @Override
+            public XWPFParagraph newParagraph() {
+                XWPFParagraph newPara = chain.get();
+                body.formatParagraph(newPara);
+                return newPara;
+            }
+
+            @Override
+            public void formatRun(XWPFRun run) {
+                body.formatRun(run);
+            }
+        });
+    }
+
+    /**
+     * 依次在上一个段落之后插入新段落，第一个段落插在标题之后
+     */
+    private static final class ParagraphChain implements Supplier<XWPFParagraph> {
+
+        private final XWPFDocument doc;
+        private XWPFParagraph previous;
+
+        ParagraphChain(XWPFDocument doc, XWPFParagraph heading) {
+            this.doc = doc;
+            this.previous = heading;
         }
 
-        cursor.dispose();
+        @Override
+        public XWPFParagraph get() {
+            // 使用 XmlCursor 在上一个段落后插入新段落；上一个段落已是正文最后一个元素时直接追加
+            XmlCursor cursor = previous.getCTP().newCursor();
+            XWPFParagraph newPara;
+            if (cursor.toNextSibling()) {
+                newPara = doc.insertNewParagraph(cursor);
+                if (newPara == null) {
+                    // 如果插入失败，使用 createParagraph 作为备选
+                    newPara = doc.createParagraph();
+                    log.warn("使用 XmlCursor 插入失败，使用 createParagraph 作为备选");
+                }
+            } else {
+                newPara = doc.createParagraph();
+            }
+
+            cursor.dispose();
+            previous = newPara;
+            return newPara;
+        }
+    }
 
+    /**
+     * 设置正文段落样式与格式
+     */
+    private void formatBodyParagraph(XWPFParagraph para, String bodyStyleId, TemplateStyle bodyStyleConfig) {
         // 设置段落样式
         try {
-            newPara.setStyle(bodyStyleId);
+            para.setStyle(bodyStyleId);
         } catch (Exception e) {
             log.debug("设置样式 {} 失败: {}", bodyStyleId, e.getMessage());
         }
 
-        // 添加内容
-        XWPFRun run = newPara.createRun();
-
-        // 处理多行内容
-        String[] lines = content.split("\n");
-        boolean first = true;
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-            if (!trimmedLine.isEmpty()) {
-                if (!first) {
-                    run.addBreak();
-                }
-                run.setText(trimmedLine);
-
-                // 显式清除可能有残留的样式属性（特别是如果继承了标题的加粗）
-                if (run.isBold())
-                    run.setBold(false);
-                if (run.isItalic())
-                    run.setItalic(false);
-
-                first = false;
-            }
+        // 应用样式配置（如果提供），否则使用默认正文格式
+        if (bodyStyleConfig != null) {
+            applyParagraphStyleConfig(para, bodyStyleConfig);
+        } else {
+            applyDefaultParagraphFormat(para);
         }
+    }
 
-        // 应用样式配置（如果提供）
+    /**
+     * 设置正文字符格式
+     */
+    private void formatBodyRun(XWPFRun run, TemplateStyle bodyStyleConfig) {
         if (bodyStyleConfig != null) {
-            applyStyleConfig(newPara, run, bodyStyleConfig);
+            applyRunStyleConfig(run, bodyStyleConfig);
         } else {
-            // 使用默认正文格式
-            applyDefaultBodyFormat(newPara, run);
+            applyDefaultRunFormat(run);
         }
     }
 
     /**
-     * 应用样式配置
+     * 应用样式配置中的字符格式
      */
-    private void applyStyleConfig(XWPFParagraph para, XWPFRun run, TemplateStyle style) {
+    private void applyRunStyleConfig(XWPFRun run, TemplateStyle style) {
         if (style.getFontFamily() != null && !style.getFontFamily().isEmpty()) {
             run.setFontFamily(style.getFontFamily());
         }
@@ -208,7 +329,12 @@ public class TemplateBasedExportService {
                 && !"auto".equals(style.getFontColor())) {
             run.setColor(style.getFontColor());
         }
+    }
 
+    /**
+     * 应用样式配置中的段落格式
+     */
+    private void applyParagraphStyleConfig(XWPFParagraph para, TemplateStyle style) {
         // 首行缩进
         if (style.getFirstLineIndent() != null && style.getFirstLineIndent() > 0) {
             para.setFirstLineIndent(style.getFirstLineIndent().intValue() * 20);
@@ -226,13 +352,18 @@ public class TemplateBasedExportService {
     }
 
     /**
-     * 应用默认正文格式
+     * 应用默认正文字符格式
      */
-    private void applyDefaultBodyFormat(XWPFParagraph para, XWPFRun run) {
+    private void applyDefaultRunFormat(XWPFRun run) {
         run.setFontFamily("宋体");
         run.setFontSize(14); // 四号
         run.setBold(false);
+    }
 
+    /**
+     * 应用默认正文段落格式
+     */
+    private void applyDefaultParagraphFormat(XWPFParagraph para) {
         // 首行缩进（约两个中文字符）
         para.setFirstLineIndent(560); // 14pt * 20 * 2 chars = 560
 
@@ -261,6 +392,12 @@ public class TemplateBasedExportService {
         }
     }
 
+    private static void requireTemplate(Path templatePath) throws IOException {
+        if (templatePath == null || !Files.exists(templatePath)) {
+            throw new IOException("模板文件不存在: " + templatePath);
+        }
+    }
+
     /**
      * 标准化标题文本（去除首尾空白）
      */
@@ -270,30 +407,4 @@ public class TemplateBasedExportService {
         }
         return title.trim();
     }
-
-    /**
-     * 去除 HTML 标签，转换为纯文本
-     */
-    private String stripHtml(String html) {
-        if (html == null) {
-            return "";
-        }
-
-        // 转换换行标签
-        String text = html.replaceAll("(?i)<br\\s*/?>", "\n");
-        text = text.replaceAll("(?i)</p>", "\n");
-        text = text.replaceAll("(?i)<p[^>]*>", "");
-
-        // 移除其他 HTML 标签
-        text = text.replaceAll("<[^>]*>", "");
-
-        // 转换 HTML 实体
-        text = text.replace("&nbsp;", " ");
-        text = text.replace("&lt;", "<");
-        text = text.replace("&gt;", ">");
-        text = text.replace("&amp;", "&");
-        text = text.replace("&quot;", "\"");
-
-        return text.trim();
-    }
 }
@@ -0,0 +1,95 @@
+package com.report.service.impl;
+
+import com.report.cache.WeightedCache;
+import com.report.dto.TemplateIngestion;
+import com.report.entity.TemplateStyle;
+import com.report.utils.DocxHeadingParser;
+import com.report.utils.StyleExtractor;
+import com.report.utils.WordUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模板上传解析
+ * 上传内容边写入按内容寻址的存储边计算指纹（见 TemplateStorage），章节结构和样式按文件名缓存：
+ * 重复上传相同内容时只需查找缓存，创建模板时也直接使用其中的样式，不再重新解析文件
+ */
+@Slf4j
+@Service
+public class TemplateIngestionService {
+
+    private final TemplateStorage templateStorage;
+    private final WeightedCache<String, TemplateIngestion> cache;
+    private final int styleSampleSize;
+
+    public TemplateIngestionService(TemplateStorage templateStorage,
+            @Value("${template.ingestion-cache.max-entries:200}") long maxEntries,
+            @Value("${template.style-sample.max-paragraphs:500}") int styleSampleSize) {
+        this.templateStorage = templateStorage;
+        this.styleSampleSize = styleSampleSize;
+        this.cache = new WeightedCache<>("template-ingestion", maxEntries, ingestion -> 1);
+    }
+
+    /**
+     * 保存并解析上传的模板文件
+     */
+    public TemplateIngestion ingest(MultipartFile file) throws IOException {
+        long start = System.nanoTime();
+        TemplateStorage.StoredFile stored;
+        try (InputStream is = file.getInputStream()) {
+            stored = templateStorage.store(is);
+        }
+
+        TemplateIngestion ingestion = cache.get(stored.getFileName(), () -> parse(stored));
+
+        log.info("模板上传解析完成: {}（{}），{} 个顶级章节，{} 个样式，耗时 {} ms",
+                file.getOriginalFilename(), stored.getFileName(), ingestion.getSections().size(),
+                ingestion.getStyles().size(), (System.nanoTime() - start) / 1_000_000);
+        return ingestion;
+    }
+
+    private TemplateIngestion parse(TemplateStorage.StoredFile stored) throws IOException {
+        Path path = templateStorage.resolve(stored.getFileName());
+        // 章节结构和样式共用一次打开的压缩包，只读取一次中央目录
+        try (ZipFile zip = new ZipFile(Files.newByteChannel(path))) {
+            List<WordUtil.SectionNode> sections = DocxHeadingParser.parse(zip);
+            List<TemplateStyle> styles = StyleExtractor.extractStyles(zip, null, styleSampleSize);
+            return new TemplateIngestion(stored.getFileName(), stored.getFingerprint(), sections, styles);
+        }
+    }
+
+    /**
+     * 取上传时提取的样式副本，并关联到模板；没有缓存时返回 null
+     */
+    public List<TemplateStyle> cachedStyles(String fileName, Long templateId) {
+        TemplateIngestion ingestion = cache.getIfPresent(fileName);
+        if (ingestion == null) {
+            return null;
+        }
+
+        List<TemplateStyle> styles = new ArrayList<>(ingestion.getStyles().size());
+        for (TemplateStyle cached : ingestion.getStyles()) {
+            TemplateStyle style = new TemplateStyle();
+            BeanUtils.copyProperties(cached, style);
+            style.setId(null);
+            style.setTemplateId(templateId);
+            styles.add(style);
+        }
+        return styles;
+    }
+
+    public WeightedCache.Stats stats() {
+        return cache.stats();
+    }
+}
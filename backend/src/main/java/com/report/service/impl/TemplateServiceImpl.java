@@ -1,28 +1,45 @@
 package com.report.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import com.report.cache.TemplateMetadataCache;
+import com.report.dto.TemplateIngestion;
+import com.report.dto.TemplateSyncResult;
+import com.report.entity.ReportInstance;
 import com.report.entity.ReportTemplate;
 import com.report.entity.TemplateSection;
 import com.report.entity.TemplateStyle;
+import com.report.mapper.ReportInstanceMapper;
 import com.report.mapper.ReportTemplateMapper;
 import com.report.mapper.TemplateSectionMapper;
 import com.report.mapper.TemplateStyleMapper;
 import com.report.service.TemplateService;
+import com.report.utils.SectionAnchors;
 import com.report.utils.StyleExtractor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,13 +49,22 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
 
     private final TemplateSectionMapper sectionMapper;
     private final TemplateStyleMapper styleMapper;
+    private final TemplateIngestionService templateIngestionService;
+    private final TemplateStorage templateStorage;
+    private final TemplateMetadataCache metadataCache;
+    private final ReportInstanceMapper reportMapper;
 
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
 
+    @Value("${template.style-sample.max-paragraphs:500}")
+    private int styleSampleSize;
+
     /**
-     * 从文件路径提取并保存样式（用于模板创建后）
+     * 从文件路径提取并保存样式（用于新建模板，直接写入该版本）
+     * 与已保存的样式比较，只写入有变化的行
      */
+    @Transactional(rollbackFor = Exception.class)
     public List<TemplateStyle> extractAndSaveStylesFromPath(Long templateId, String templateFileName) {
         try {
             Path filePath = Paths.get(uploadDir, "templates", templateFileName);
@@ -47,16 +73,11 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
                 return saveDefaultStyles(templateId);
             }
 
-            // 删除旧样式
-            styleMapper.deleteByTemplateId(templateId);
-
             // 从文件提取样式
             try (InputStream is = Files.newInputStream(filePath)) {
-                List<TemplateStyle> styles = StyleExtractor.extractStyles(is, templateId);
-                for (TemplateStyle style : styles) {
-                    styleMapper.insert(style);
-                }
-                log.info("为模板 {} 从文件提取并保存了 {} 个样式配置", templateId, styles.size());
+                List<TemplateStyle> styles = StyleExtractor.extractStyles(is, templateId, styleSampleSize);
+                syncStyles(templateId, styles);
+                log.info("为模板 {} 从文件提取了 {} 个样式配置", templateId, styles.size());
                 return styles;
             }
         } catch (Exception e) {
@@ -67,43 +88,95 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
 
     private List<TemplateStyle> saveDefaultStyles(Long templateId) {
         List<TemplateStyle> defaultStyles = StyleExtractor.createDefaultStyles(templateId);
-        for (TemplateStyle style : defaultStyles) {
-            styleMapper.insert(style);
-        }
+        syncStyles(templateId, defaultStyles);
         return defaultStyles;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
     public List<TemplateStyle> extractAndSaveStyles(Long templateId, MultipartFile file) {
+        List<TemplateStyle> styles;
         try {
-            // 1. 先删除模板的旧样式配置
-            styleMapper.deleteByTemplateId(templateId);
-
-            // 2. 从上传的文件中提取样式
-            List<TemplateStyle> styles = StyleExtractor.extractStyles(file, templateId);
+            // 从上传的文件中提取样式
+            styles = StyleExtractor.extractStyles(file, templateId, styleSampleSize);
+        } catch (IOException e) {
+            log.error("提取样式失败: {}", e.getMessage(), e);
+            // 使用默认样式
+            styles = StyleExtractor.createDefaultStyles(templateId);
+        }
+        saveStylesToLatestVersion(templateId, styles);
+        return styles;
+    }
 
-            // 3. 保存新的样式配置
-            for (TemplateStyle style : styles) {
-                styleMapper.insert(style);
-            }
+    @Override
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public ReportTemplate reextractStyles(Long templateId) {
+        ReportTemplate template = lockLatestVersion(templateId);
+        if (template.getBaseDocxUrl() == null || template.getBaseDocxUrl().isEmpty()) {
+            return template;
+        }
 
-            log.info("为模板 {} 保存了 {} 个样式配置", templateId, styles.size());
-            return styles;
+        List<TemplateStyle> styles;
+        Path filePath = templateStorage.resolve(template.getBaseDocxUrl());
+        try (InputStream is = Files.newInputStream(filePath)) {
+            styles = StyleExtractor.extractStyles(is, template.getId(), styleSampleSize);
         } catch (IOException e) {
-            log.error("提取样式失败: {}", e.getMessage(), e);
-            // 返回默认样式
-            List<TemplateStyle> defaultStyles = StyleExtractor.createDefaultStyles(templateId);
-            for (TemplateStyle style : defaultStyles) {
-                styleMapper.insert(style);
-            }
-            return defaultStyles;
+            log.error("从文件提取样式失败: {}", e.getMessage(), e);
+            styles = StyleExtractor.createDefaultStyles(template.getId());
+        }
+        Long versionId = saveStylesToLatestVersion(template.getId(), styles);
+        return baseMapper.selectById(versionId);
+    }
+
+    /**
+     * 在模板的最新版本上保存样式：没有变化时不修改，有变化时按 editableVersion 的规则写入
+     *
+     * @return 写入样式的版本 ID
+     */
+    private Long saveStylesToLatestVersion(Long templateId, List<TemplateStyle> styles) {
+        ReportTemplate latest = lockLatestVersion(templateId);
+        TemplateSyncPlan plan = TemplateSyncPlan.styles(latest.getId(),
+                styleMapper.selectByTemplateId(latest.getId()), styles);
+        if (!plan.stylesChanged()) {
+            log.info("模板 {} 的样式没有变化", latest.getId());
+            return latest.getId();
+        }
+
+        TemplateVersion version = editableVersion(latest.getId(), null);
+        syncStyles(version.getId(), styles);
+        log.info("模板 {} 的样式有变化，保存到版本 {}", latest.getId(), version.getId());
+        return version.getId();
+    }
+
+    /**
+     * 将样式与已保存的行比较并写入变化
+     */
+    private TemplateSyncPlan syncStyles(Long templateId, List<TemplateStyle> styles) {
+        TemplateSyncPlan plan = TemplateSyncPlan.styles(templateId, styleMapper.selectByTemplateId(templateId), styles);
+        applyStyles(plan);
+        metadataCache.invalidate(templateId);
+        return plan;
+    }
+
+    private void applyStyles(TemplateSyncPlan plan) {
+        // 有变化的样式整行替换（先删后插，提取结果中为空的属性也随之清空）
+        if (!plan.styleDeletes.isEmpty()) {
+            styleMapper.deleteBatchIds(plan.styleDeletes);
         }
+        List<TemplateStyle> inserts = new ArrayList<>(plan.styleInserts);
+        inserts.addAll(plan.styleReplacements);
+        if (!inserts.isEmpty()) {
+            Db.saveBatch(inserts);
+        }
+        log.debug("样式同步: 新增 {}，替换 {}，删除 {}，未变 {}", plan.styleInserts.size(),
+                plan.styleReplacements.size(), plan.styleDeletes.size() - plan.styleReplacements.size(),
+                plan.stylesUnchanged);
     }
 
     @Override
     public List<TemplateStyle> getTemplateStyles(Long templateId) {
-        List<TemplateStyle> styles = styleMapper.selectByTemplateId(templateId);
-        if (styles == null || styles.isEmpty()) {
+        List<TemplateStyle> styles = metadataCache.styles(templateId, () -> styleMapper.selectByTemplateId(templateId));
+        if (styles.isEmpty()) {
             // 如果没有样式配置，返回默认样式（但不保存）
             return StyleExtractor.createDefaultStyles(templateId);
         }
@@ -130,12 +203,27 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
 
     @Override
     public List<TemplateSection> getTemplateSections(Long templateId) {
-        return sectionMapper.selectByTemplateIdOrdered(templateId);
+        return metadataCache.sections(templateId, () -> sectionMapper.selectByTemplateIdOrdered(templateId));
+    }
+
+    /**
+     * 按 ID 查询模板，经过模板元数据缓存；返回的实体不得修改，需要修改时用 baseMapper 重新查询
+     */
+    @Override
+    public ReportTemplate getById(Serializable id) {
+        if (!(id instanceof Long templateId)) {
+            return super.getById(id);
+        }
+        return metadataCache.template(templateId, () -> baseMapper.selectById(templateId));
     }
 
     @Override
-    public TemplateSection addSection(Long templateId, TemplateSection section) {
-        section.setTemplateId(templateId);
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public TemplateSection addSection(Long templateId, TemplateSection section, Long reportId) {
+        TemplateVersion version = editableVersion(templateId, reportId);
+        section.setId(null);
+        section.setTemplateId(version.getId());
+        section.setParentId(sectionIdIn(version, section.getParentId()));
         section.setIsActive(true);
         if (section.getSortOrder() == null) {
             section.setSortOrder(0);
@@ -145,37 +233,362 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
     }
 
     @Override
-    public TemplateSection updateSection(Long sectionId, TemplateSection section) {
-        section.setId(sectionId);
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public TemplateSection updateSection(Long sectionId, TemplateSection section, Long reportId) {
+        TemplateSection existing = requireSection(sectionId);
+        TemplateVersion version = editableVersion(existing.getTemplateId(), reportId);
+        Long targetId = version.sectionId(existing);
+
+        section.setId(targetId);
+        section.setTemplateId(null);
+        section.setParentId(sectionIdIn(version, section.getParentId()));
         sectionMapper.updateById(section);
-        return sectionMapper.selectById(sectionId);
+        return sectionMapper.selectById(targetId);
     }
 
     @Override
-    public void deleteSection(Long sectionId) {
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public TemplateSection deleteSection(Long sectionId, Long reportId) {
+        TemplateSection existing = requireSection(sectionId);
+        TemplateVersion version = editableVersion(existing.getTemplateId(), reportId);
+        Long targetId = version.sectionId(existing);
+
         TemplateSection section = new TemplateSection();
-        section.setId(sectionId);
+        section.setId(targetId);
         section.setIsActive(false);
         sectionMapper.updateById(section);
+        return sectionMapper.selectById(targetId);
+    }
+
+    @Override
+    public List<ReportTemplate> getVersions(Long templateId) {
+        ReportTemplate template = getById(templateId);
+        if (template == null) {
+            return List.of();
+        }
+        return list(familyQuery(familyId(template))
+                .orderByAsc(ReportTemplate::getVersionNo)
+                .orderByAsc(ReportTemplate::getId));
+    }
+
+    @Override
+    public List<Long> getVersionIds(Long templateId) {
+        List<Long> ids = getVersions(templateId).stream().map(ReportTemplate::getId).collect(Collectors.toList());
+        return ids.isEmpty() ? List.of(templateId) : ids;
+    }
+
+    @Override
+    public Long lockLatestVersionId(Long templateId) {
+        ReportTemplate template = getById(templateId);
+        if (template == null) {
+            return templateId;
+        }
+        Long familyId = familyId(template);
+        baseMapper.lockFamilyShared(familyId);
+        return latestVersion(familyId).getId();
+    }
+
+    /**
+     * 修改所在的模板版本：版本 ID、模板族 ID，以及请求中的章节（可能属于同一模板的旧版本）到该版本章节的对应关系
+     */
+    static final class TemplateVersion {
+
+        private final Long id;
+        private final Long familyId;
+
+        /**
+         * 刚从上一版本复制时：上一版本章节 ID -> 复制后的章节 ID
+         */
+        private final Map<Long, Long> copiedIds;
+
+        /**
+         * 该版本的章节 sectionKey -> 章节 ID（含已停用的章节，key 重复时取第一个）
+         */
+        private final Map<String, Long> idsByKey = new HashMap<>();
+
+        TemplateVersion(Long id, Long familyId, Map<Long, Long> copiedIds, List<TemplateSection> sections) {
+            this.id = id;
+            this.familyId = familyId;
+            this.copiedIds = copiedIds;
+            for (TemplateSection section : sections) {
+                idsByKey.putIfAbsent(section.getSectionKey(), section.getId());
+            }
+        }
+
+        Long getId() {
+            return id;
+        }
+
+        Long getFamilyId() {
+            return familyId;
+        }
+
+        /**
+         * 章节在该版本中的 ID：该版本的章节原样返回，刚复制的章节按复制关系，更早版本的章节按 sectionKey 对应
+         */
+        Long sectionId(TemplateSection section) {
+            if (id.equals(section.getTemplateId())) {
+                return section.getId();
+            }
+            Long copyId = copiedIds.get(section.getId());
+            if (copyId == null) {
+                copyId = idsByKey.get(section.getSectionKey());
+            }
+            if (copyId == null) {
+                throw new IllegalArgumentException("章节 " + section.getId() + " 在模板版本 " + id + " 中不存在");
+            }
+            return copyId;
+        }
+    }
+
+    /**
+     * 取得修改所在的版本。请求中的版本可能已不是最新（页面未刷新、从固定在旧版本上的报告发起修改），一律在最新版本上修改：
+     * 最新版本没有报告固定（随修改迁移的报告除外）时直接修改该版本，连续的修改合并在同一个版本中；
+     * 已有报告固定时复制出新版本，这些报告仍按原来的章节和样式导出。
+     * 传入的草稿报告随后固定到修改所在的版本
+     */
+    private TemplateVersion editableVersion(Long templateId, Long reportId) {
+        ReportTemplate latest = lockLatestVersion(templateId);
+        Long familyId = familyId(latest);
+        ReportInstance report = reportId != null ? requireDraftReport(reportId, familyId) : null;
+
+        TemplateVersion version;
+        if (hasPinnedReports(latest.getId(), reportId)) {
+            version = newVersion(latest);
+        } else {
+            version = new TemplateVersion(latest.getId(), familyId, Map.of(), sectionMapper.selectList(
+                    new LambdaQueryWrapper<TemplateSection>().eq(TemplateSection::getTemplateId, latest.getId())));
+            metadataCache.invalidate(latest.getId());
+        }
+
+        if (report != null && !version.getId().equals(report.getTemplateId())) {
+            ReportInstance pinned = new ReportInstance();
+            pinned.setId(report.getId());
+            pinned.setTemplateId(version.getId());
+            reportMapper.updateById(pinned);
+            log.info("报告 {} 随模板修改固定到版本 {}", reportId, version.getId());
+        }
+        return version;
+    }
+
+    private boolean hasPinnedReports(Long versionId, Long exceptReportId) {
+        return reportMapper.selectCount(new LambdaQueryWrapper<ReportInstance>()
+                .eq(ReportInstance::getTemplateId, versionId)
+                .ne(exceptReportId != null, ReportInstance::getId, exceptReportId)) > 0;
+    }
+
+    /**
+     * 复制出模板的新版本：模板行、全部章节（含已停用的，sectionKey 不变）和样式一并复制，旧版本停用
+     */
+    private TemplateVersion newVersion(ReportTemplate current) {
+        Long familyId = familyId(current);
+        ReportTemplate next = new ReportTemplate();
+        next.setName(current.getName());
+        next.setDescription(current.getDescription());
+        next.setBaseDocxUrl(current.getBaseDocxUrl());
+        next.setFamilyId(familyId);
+        next.setVersionNo(versionNo(current) + 1);
+        next.setIsActive(true);
+        save(next);
+
+        ReportTemplate retired = new ReportTemplate();
+        retired.setId(current.getId());
+        retired.setFamilyId(familyId);
+        retired.setIsActive(false);
+        updateById(retired);
+        metadataCache.invalidate(List.of(current.getId(), next.getId()));
+
+        // 章节按层级复制，父章节先插入才能得到子章节的 parentId
+        List<TemplateSection> sections = sectionMapper.selectList(
+                new LambdaQueryWrapper<TemplateSection>().eq(TemplateSection::getTemplateId, current.getId()));
+        Map<Long, Long> sectionIds = new HashMap<>();
+        List<TemplateSection> copied = new ArrayList<>(sections.size());
+        for (List<TemplateSection> level : depthLevels(sections)) {
+            List<TemplateSection> copies = new ArrayList<>(level.size());
+            for (TemplateSection section : level) {
+                TemplateSection copy = new TemplateSection();
+                BeanUtils.copyProperties(section, copy);
+                copy.setId(null);
+                copy.setTemplateId(next.getId());
+                copy.setParentId(section.getParentId() != null ? sectionIds.get(section.getParentId()) : null);
+                copies.add(copy);
+            }
+            Db.saveBatch(copies);
+            for (int i = 0; i < level.size(); i++) {
+                sectionIds.put(level.get(i).getId(), copies.get(i).getId());
+            }
+            copied.addAll(copies);
+        }
+
+        List<TemplateStyle> styles = new ArrayList<>();
+        for (TemplateStyle style : styleMapper.selectByTemplateId(current.getId())) {
+            TemplateStyle copy = new TemplateStyle();
+            BeanUtils.copyProperties(style, copy);
+            copy.setId(null);
+            copy.setTemplateId(next.getId());
+            copy.setCreatedAt(null);
+            copy.setUpdatedAt(null);
+            styles.add(copy);
+        }
+        if (!styles.isEmpty()) {
+            Db.saveBatch(styles);
+        }
+
+        log.info("模板 {} 生成新版本 {}（v{}），复制 {} 个章节、{} 个样式", current.getId(), next.getId(),
+                next.getVersionNo(), sectionIds.size(), styles.size());
+        return new TemplateVersion(next.getId(), familyId, sectionIds, copied);
+    }
+
+    /**
+     * 请求中的章节（父章节）在修改所在版本中的 ID，章节须属于同一模板
+     */
+    private Long sectionIdIn(TemplateVersion version, Long sectionId) {
+        if (sectionId == null) {
+            return null;
+        }
+        TemplateSection section = requireSection(sectionId);
+        if (!version.getId().equals(section.getTemplateId())
+                && !version.getFamilyId().equals(familyId(requireTemplate(section.getTemplateId())))) {
+            throw new IllegalArgumentException("章节 " + sectionId + " 不属于该模板");
+        }
+        return version.sectionId(section);
+    }
+
+    /**
+     * 随模板修改迁移的报告：须为该模板的草稿报告
+     */
+    private ReportInstance requireDraftReport(Long reportId, Long familyId) {
+        ReportInstance report = reportMapper.selectById(reportId);
+        if (report == null) {
+            throw new IllegalArgumentException("报告不存在: " + reportId);
+        }
+        if ("FINALIZED".equals(report.getStatus())) {
+            throw new IllegalStateException("报告 " + reportId + " 已归档，不能随模板修改");
+        }
+        if (!familyId.equals(familyId(requireTemplate(report.getTemplateId())))) {
+            throw new IllegalArgumentException("报告 " + reportId + " 不是按该模板创建的");
+        }
+        return report;
+    }
+
+    /**
+     * 按层级分组章节（顶级在前）；父章节不在列表中的视为顶级
+     */
+    static List<List<TemplateSection>> depthLevels(List<TemplateSection> sections) {
+        Map<Long, TemplateSection> byId = new HashMap<>();
+        for (TemplateSection section : sections) {
+            byId.put(section.getId(), section);
+        }
+
+        List<List<TemplateSection>> levels = new ArrayList<>();
+        for (TemplateSection section : sections) {
+            int depth = 0;
+            Set<Long> seen = new HashSet<>();
+            TemplateSection parent = byId.get(section.getParentId());
+            while (parent != null && seen.add(parent.getId())) {
+                depth++;
+                parent = byId.get(parent.getParentId());
+            }
+            while (levels.size() <= depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(section);
+        }
+        return levels;
+    }
+
+    private ReportTemplate latestVersion(Long familyId) {
+        return getOne(familyQuery(familyId)
+                .orderByDesc(ReportTemplate::getVersionNo)
+                .orderByDesc(ReportTemplate::getId)
+                .last("LIMIT 1"));
+    }
+
+    private static LambdaQueryWrapper<ReportTemplate> familyQuery(Long familyId) {
+        return new LambdaQueryWrapper<ReportTemplate>()
+                .and(w -> w.eq(ReportTemplate::getFamilyId, familyId).or().eq(ReportTemplate::getId, familyId));
+    }
+
+    /**
+     * 模板族 ID；迁移前创建、还没有 familyId 的模板自成一族
+     */
+    private static Long familyId(ReportTemplate template) {
+        return template.getFamilyId() != null ? template.getFamilyId() : template.getId();
+    }
+
+    private static int versionNo(ReportTemplate template) {
+        return template.getVersionNo() != null ? template.getVersionNo() : 1;
+    }
+
+    /**
+     * 锁住模板族后查询最新版本，不经过缓存；锁持有到事务结束，同一模板的修改依次进行。
+     * 调用方的事务须为 READ_COMMITTED，加锁后才能读到其他事务刚提交的版本
+     */
+    private ReportTemplate lockLatestVersion(Long templateId) {
+        Long familyId = familyId(requireTemplate(templateId));
+        baseMapper.lockFamily(familyId);
+        return latestVersion(familyId);
+    }
+
+    /**
+     * 查询模板用于修改，不经过缓存
+     */
+    private ReportTemplate requireTemplate(Long templateId) {
+        ReportTemplate template = baseMapper.selectById(templateId);
+        if (template == null) {
+            throw new IllegalArgumentException("模板不存在: " + templateId);
+        }
+        return template;
+    }
+
+    private TemplateSection requireSection(Long sectionId) {
+        TemplateSection section = sectionMapper.selectById(sectionId);
+        if (section == null) {
+            throw new IllegalArgumentException("章节不存在: " + sectionId);
+        }
+        return section;
     }
 
     @Override
-    @org.springframework.transaction.annotation.Transactional(rollbackFor = Exception.class)
+    @Transactional(rollbackFor = Exception.class)
     public ReportTemplate createTemplateWithSections(ReportTemplate template,
             List<com.report.utils.WordUtil.SectionNode> sectionNodes) {
-        // 1. Save template
+        // 1. Save template（新模板族的第一个版本）
         template.setIsActive(true);
+        template.setVersionNo(1);
         save(template);
+        template.setFamilyId(template.getId());
+        updateById(template);
+        metadataCache.invalidate(template.getId());
 
         // 2. Save sections recursively
+        List<TemplateSection> savedSections = new java.util.ArrayList<>();
         if (sectionNodes != null && !sectionNodes.isEmpty()) {
             java.util.Set<String> usedKeys = new java.util.HashSet<>();
-            saveSectionsRecursive(template.getId(), null, sectionNodes, usedKeys);
+            saveSectionsRecursive(template.getId(), null, sectionNodes, usedKeys, savedSections);
         }
 
-        // 3. 自动提取并保存样式（从上传的 Word 文件）
-        if (template.getBaseDocxUrl() != null && !template.getBaseDocxUrl().isEmpty()) {
-            extractAndSaveStylesFromPath(template.getId(), template.getBaseDocxUrl());
+        // 3. 在 Word 文件的标题处打上章节书签，导出时按书签直接定位
+        // 上传的文件按内容寻址、可能被多个模板共用，打书签后的文件另存，模板改为引用新文件
+        String uploadedFileName = template.getBaseDocxUrl();
+        if (uploadedFileName != null && !uploadedFileName.isEmpty() && !savedSections.isEmpty()) {
+            String stampedFileName = stampSectionAnchors(uploadedFileName, savedSections);
+            if (stampedFileName != null && !stampedFileName.equals(uploadedFileName)) {
+                template.setBaseDocxUrl(stampedFileName);
+                updateById(template);
+            }
+        }
+
+        // 4. 自动提取并保存样式（优先使用上传解析时提取的样式，否则从 Word 文件提取）
+        if (uploadedFileName != null && !uploadedFileName.isEmpty()) {
+            List<TemplateStyle> ingested = templateIngestionService.cachedStyles(uploadedFileName,
+                    template.getId());
+            if (ingested != null) {
+                syncStyles(template.getId(), ingested);
+                log.info("为模板 {} 保存了上传时提取的 {} 个样式配置", template.getId(), ingested.size());
+            } else {
+                extractAndSaveStylesFromPath(template.getId(), template.getBaseDocxUrl());
+            }
         } else {
             // 没有关联 Word 文件，仍然保存默认样式
             saveDefaultStyles(template.getId());
@@ -184,8 +597,151 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
         return template;
     }
 
+    @Override
+    public TemplateIngestion parseTemplate(MultipartFile file) throws IOException {
+        return templateIngestionService.ingest(file);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public TemplateSyncResult resyncTemplate(Long templateId, MultipartFile file) throws IOException {
+        ReportTemplate template = lockLatestVersion(templateId);
+
+        // 1. 重新提取章节结构和样式：上传了新文件时使用新文件，否则使用模板当前的文件
+        String fileName;
+        List<com.report.utils.WordUtil.SectionNode> nodes;
+        List<TemplateStyle> styles = null;
+        if (file != null && !file.isEmpty()) {
+            TemplateIngestion ingestion = templateIngestionService.ingest(file);
+            fileName = ingestion.getFileName();
+            nodes = ingestion.getSections();
+            styles = templateIngestionService.cachedStyles(fileName, template.getId());
+        } else {
+            fileName = template.getBaseDocxUrl();
+            if (fileName == null || fileName.isEmpty()) {
+                throw new IllegalArgumentException("模板没有关联 Word 文件");
+            }
+            nodes = com.report.utils.WordUtil.parseStructure(templateStorage.resolve(fileName));
+        }
+        if (styles == null) {
+            try (InputStream is = Files.newInputStream(templateStorage.resolve(fileName))) {
+                styles = StyleExtractor.extractStyles(is, template.getId(), styleSampleSize);
+            }
+        }
+
+        // 2. 与最新版本已保存的行比较，没有变化时不修改
+        TemplateSyncPlan plan = planSync(template.getId(), styles, nodes);
+        boolean fileChanged = !fileName.equals(template.getBaseDocxUrl());
+        if (!fileChanged && !plan.stylesChanged() && !plan.sectionsChanged()) {
+            log.info("模板 {} 重新同步: 没有变化", template.getId());
+            return syncResult(template, plan);
+        }
+
+        // 3. 取得修改所在的版本（已有报告固定时复制出新版本），与该版本的行比较后只写入变化
+        TemplateVersion version = editableVersion(template.getId(), null);
+        plan = planSync(version.getId(), styles, nodes);
+        applyStyles(plan);
+        applySections(plan);
+
+        // 4. 重新打章节书签
+        ReportTemplate next = baseMapper.selectById(version.getId());
+        String stampedFileName = plan.sections.isEmpty() ? null : stampSectionAnchors(fileName, plan.sections);
+        String baseDocxUrl = stampedFileName != null ? stampedFileName : fileName;
+        if (!baseDocxUrl.equals(next.getBaseDocxUrl())) {
+            next.setBaseDocxUrl(baseDocxUrl);
+            updateById(next);
+        }
+
+        TemplateSyncResult result = syncResult(next, plan);
+        log.info("模板 {} 重新同步到版本 {}: {}", template.getId(), next.getId(), result);
+        return result;
+    }
+
+    private TemplateSyncPlan planSync(Long templateId, List<TemplateStyle> styles,
+            List<com.report.utils.WordUtil.SectionNode> nodes) {
+        List<TemplateSection> storedSections = sectionMapper.selectList(
+                new LambdaQueryWrapper<TemplateSection>().eq(TemplateSection::getTemplateId, templateId));
+        return TemplateSyncPlan.of(templateId, styleMapper.selectByTemplateId(templateId), styles,
+                storedSections, nodes, TemplateServiceImpl::generateSemanticKey);
+    }
+
+    private static TemplateSyncResult syncResult(ReportTemplate template, TemplateSyncPlan plan) {
+        TemplateSyncResult result = new TemplateSyncResult();
+        result.setTemplateId(template.getId());
+        result.setVersionNo(versionNo(template));
+        result.setBaseDocxUrl(template.getBaseDocxUrl());
+        result.setStylesInserted(plan.styleInserts.size());
+        result.setStylesUpdated(plan.styleReplacements.size());
+        result.setStylesDeleted(plan.styleDeletes.size() - plan.styleReplacements.size());
+        result.setStylesUnchanged(plan.stylesUnchanged);
+        result.setSectionsInserted(plan.sectionInsertCount());
+        result.setSectionsUpdated(plan.sectionUpdates.size());
+        result.setSectionsDeactivated(plan.sectionDeactivations.size());
+        result.setSectionsUnchanged(plan.sectionsUnchanged);
+        return result;
+    }
+
+    /**
+     * 写入章节变化：新增章节按层级批量插入（插入后才能得到子章节的 parentId），
+     * 修改和停用的章节一次批量更新
+     */
+    private void applySections(TemplateSyncPlan plan) {
+        for (List<TemplateSection> level : plan.sectionInserts) {
+            if (level.isEmpty()) {
+                continue;
+            }
+            resolvePendingParents(plan, level);
+            Db.saveBatch(level);
+        }
+
+        resolvePendingParents(plan, plan.sectionUpdates);
+        List<TemplateSection> updates = new ArrayList<>(plan.sectionUpdates);
+        updates.addAll(plan.sectionDeactivations);
+        if (!updates.isEmpty()) {
+            Db.updateBatchById(updates);
+        }
+        // updateById 不写空值，移到顶级的章节单独置空 parent_id
+        for (Long sectionId : plan.sectionsMovedToRoot) {
+            sectionMapper.update(null, new LambdaUpdateWrapper<TemplateSection>()
+                    .set(TemplateSection::getParentId, null)
+                    .eq(TemplateSection::getId, sectionId));
+        }
+    }
+
+    private static void resolvePendingParents(TemplateSyncPlan plan, List<TemplateSection> sections) {
+        for (TemplateSection section : sections) {
+            TemplateSection parent = plan.pendingParents.get(section);
+            if (parent != null) {
+                section.setParentId(parent.getId());
+            }
+        }
+    }
+
+    /**
+     * 在模板文件的标题段落上打章节书签，结果另存到模板存储中（失败不影响模板创建，导出时回退到标题匹配）
+     *
+     * @return 打书签后的文件名，失败时返回 null
+     */
+    private String stampSectionAnchors(String templateFileName, List<TemplateSection> sections) {
+        Path filePath = templateStorage.resolve(templateFileName);
+        if (!Files.exists(filePath)) {
+            log.warn("模板文件不存在，跳过章节书签: {}", filePath);
+            return null;
+        }
+
+        try (InputStream is = Files.newInputStream(filePath);
+                XWPFDocument doc = new XWPFDocument(is)) {
+            SectionAnchors.stamp(doc, sections);
+            return templateStorage.store(doc::write).getFileName();
+        } catch (Exception e) {
+            log.warn("为模板打章节书签失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private void saveSectionsRecursive(Long templateId, Long parentId,
-            List<com.report.utils.WordUtil.SectionNode> nodes, java.util.Set<String> usedKeys) {
+            List<com.report.utils.WordUtil.SectionNode> nodes, java.util.Set<String> usedKeys,
+            List<TemplateSection> savedSections) {
         if (nodes == null || nodes.isEmpty()) {
             return;
         }
@@ -213,15 +769,16 @@ public class TemplateServiceImpl extends ServiceImpl<ReportTemplateMapper, Repor
             section.setIsActive(true);
 
             sectionMapper.insert(section);
+            savedSections.add(section);
 
             // Recurse for children
             if (node.getChildren() != null && !node.getChildren().isEmpty()) {
-                saveSectionsRecursive(templateId, section.getId(), node.getChildren(), usedKeys);
+                saveSectionsRecursive(templateId, section.getId(), node.getChildren(), usedKeys, savedSections);
             }
         }
     }
 
-    private String generateSemanticKey(String title) {
+    static String generateSemanticKey(String title) {
         if (title == null)
             return "section";
         // Convert to Pinyin? Too complex without library.
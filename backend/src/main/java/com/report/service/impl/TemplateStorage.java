@@ -0,0 +1,127 @@
+package com.report.service.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 按内容寻址的模板文件存储
+ * 文件写入时同时计算 SHA-256，保存为 templates/{前两位}/{sha256}.docx；
+ * 内容相同的文件只保存一份，已保存的文件不再修改（需要修改时写入新内容得到新文件名）
+ */
+@Slf4j
+@Service
+public class TemplateStorage {
+
+    private static final String EXTENSION = ".docx";
+
+    /**
+     * 写出文件内容
+     */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 已保存的文件
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StoredFile {
+
+        /**
+         * 相对 templates 目录的文件名，即模板的 baseDocxUrl
+         */
+        private final String fileName;
+
+        /**
+         * 文件内容的 SHA-256（十六进制）
+         */
+        private final String fingerprint;
+
+        /**
+         * 相同内容的文件此前已保存过
+         */
+        private final boolean existing;
+    }
+
+    private final Path root;
+
+    public TemplateStorage(@Value("${file.upload-dir:./uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir, "templates");
+    }
+
+    /**
+     * 将输入流保存到存储中（边写入临时文件边计算摘要）
+     */
+    public StoredFile store(InputStream in) throws IOException {
+        return store(in::transferTo);
+    }
+
+    /**
+     * 将写出的内容保存到存储中
+     */
+    public StoredFile store(Content content) throws IOException {
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload_", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                content.writeTo(out);
+            }
+            String fingerprint = HexFormat.of().formatHex(digest.digest());
+            String fileName = fileName(fingerprint);
+            Path target = root.resolve(fileName);
+
+            if (Files.exists(target)) {
+                log.debug("模板内容已存在: {}", fileName);
+                return new StoredFile(fileName, fingerprint, true);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("保存模板文件: {}，{} 字节", fileName, Files.size(target));
+            return new StoredFile(fileName, fingerprint, false);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 文件名对应的路径（兼容按内容寻址之前保存的文件名）
+     */
+    public Path resolve(String fileName) {
+        return root.resolve(fileName);
+    }
+
+    private static String fileName(String fingerprint) {
+        return fingerprint.substring(0, 2) + "/" + fingerprint + EXTENSION;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.report.service.impl;
+
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.utils.WordUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 模板重新提取后的样式 / 章节差异
+ * 将新提取的样式和章节结构与已保存的 template_style、template_section 行比较，只列出需要写入的行：
+ * 章节先按同一父章节下的标题匹配，再按同一位置改名匹配，最后按标题跨父章节匹配（章节移动），
+ * 匹配到的章节沿用原有 section_key，报告内容和缓存不受影响
+ */
+final class TemplateSyncPlan {
+
+    /**
+     * 新增的样式
+     */
+    final List<TemplateStyle> styleInserts = new ArrayList<>();
+
+    /**
+     * 有变化的样式（整行替换，已提取为空的属性也要清空）
+     */
+    final List<TemplateStyle> styleReplacements = new ArrayList<>();
+
+    /**
+     * 不再需要的样式 ID
+     */
+    final List<Long> styleDeletes = new ArrayList<>();
+
+    int stylesUnchanged;
+
+    /**
+     * 新增的章节，按层级分组（下标为层级减一，可能有空组），父章节所在的组在前
+     */
+    final List<List<TemplateSection>> sectionInserts = new ArrayList<>();
+
+    /**
+     * 标题、父章节、顺序有变化或需要重新启用的章节
+     */
+    final List<TemplateSection> sectionUpdates = new ArrayList<>();
+
+    /**
+     * 模板中已不存在、需要停用的章节
+     */
+    final List<TemplateSection> sectionDeactivations = new ArrayList<>();
+
+    /**
+     * 移到顶级的章节 ID（parent_id 需要显式置空）
+     */
+    final List<Long> sectionsMovedToRoot = new ArrayList<>();
+
+    int sectionsUnchanged;
+
+    /**
+     * 父章节也是新增章节时，插入后才能得到 parentId
+     */
+    final Map<TemplateSection, TemplateSection> pendingParents = new IdentityHashMap<>();
+
+    /**
+     * 同步后的全部章节，按文档顺序（深度优先）
+     */
+    final List<TemplateSection> sections = new ArrayList<>();
+
+    private TemplateSyncPlan() {
+    }
+
+    boolean stylesChanged() {
+        return !styleInserts.isEmpty() || !styleReplacements.isEmpty() || !styleDeletes.isEmpty();
+    }
+
+    boolean sectionsChanged() {
+        return !sectionInserts.isEmpty() || !sectionUpdates.isEmpty() || !sectionDeactivations.isEmpty();
+    }
+
+    int sectionInsertCount() {
+        return sectionInserts.stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * 比较样式：按样式类型对应，属性全部相同的行不写入
+     */
+    static TemplateSyncPlan styles(Long templateId, List<TemplateStyle> stored, List<TemplateStyle> extracted) {
+        TemplateSyncPlan plan = new TemplateSyncPlan();
+        plan.diffStyles(templateId, stored, extracted);
+        return plan;
+    }
+
+    /**
+     * 比较样式和章节结构
+     */
+    static TemplateSyncPlan of(Long templateId, List<TemplateStyle> storedStyles, List<TemplateStyle> extractedStyles,
+            List<TemplateSection> storedSections, List<WordUtil.SectionNode> nodes,
+            Function<String, String> keyGenerator) {
+        TemplateSyncPlan plan = new TemplateSyncPlan();
+        plan.diffStyles(templateId, storedStyles, extractedStyles);
+        plan.diffSections(templateId, storedSections, nodes, keyGenerator);
+        return plan;
+    }
+
+    // ---- 样式 ----
+
+    private void diffStyles(Long templateId, List<TemplateStyle> stored, List<TemplateStyle> extracted) {
+        Map<String, TemplateStyle> storedByType = new HashMap<>();
+        for (TemplateStyle style : stored) {
+            if (storedByType.putIfAbsent(style.getStyleType(), style) != null) {
+                // 重复的样式类型只保留第一行
+                styleDeletes.add(style.getId());
+            }
+        }
+
+        for (TemplateStyle style : extracted) {
+            style.setTemplateId(templateId);
+            TemplateStyle existing = storedByType.remove(style.getStyleType());
+            if (existing == null) {
+                style.setId(null);
+                styleInserts.add(style);
+            } else if (sameStyle(existing, style)) {
+                style.setId(existing.getId());
+                stylesUnchanged++;
+            } else {
+                style.setId(null);
+                styleDeletes.add(existing.getId());
+                styleReplacements.add(style);
+            }
+        }
+        for (TemplateStyle style : storedByType.values()) {
+            styleDeletes.add(style.getId());
+        }
+    }
+
+    static boolean sameStyle(TemplateStyle a, TemplateStyle b) {
+        return Objects.equals(a.getFontFamily(), b.getFontFamily())
+                && Objects.equals(a.getFontSize(), b.getFontSize())
+                && Objects.equals(a.getBold(), b.getBold())
+                && Objects.equals(a.getItalic(), b.getItalic())
+                && Objects.equals(a.getFontColor(), b.getFontColor())
+                && Objects.equals(a.getLineSpacing(), b.getLineSpacing())
+                && Objects.equals(a.getSpacingBefore(), b.getSpacingBefore())
+                && Objects.equals(a.getSpacingAfter(), b.getSpacingAfter())
+                && Objects.equals(a.getAlignment(), b.getAlignment())
+                && Objects.equals(a.getFirstLineIndent(), b.getFirstLineIndent())
+                && Objects.equals(a.getWordStyleId(), b.getWordStyleId());
+    }
+
+    // ---- 章节 ----
+
+    /**
+     * 一个新章节节点及其匹配结果
+     */
+    private static final class Slot {
+        private final WordUtil.SectionNode node;
+        private final Slot parent;
+        private final int sortOrder;
+        private final int depth;
+        private TemplateSection row;
+
+        Slot(WordUtil.SectionNode node, Slot parent, int sortOrder, int depth) {
+            this.node = node;
+            this.parent = parent;
+            this.sortOrder = sortOrder;
+            this.depth = depth;
+        }
+
+        String title() {
+            return normalize(node.getTitle());
+        }
+    }
+
+    private void diffSections(Long templateId, List<TemplateSection> stored, List<WordUtil.SectionNode> nodes,
+            Function<String, String> keyGenerator) {
+        // 启用中的章节优先匹配，其次按原顺序
+        List<TemplateSection> candidates = new ArrayList<>(stored);
+        candidates.sort(Comparator
+                .comparing((TemplateSection s) -> !Boolean.TRUE.equals(s.getIsActive()))
+                .thenComparing(s -> s.getSortOrder() != null ? s.getSortOrder() : 0)
+                .thenComparing(s -> s.getId() != null ? s.getId() : 0L));
+        List<TemplateSection> unmatched = new ArrayList<>(candidates);
+
+        List<Slot> slots = new ArrayList<>();
+        Set<String> newTitles = new HashSet<>();
+        flatten(nodes, null, 1, slots, newTitles);
+
+        // 1. 同一父章节下按标题、按位置（改名）匹配，父章节先于子章节处理
+        Map<Slot, List<Slot>> siblings = new LinkedHashMap<>();
+        for (Slot slot : slots) {
+            siblings.computeIfAbsent(slot.parent, p -> new ArrayList<>()).add(slot);
+        }
+        for (Slot slot : slots) {
+            List<Slot> group = siblings.remove(slot.parent);
+            if (group != null) {
+                matchSiblings(group, unmatched, newTitles);
+            }
+        }
+        // 2. 仍未匹配的按标题跨父章节匹配（章节被移动）
+        for (Slot slot : slots) {
+            if (slot.row == null) {
+                slot.row = take(unmatched, s -> slot.title().equals(normalize(s.getTitle())));
+            }
+        }
+
+        // 3. 生成写入的行
+        Set<String> usedKeys = new HashSet<>();
+        for (TemplateSection section : stored) {
+            usedKeys.add(section.getSectionKey());
+        }
+        for (Slot slot : slots) {
+            if (slot.row == null) {
+                addInsert(templateId, slot, usedKeys, keyGenerator);
+            } else {
+                addUpdate(slot);
+            }
+            sections.add(slot.row);
+        }
+        for (TemplateSection section : unmatched) {
+            if (Boolean.TRUE.equals(section.getIsActive())) {
+                TemplateSection deactivated = new TemplateSection();
+                deactivated.setId(section.getId());
+                deactivated.setIsActive(false);
+                sectionDeactivations.add(deactivated);
+            }
+        }
+    }
+
+    private static void flatten(List<WordUtil.SectionNode> nodes, Slot parent, int depth, List<Slot> slots,
+            Set<String> titles) {
+        if (nodes == null) {
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Slot slot = new Slot(nodes.get(i), parent, i + 1, depth);
+            slots.add(slot);
+            titles.add(slot.title());
+            flatten(slot.node.getChildren(), slot, depth + 1, slots, titles);
+        }
+    }
+
+    private static void matchSiblings(List<Slot> group, List<TemplateSection> unmatched, Set<String> newTitles) {
+        Slot parent = group.get(0).parent;
+        if (parent != null && (parent.row == null || parent.row.getId() == null)) {
+            // 父章节是新增的，原来不可能有同父章节的行
+            return;
+        }
+        Long parentId = parent != null ? parent.row.getId() : null;
+
+        for (Slot slot : group) {
+            slot.row = take(unmatched, s -> Objects.equals(parentId, s.getParentId())
+                    && slot.title().equals(normalize(s.getTitle())));
+        }
+        // 同一位置上的旧章节标题在新结构中已不存在，视为改名
+        for (Slot slot : group) {
+            if (slot.row == null) {
+                slot.row = take(unmatched, s -> Objects.equals(parentId, s.getParentId())
+                        && Boolean.TRUE.equals(s.getIsActive())
+                        && Objects.equals(slot.sortOrder, s.getSortOrder())
+                        && !newTitles.contains(normalize(s.getTitle())));
+            }
+        }
+    }
+
+    private static TemplateSection take(List<TemplateSection> unmatched,
+            Predicate<TemplateSection> predicate) {
+        Iterator<TemplateSection> it = unmatched.iterator();
+        while (it.hasNext()) {
+            TemplateSection section = it.next();
+            if (predicate.test(section)) {
+                it.remove();
+                return section;
+            }
+        }
+        return null;
+    }
+
+    private void addInsert(Long templateId, Slot slot, Set<String> usedKeys, Function<String, String> keyGenerator) {
+        TemplateSection section = new TemplateSection();
+        section.setTemplateId(templateId);
+        section.setTitle(slot.node.getTitle());
+
+        String baseKey = keyGenerator.apply(slot.node.getTitle());
+        String uniqueKey = baseKey;
+        int counter = 1;
+        while (usedKeys.contains(uniqueKey)) {
+            uniqueKey = baseKey + "_" + counter++;
+        }
+        usedKeys.add(uniqueKey);
+
+        section.setSectionKey(uniqueKey);
+        section.setSectionType("RICH_TEXT");
+        section.setSortOrder(slot.sortOrder);
+        section.setIsActive(true);
+        setParent(section, slot);
+
+        while (sectionInserts.size() < slot.depth) {
+            sectionInserts.add(new ArrayList<>());
+        }
+        sectionInserts.get(slot.depth - 1).add(section);
+        slot.row = section;
+    }
+
+    private void addUpdate(Slot slot) {
+        TemplateSection row = slot.row;
+        Long parentId = slot.parent != null ? slot.parent.row.getId() : null;
+        boolean parentPending = slot.parent != null && parentId == null;
+
+        boolean changed = !Objects.equals(row.getTitle(), slot.node.getTitle())
+                || !Objects.equals(row.getSortOrder(), slot.sortOrder)
+                || !Boolean.TRUE.equals(row.getIsActive())
+                || parentPending
+                || !Objects.equals(row.getParentId(), parentId);
+        if (!changed) {
+            sectionsUnchanged++;
+            return;
+        }
+
+        if (slot.parent == null && row.getParentId() != null) {
+            sectionsMovedToRoot.add(row.getId());
+        }
+        row.setTitle(slot.node.getTitle());
+        row.setSortOrder(slot.sortOrder);
+        row.setIsActive(true);
+        setParent(row, slot);
+        sectionUpdates.add(row);
+    }
+
+    private void setParent(TemplateSection section, Slot slot) {
+        if (slot.parent == null) {
+            section.setParentId(null);
+        } else if (slot.parent.row.getId() != null) {
+            section.setParentId(slot.parent.row.getId());
+        } else {
+            section.setParentId(null);
+            pendingParents.put(section, slot.parent.row);
+        }
+    }
+
+    private static String normalize(String title) {
+        return title != null ? title.trim() : "";
+    }
+}
@@ -1,8 +1,12 @@
 package com.report.service.impl;
 
+import com.report.cache.TemplatePartsCache;
 import com.report.dto.SectionData;
 import com.report.entity.TemplateStyle;
+import com.report.utils.HtmlDocxWriter;
 import com.report.utils.StyleManager;
+import com.report.utils.StylePrototype;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xwpf.usermodel.*;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSpacing;
@@ -10,7 +14,6 @@ import org.openxmlformats.schemas.wordprocessingml.x2006.main.STLineSpacingRule;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.file.Files;
@@ -24,8 +27,11 @@ import java.util.Map;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class WordExportService {
 
+    private final TemplatePartsCache templatePartsCache;
+
     /**
      * 导出报告到 Word 文档
      *
@@ -43,23 +49,25 @@ public class WordExportService {
             List<SectionData> sections,
             Map<String, TemplateStyle> styleMap) throws IOException {
 
-        try (XWPFDocument document = createDocument(templatePath)) {
-            // 1. 添加报告标题
-            addReportTitle(document, reportName);
+        try (XWPFDocument document = ExportPhases.time("template-open", () -> createDocument(templatePath))) {
+            ExportPhases.time("content-insert", () -> {
+                // 1. 添加报告标题
+                addReportTitle(document, reportName);
 
-            // 2. 添加日期范围
-            if (dateRange != null && !dateRange.trim().isEmpty()) {
-                addDateRange(document, dateRange);
-            }
+                // 2. 添加日期范围
+                if (dateRange != null && !dateRange.trim().isEmpty()) {
+                    addDateRange(document, dateRange);
+                }
 
-            // 3. 添加分隔线
-            addSeparator(document);
+                // 3. 添加分隔线
+                addSeparator(document);
 
-            // 4. 递归添加章节内容
-            addSections(document, sections, styleMap);
+                // 4. 递归添加章节内容
+                addSections(document, new HtmlDocxWriter(document), sections, styleMap, bodyFormat(styleMap));
+            });
 
             // 5. 写入输出流
-            document.write(outputStream);
+            ExportPhases.time("write", () -> document.write(outputStream));
         }
     }
 
@@ -70,16 +78,10 @@ public class WordExportService {
         XWPFDocument document;
 
         if (templatePath != null && Files.exists(templatePath)) {
-            // 基于模板创建文档（会继承模板的样式定义）
-            try (InputStream is = Files.newInputStream(templatePath)) {
-                XWPFDocument templateDoc = new XWPFDocument(is);
+            // 基于模板创建文档：从缓存复制模板的样式、编号、主题和字体表部件
+            try {
                 document = new XWPFDocument();
-
-                // 复制样式从模板到新文档
-                StyleManager.copyStylesFromTemplate(document, templatePath);
-
-                // 关闭模板文档
-                templateDoc.close();
+                templatePartsCache.get(templatePath).applyTo(document);
             } catch (Exception e) {
                 log.warn("从模板创建文档失败，使用空白文档: {}", e.getMessage());
                 document = new XWPFDocument();
@@ -141,8 +143,10 @@ public class WordExportService {
      * 递归添加章节内容
      */
     private void addSections(XWPFDocument document,
+            HtmlDocxWriter writer,
             List<SectionData> sections,
-            Map<String, TemplateStyle> styleMap) {
+            Map<String, TemplateStyle> styleMap,
+            StylePrototype bodyFormat) {
         if (sections == null || sections.isEmpty()) {
             return;
         }
@@ -153,12 +157,12 @@ public class WordExportService {
 
             // 2. 添加内容
             if (section.getContent() != null && !section.getContent().trim().isEmpty()) {
-                addSectionContent(document, section.getContent(), styleMap);
+                addSectionContent(document, writer, section.getContent(), bodyFormat);
             }
 
             // 3. 递归处理子章节
             if (section.getChildren() != null && !section.getChildren().isEmpty()) {
-                addSections(document, section.getChildren(), styleMap);
+                addSections(document, writer, section.getChildren(), styleMap, bodyFormat);
             }
         }
     }
@@ -197,44 +201,44 @@ public class WordExportService {
     }
 
     /**
-     * 添加章节内容，使用正文样式
+     * 编译正文段落格式：正文样式 + 首行缩进，字符格式由正文样式决定
      */
-    private void addSectionContent(XWPFDocument document,
-            String content,
-            Map<String, TemplateStyle> styleMap) {
-        String plainText = stripHtml(content);
-        if (plainText.isEmpty()) {
-            return;
-        }
-
-        XWPFParagraph contentPara = document.createParagraph();
-
-        // 应用正文样式
+    private StylePrototype bodyFormat(Map<String, TemplateStyle> styleMap) {
         String bodyStyleId = StyleManager.getBodyStyleId(styleMap);
-        try {
-            contentPara.setStyle(bodyStyleId);
-        } catch (Exception e) {
-            log.debug("正文样式 {} 应用失败", bodyStyleId);
-        }
 
-        // 首行缩进
-        contentPara.setFirstLineIndent(480); // 约两个中文字符
+        return StylePrototype.compile(contentPara -> {
+            // 应用正文样式
+            try {
+                contentPara.setStyle(bodyStyleId);
+            } catch (Exception e) {
+                log.debug("正文样式 {} 应用失败", bodyStyleId);
+            }
+
+            // 首行缩进
+            contentPara.setFirstLineIndent(480); // 约两个中文字符
+        }, run -> { });
+    }
 
-        XWPFRun contentRun = contentPara.createRun();
+    /**
+     * 添加章节内容，使用正文样式
+     */
+    private void addSectionContent(XWPFDocument document,
+            HtmlDocxWriter writer,
+            String content,
+            StylePrototype bodyFormat) {
+        writer.write(content, new HtmlDocxWriter.Target() {
+            @Override
+            public XWPFParagraph newParagraph() {
+                XWPFParagraph contentPara = document.createParagraph();
+                bodyFormat.formatParagraph(contentPara);
+                return contentPara;
+            }
 
-        // 处理多行文本
-        String[] lines = plainText.split("\n");
-        boolean first = true;
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-            if (!trimmedLine.isEmpty()) {
-                if (!first) {
-                    contentRun.addBreak();
-                }
-                contentRun.setText(trimmedLine);
-                first = false;
+            @Override
+            public void formatRun(XWPFRun run) {
+                bodyFormat.formatRun(run);
             }
-        }
+        });
     }
 
     /**
@@ -298,30 +302,4 @@ public class WordExportService {
             // 忽略
         }
     }
-
-    /**
-     * 去除 HTML 标签，转换为纯文本
-     */
-    private String stripHtml(String html) {
-        if (html == null) {
-            return "";
-        }
-
-        // 转换换行标签
-        String text = html.replaceAll("(?i)<br\\s*/?>", "\n");
-        text = text.replaceAll("(?i)</p>", "\n");
-        text = text.replaceAll("(?i)<p[^>]*>", "");
-
-        // 移除其他 HTML 标签
-        text = text.replaceAll("<[^>]*>", "");
-
-        // 转换 HTML 实体
-        text = text.replace("&nbsp;", " ");
-        text = text.replace("&lt;", "<");
-        text = text.replace("&gt;", ">");
-        text = text.replace("&amp;", "&");
-        text = text.replace("&quot;", "\"");
-
-        return text.trim();
-    }
 }
@@ -0,0 +1,55 @@
+package com.report.utils;
+
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 已渲染的内容片段：一组不属于任何文档的段落
+ * 由 HtmlDocxWriter#renderFragment 生成，可在任意线程中渲染，
+ * 再通过 HtmlDocxWriter#insert 复制进目标文档。列表编号在插入时才分配，
+ * 因此同一个片段可以插入到多个文档中
+ */
+public final class DocxFragment {
+
+    public static final DocxFragment EMPTY = new DocxFragment(Collections.emptyList(), Collections.emptyList(), 0);
+
+    private final List<CTP> paragraphs;
+
+    /**
+     * 与 paragraphs 一一对应，非列表段落为 null
+     */
+    private final List<HtmlRuns.ListItem> listItems;
+
+    /**
+     * 估算的内存占用（字节），用于缓存权重
+     */
+    private final long weight;
+
+    DocxFragment(List<CTP> paragraphs, List<HtmlRuns.ListItem> listItems, long weight) {
+        this.paragraphs = paragraphs;
+        this.listItems = listItems;
+        this.weight = weight;
+    }
+
+    public int size() {
+        return paragraphs.size();
+    }
+
+    public boolean isEmpty() {
+        return paragraphs.isEmpty();
+    }
+
+    public long weight() {
+        return weight;
+    }
+
+    CTP paragraph(int index) {
+        return paragraphs.get(index);
+    }
+
+    HtmlRuns.ListItem listItem(int index) {
+        return listItems.get(index);
+    }
+}
@@ -0,0 +1,322 @@
+package com.report.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流式解析 docx 的章节标题结构
+ * 直接从压缩包中用 StAX 读取样式部件（样式 ID -> 名称）和主文档，主文档只顺序读一遍，
+ * 不构建 XWPFDocument。结果与原先基于 XWPFDocument 的解析一致：
+ * 只看正文中的顶层段落（不含表格、内容控件中的段落），段落文本规则同 XWPFParagraph#getText
+ * （w:t、制表符、换行，跳过域代码和修订删除的 run），标题级别先按样式 ID、再按样式名称识别
+ */
+public final class DocxHeadingParser {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+    private static final String DEFAULT_DOCUMENT_PART = "word/document.xml";
+
+    /**
+     * 匹配 "Heading 1"、"heading1"、"标题 1"、"title 1" 等样式 ID / 名称
+     */
+    private static final Pattern HEADING_PATTERN = Pattern.compile(".*(heading|title|标题)\\s*([1-6]).*");
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private DocxHeadingParser() {
+    }
+
+    /**
+     * 解析章节结构
+     *
+     * @return 顶级章节列表，子章节挂在 children 下
+     */
+    public static List<WordUtil.SectionNode> parse(ZipFile zip) throws IOException {
+        try {
+            String documentPart = findDocumentPart(zip);
+            ZipArchiveEntry document = zip.getEntry(documentPart);
+            if (document == null) {
+                throw new IOException("文档中缺少主文档部件: " + documentPart);
+            }
+            String dir = documentPart.contains("/")
+                    ? documentPart.substring(0, documentPart.lastIndexOf('/') + 1)
+                    : "";
+            Map<String, String> styleNames = readStyleNames(zip, zip.getEntry(dir + "styles.xml"));
+
+            try (InputStream is = zip.getInputStream(document)) {
+                return readHeadings(is, styleNames);
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("文档 XML 解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 顺序读取主文档，识别正文顶层段落中的标题并按级别建树
+     */
+    private static List<WordUtil.SectionNode> readHeadings(InputStream is, Map<String, String> styleNames)
+            throws XMLStreamException {
+        List<WordUtil.SectionNode> roots = new ArrayList<>();
+        Deque<WordUtil.SectionNode> stack = new ArrayDeque<>();
+        // 同一样式 ID 的级别只识别一次
+        Map<String, Integer> levels = new HashMap<>();
+
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+        try {
+            int depth = 0;
+            int bodyDepth = -1;
+            while (reader.hasNext()) {
+                int type = reader.next();
+                if (type == XMLStreamReader.START_ELEMENT) {
+                    depth++;
+                    if (!W_NS.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+                    if (bodyDepth < 0 && "body".equals(reader.getLocalName())) {
+                        bodyDepth = depth;
+                    } else if (bodyDepth > 0 && depth == bodyDepth + 1 && "p".equals(reader.getLocalName())) {
+                        // readParagraph 读到段落结束标签为止
+                        Paragraph p = readParagraph(reader);
+                        depth--;
+
+                        String text = p.text.toString().trim();
+                        if (text.isEmpty() || p.styleId == null) {
+                            continue;
+                        }
+                        int level = levels.computeIfAbsent(p.styleId,
+                                id -> headingLevel(id, styleNames.get(id)));
+                        if (level > 0) {
+                            addNode(roots, stack, new WordUtil.SectionNode(text, level));
+                        }
+                    }
+                } else if (type == XMLStreamReader.END_ELEMENT) {
+                    if (depth == bodyDepth) {
+                        bodyDepth = -1;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return roots;
+    }
+
+    private static void addNode(List<WordUtil.SectionNode> roots, Deque<WordUtil.SectionNode> stack,
+            WordUtil.SectionNode node) {
+        while (!stack.isEmpty() && stack.peek().getLevel() >= node.getLevel()) {
+            stack.pop();
+        }
+
+        if (stack.isEmpty()) {
+            roots.add(node);
+        } else {
+            stack.peek().getChildren().add(node);
+        }
+        stack.push(node);
+    }
+
+    private static final class Paragraph {
+        private String styleId;
+        private final StringBuilder text = new StringBuilder();
+    }
+
+    /**
+     * 读取一个段落（当前位于 w:p 开始标签），返回时位于其结束标签
+     * run 可能包在超链接、简单域、修订、智能标记或内容控件中，这些容器都向下查找；
+     * run 内只读取直接子元素，图形、文本框等内容不计入段落文本
+     */
+    private static Paragraph readParagraph(XMLStreamReader reader) throws XMLStreamException {
+        Paragraph p = new Paragraph();
+        int depth = 1;
+        while (depth > 0) {
+            int type = reader.next();
+            if (type == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            } else if (type == XMLStreamReader.START_ELEMENT) {
+                boolean w = W_NS.equals(reader.getNamespaceURI());
+                String local = reader.getLocalName();
+                if (w && "pPr".equals(local) && depth == 1) {
+                    p.styleId = readStyleId(reader);
+                } else if (w && "r".equals(local)) {
+                    readRun(reader, p.text);
+                } else {
+                    depth++;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 读取段落属性中的 w:pStyle，返回时位于 w:pPr 结束标签
+     */
+    private static String readStyleId(XMLStreamReader reader) throws XMLStreamException {
+        String styleId = null;
+        int depth = 1;
+        while (depth > 0) {
+            int type = reader.next();
+            if (type == XMLStreamReader.START_ELEMENT) {
+                if (depth == 1 && W_NS.equals(reader.getNamespaceURI()) && "pStyle".equals(reader.getLocalName())) {
+                    styleId = reader.getAttributeValue(W_NS, "val");
+                }
+                depth++;
+            } else if (type == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return styleId;
+    }
+
+    /**
+     * 读取一个 run 的文本并追加到段落文本；包含修订删除文本的 run 整体跳过
+     */
+    private static void readRun(XMLStreamReader reader, StringBuilder out) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        boolean deleted = false;
+        int depth = 1;
+        while (depth > 0) {
+            int type = reader.next();
+            if (type == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            } else if (type == XMLStreamReader.START_ELEMENT) {
+                if (depth == 1 && W_NS.equals(reader.getNamespaceURI())) {
+                    switch (reader.getLocalName()) {
+                        case "t":
+                            text.append(reader.getElementText());
+                            continue;
+                        case "delText":
+                            deleted = true;
+                            break;
+                        case "tab":
+                        case "ptab":
+                            text.append('\t');
+                            break;
+                        case "br":
+                        case "cr":
+                            text.append('\n');
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                depth++;
+            }
+        }
+        if (!deleted) {
+            out.append(text);
+        }
+    }
+
+    /**
+     * 读取样式部件中的样式 ID -> 样式名称
+     */
+    private static Map<String, String> readStyleNames(ZipFile zip, ZipArchiveEntry styles)
+            throws IOException, XMLStreamException {
+        Map<String, String> names = new HashMap<>();
+        if (styles == null) {
+            return names;
+        }
+        try (InputStream is = zip.getInputStream(styles)) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                String styleId = null;
+                while (reader.hasNext()) {
+                    int type = reader.next();
+                    if (type != XMLStreamReader.START_ELEMENT || !W_NS.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+                    if ("style".equals(reader.getLocalName())) {
+                        styleId = reader.getAttributeValue(W_NS, "styleId");
+                    } else if ("name".equals(reader.getLocalName()) && styleId != null) {
+                        names.putIfAbsent(styleId, reader.getAttributeValue(W_NS, "val"));
+                        styleId = null;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 从包关系中找到主文档部件名
+     */
+    private static String findDocumentPart(ZipFile zip) throws IOException, XMLStreamException {
+        ZipArchiveEntry rels = zip.getEntry("_rels/.rels");
+        if (rels == null) {
+            return DEFAULT_DOCUMENT_PART;
+        }
+        try (InputStream is = zip.getInputStream(rels)) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT
+                            && REL_NS.equals(reader.getNamespaceURI())
+                            && "Relationship".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "Type");
+                        String target = reader.getAttributeValue(null, "Target");
+                        if (type != null && type.endsWith(OFFICE_DOCUMENT_REL) && target != null) {
+                            return target.startsWith("/") ? target.substring(1) : target;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return DEFAULT_DOCUMENT_PART;
+    }
+
+    /**
+     * 标题级别：先按样式 ID，再按样式名称识别，不是标题时返回 0
+     */
+    private static int headingLevel(String styleId, String styleName) {
+        int level = matchLevel(styleId);
+        if (level > 0) {
+            return level;
+        }
+        return matchLevel(styleName);
+    }
+
+    static int matchLevel(String text) {
+        if (text == null) {
+            return 0;
+        }
+        String lower = text.trim().toLowerCase();
+
+        // 纯数字样式 ID（如中文 Word 的 "1"、"2"）
+        if (lower.length() == 1 && lower.charAt(0) >= '1' && lower.charAt(0) <= '6') {
+            return lower.charAt(0) - '0';
+        }
+
+        Matcher matcher = HEADING_PATTERN.matcher(lower);
+        if (matcher.matches()) {
+            return Integer.parseInt(matcher.group(2));
+        }
+        return 0;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
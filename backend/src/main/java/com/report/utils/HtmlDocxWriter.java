@@ -0,0 +1,352 @@
+package com.report.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFAbstractNum;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFNum;
+import org.apache.poi.xwpf.usermodel.XWPFNumbering;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.xmlbeans.impl.xb.xmlschema.SpaceAttribute;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTInd;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTLvl;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNumLvl;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTOnOff;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTText;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STJc;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STNumberFormat;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STUnderline;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 将 content_html 写入 XWPFDocument，保留段落、加粗/斜体/下划线和列表
+ * 直接根据 HtmlRuns 事件生成段落和文字片段，正文字符格式只通过 Target 设置一次，
+ * 之后的文字片段复制其 rPr。一个实例对应一个文档，列表编号定义在首次使用时创建。
+ * 也可以先用 renderFragment 脱离文档渲染片段（线程安全），再用 insert 复制进文档
+ */
+public final class HtmlDocxWriter {
+
+    /**
+     * 内容的输出位置与正文格式，由各导出器提供
+     */
+    public interface Target {
+
+        /**
+         * 在输出位置创建新段落并设置正文段落格式，无法插入时返回 null（该段内容被丢弃）
+         */
+        XWPFParagraph newParagraph();
+
+        /**
+         * 设置正文字符格式
+         */
+        void formatRun(XWPFRun run);
+    }
+
+    /**
+     * 列表每级缩进（twips），约两个中文字符
+     */
+    private static final int LIST_INDENT = 420;
+
+    private static final String[] BULLETS = { "•", "◦", "▪" };
+
+    private final XWPFDocument document;
+
+    private BigInteger bulletAbstractId;
+    private BigInteger orderedAbstractId;
+    private BigInteger bulletNumId;
+
+    public HtmlDocxWriter(XWPFDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * 写入一段 HTML 内容
+     *
+     * @return 写出的段落数
+     */
+    public int write(String html, Target target) {
+        ParagraphSink sink = new ParagraphSink(target, this, null);
+        HtmlRuns.parse(html, sink);
+        return sink.paragraphCount;
+    }
+
+    /**
+     * 不依赖具体文档渲染内容片段，可在多个线程中并行调用
+     *
+     * @param paragraphFormat 正文段落格式
+     * @param runFormat       正文字符格式
+     */
+    public static DocxFragment renderFragment(String html,
+            Consumer<XWPFParagraph> paragraphFormat,
+            Consumer<XWPFRun> runFormat) {
+        List<CTP> paragraphs = new ArrayList<>();
+        List<HtmlRuns.ListItem> listItems = new ArrayList<>();
+        ParagraphSink sink = new ParagraphSink(new Target() {
+            @Override
+            public XWPFParagraph newParagraph() {
+                CTP ctp = CTP.Factory.newInstance();
+                paragraphs.add(ctp);
+                XWPFParagraph paragraph = new XWPFParagraph(ctp, DetachedOwner.DOCUMENT);
+                paragraphFormat.accept(paragraph);
+                return paragraph;
+            }
+
+            @Override
+            public void formatRun(XWPFRun run) {
+                runFormat.accept(run);
+            }
+        }, null, listItems);
+        HtmlRuns.parse(html, sink);
+
+        if (paragraphs.isEmpty()) {
+            return DocxFragment.EMPTY;
+        }
+        // XmlBeans 节点约为文本的数倍，每个段落另有固定的属性开销
+        long weight = html.length() * 8L + paragraphs.size() * 1024L;
+        return new DocxFragment(List.copyOf(paragraphs), Collections.unmodifiableList(listItems), weight);
+    }
+
+    /**
+     * 将片段的段落依次复制进本文档，并为其中的列表项分配编号
+     *
+     * @param newParagraph 在输出位置创建新段落，返回 null 时跳过该段
+     * @return 插入的段落数
+     */
+    public int insert(DocxFragment fragment, Supplier<XWPFParagraph> newParagraph) {
+        Map<Integer, BigInteger> orderedNumIds = new HashMap<>();
+        int count = 0;
+        for (int i = 0; i < fragment.size(); i++) {
+            XWPFParagraph paragraph = newParagraph.get();
+            if (paragraph == null) {
+                continue;
+            }
+            paragraph.getCTP().set(fragment.paragraph(i));
+            HtmlRuns.ListItem item = fragment.listItem(i);
+            if (item != null) {
+                applyNumbering(paragraph, item, orderedNumIds);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 片段段落所需的 IBody，只作为引用，不会被修改
+     */
+    static final class DetachedOwner {
+        static final XWPFDocument DOCUMENT = new XWPFDocument();
+    }
+
+    private static final class ParagraphSink implements HtmlRuns.Sink {
+
+        private final Target target;
+
+        /**
+         * 写入的文档，渲染片段时为 null
+         */
+        private final HtmlDocxWriter owner;
+
+        /**
+         * 渲染片段时记录各段落的列表项，插入时再分配编号
+         */
+        private final List<HtmlRuns.ListItem> recordedItems;
+
+        /**
+         * 正文字符格式原型，由第一个文字片段经 Target 设置后得到
+         */
+        private CTRPr runPrototype;
+        private boolean prototypeReady;
+
+        /**
+         * 本次写入中 ol 列表编号 -> numId（每个 ol 重新从 1 开始编号）
+         */
+        private final Map<Integer, BigInteger> orderedNumIds = new HashMap<>();
+
+        private XWPFParagraph paragraph;
+        private boolean pendingBreak;
+        private int paragraphCount;
+
+        ParagraphSink(Target target, HtmlDocxWriter owner, List<HtmlRuns.ListItem> recordedItems) {
+            this.target = target;
+            this.owner = owner;
+            this.recordedItems = recordedItems;
+        }
+
+        @Override
+        public void startParagraph(HtmlRuns.ListItem item) {
+            paragraph = target.newParagraph();
+            if (paragraph == null) {
+                return;
+            }
+            paragraphCount++;
+            if (recordedItems != null) {
+                recordedItems.add(item);
+            } else if (item != null) {
+                owner.applyNumbering(paragraph, item, orderedNumIds);
+            }
+        }
+
+        @Override
+        public void run(String text, int format) {
+            if (paragraph == null) {
+                return;
+            }
+            CTR r = newRun();
+            if (pendingBreak) {
+                r.addNewBr();
+                pendingBreak = false;
+            }
+            if (format != 0) {
+                CTRPr rPr = r.isSetRPr() ? r.getRPr() : r.addNewRPr();
+                if ((format & HtmlRuns.BOLD) != 0) {
+                    turnOn(rPr.sizeOfBArray() > 0 ? rPr.getBArray(0) : rPr.addNewB());
+                }
+                if ((format & HtmlRuns.ITALIC) != 0) {
+                    turnOn(rPr.sizeOfIArray() > 0 ? rPr.getIArray(0) : rPr.addNewI());
+                }
+                if ((format & HtmlRuns.UNDERLINE) != 0) {
+                    (rPr.sizeOfUArray() > 0 ? rPr.getUArray(0) : rPr.addNewU()).setVal(STUnderline.SINGLE);
+                }
+            }
+            CTText t = r.addNewT();
+            t.setStringValue(text);
+            if (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1))) {
+                t.setSpace(SpaceAttribute.Space.PRESERVE);
+            }
+        }
+
+        @Override
+        public void lineBreak() {
+            pendingBreak = true;
+        }
+
+        @Override
+        public void endParagraph() {
+            paragraph = null;
+            pendingBreak = false;
+        }
+
+        /**
+         * 通过 createRun 创建片段，使其进入段落的片段列表（getRuns / getText 可见）；
+         * 只有第一个片段调用 formatRun，之后直接复制记录下的 rPr
+         */
+        private CTR newRun() {
+            XWPFRun run = paragraph.createRun();
+            CTR r = run.getCTR();
+            if (!prototypeReady) {
+                target.formatRun(run);
+                runPrototype = r.isSetRPr() ? (CTRPr) r.getRPr().copy() : null;
+                prototypeReady = true;
+            } else if (runPrototype != null) {
+                r.setRPr(runPrototype);
+            }
+            return r;
+        }
+    }
+
+    private void applyNumbering(XWPFParagraph para, HtmlRuns.ListItem item, Map<Integer, BigInteger> orderedNumIds) {
+        BigInteger numId = item.isOrdered()
+                ? orderedNumIds.computeIfAbsent(item.getListId(), id -> newOrderedNum())
+                : bulletNum();
+        para.setNumID(numId);
+        para.setNumILvl(BigInteger.valueOf(item.getLevel()));
+
+        // 正文格式的首行缩进会与编号的悬挂缩进冲突
+        CTPPr pPr = para.getCTP().getPPr();
+        if (pPr != null && pPr.isSetInd()) {
+            CTInd ind = pPr.getInd();
+            if (ind.isSetFirstLine()) {
+                ind.unsetFirstLine();
+            }
+            if (ind.isSetFirstLineChars()) {
+                ind.unsetFirstLineChars();
+            }
+        }
+    }
+
+    private static void turnOn(CTOnOff onOff) {
+        // 省略 w:val 即为开启
+        if (onOff.isSetVal()) {
+            onOff.unsetVal();
+        }
+    }
+
+    private BigInteger bulletNum() {
+        if (bulletNumId == null) {
+            if (bulletAbstractId == null) {
+                bulletAbstractId = addAbstractNum(false);
+            }
+            bulletNumId = addNum(bulletAbstractId, false);
+        }
+        return bulletNumId;
+    }
+
+    private BigInteger newOrderedNum() {
+        if (orderedAbstractId == null) {
+            orderedAbstractId = addAbstractNum(true);
+        }
+        return addNum(orderedAbstractId, true);
+    }
+
+    private BigInteger addAbstractNum(boolean ordered) {
+        XWPFNumbering numbering = document.createNumbering();
+        BigInteger id = BigInteger.ZERO;
+        for (XWPFAbstractNum existing : numbering.getAbstractNums()) {
+            BigInteger existingId = existing.getCTAbstractNum().getAbstractNumId();
+            if (existingId != null && existingId.compareTo(id) >= 0) {
+                id = existingId.add(BigInteger.ONE);
+            }
+        }
+
+        CTAbstractNum abstractNum = CTAbstractNum.Factory.newInstance();
+        abstractNum.setAbstractNumId(id);
+        for (int level = 0; level <= 8; level++) {
+            CTLvl lvl = abstractNum.addNewLvl();
+            lvl.setIlvl(BigInteger.valueOf(level));
+            lvl.addNewStart().setVal(BigInteger.ONE);
+            if (ordered) {
+                lvl.addNewNumFmt().setVal(STNumberFormat.DECIMAL);
+                lvl.addNewLvlText().setVal("%" + (level + 1) + ".");
+            } else {
+                lvl.addNewNumFmt().setVal(STNumberFormat.BULLET);
+                lvl.addNewLvlText().setVal(BULLETS[level % BULLETS.length]);
+            }
+            lvl.addNewLvlJc().setVal(STJc.LEFT);
+            CTInd ind = lvl.addNewPPr().addNewInd();
+            ind.setLeft(BigInteger.valueOf((long) LIST_INDENT * (level + 1)));
+            ind.setHanging(BigInteger.valueOf(LIST_INDENT));
+        }
+        return numbering.addAbstractNum(new XWPFAbstractNum(abstractNum, numbering));
+    }
+
+    private BigInteger addNum(BigInteger abstractId, boolean restart) {
+        XWPFNumbering numbering = document.createNumbering();
+        BigInteger numId = BigInteger.ONE;
+        for (XWPFNum existing : numbering.getNums()) {
+            BigInteger existingId = existing.getCTNum().getNumId();
+            if (existingId != null && existingId.compareTo(numId) >= 0) {
+                numId = existingId.add(BigInteger.ONE);
+            }
+        }
+        numbering.addNum(abstractId, numId);
+        if (restart) {
+            // 与同一定义下的其他 ol 分开计数
+            CTNumLvl override = numbering.getNum(numId).getCTNum().addNewLvlOverride();
+            override.setIlvl(BigInteger.ZERO);
+            override.addNewStartOverride().setVal(BigInteger.ONE);
+        }
+        return numId;
+    }
+}
@@ -0,0 +1,297 @@
+package com.report.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * HTML 富文本结构化解析
+ * 在 HtmlText 事件之上识别段落、换行、加粗/斜体/下划线和列表，
+ * 以 段落开始 / 文字片段 / 换行 / 段落结束 事件推送给渲染器，中间不构建 DOM。
+ * 空白处理与 HtmlText#toLines 一致：每行去除首尾空白，空行和空段落被丢弃
+ */
+public final class HtmlRuns {
+
+    public static final int BOLD = 1;
+    public static final int ITALIC = 1 << 1;
+    public static final int UNDERLINE = 1 << 2;
+
+    /**
+     * 渲染事件回调
+     */
+    public interface Sink {
+
+        /**
+         * 开始一个段落
+         *
+         * @param item 列表项信息，普通段落为 null
+         */
+        void startParagraph(ListItem item);
+
+        /**
+         * 同一格式的连续文字
+         *
+         * @param format BOLD / ITALIC / UNDERLINE 的组合
+         */
+        void run(String text, int format);
+
+        /**
+         * 段落内换行（&lt;br&gt; 或文本中的换行符）
+         */
+        void lineBreak();
+
+        void endParagraph();
+    }
+
+    /**
+     * 列表项
+     */
+    public static final class ListItem {
+
+        private final boolean ordered;
+        private final int level;
+        private final int listId;
+        private final int ordinal;
+
+        ListItem(boolean ordered, int level, int listId, int ordinal) {
+            this.ordered = ordered;
+            this.level = level;
+            this.listId = listId;
+            this.ordinal = ordinal;
+        }
+
+        /**
+         * 是否有序列表（ol）
+         */
+        public boolean isOrdered() {
+            return ordered;
+        }
+
+        /**
+         * 嵌套层级，从 0 开始，最大 8
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * 所属列表在本次解析中的编号，同一个 ul/ol 内的列表项相同
+         */
+        public int getListId() {
+            return listId;
+        }
+
+        /**
+         * 在所属列表中的序号，从 1 开始
+         */
+        public int getOrdinal() {
+            return ordinal;
+        }
+    }
+
+    private static final int MAX_LIST_LEVEL = 8;
+
+    private HtmlRuns() {
+    }
+
+    /**
+     * 解析 HTML 并推送渲染事件
+     */
+    public static void parse(String html, Sink sink) {
+        if (html == null || html.isEmpty()) {
+            return;
+        }
+        Parser parser = new Parser(sink);
+        HtmlText.parse(html, parser);
+        parser.endParagraph();
+    }
+
+    private static boolean isBlock(String tag) {
+        return tag == HtmlText.P || tag == HtmlText.DIV || tag == HtmlText.LI || isHeading(tag);
+    }
+
+    private static boolean isHeading(String tag) {
+        return tag == HtmlText.H1 || tag == HtmlText.H2 || tag == HtmlText.H3
+                || tag == HtmlText.H4 || tag == HtmlText.H5 || tag == HtmlText.H6;
+    }
+
+    private static final class ListFrame {
+        final boolean ordered;
+        final int listId;
+        int count;
+
+        ListFrame(boolean ordered, int listId) {
+            this.ordered = ordered;
+            this.listId = listId;
+        }
+    }
+
+    /**
+     * 解析状态：当前格式嵌套计数、列表栈，以及尚未写出的文字和空白
+     */
+    private static final class Parser implements HtmlText.Handler {
+
+        private final Sink sink;
+
+        private int boldDepth;
+        private int italicDepth;
+        private int underlineDepth;
+
+        private final Deque<ListFrame> lists = new ArrayDeque<>();
+        private int nextListId;
+
+        /**
+         * 下一个段落所属的列表项（li 开始后尚未产生段落）
+         */
+        private ListItem pendingItem;
+
+        private boolean paragraphOpen;
+        private boolean lineHasText;
+        private boolean pendingBreak;
+
+        /**
+         * 行内尚未确定是否保留的空白（行尾空白会被丢弃）
+         */
+        private final StringBuilder whitespace = new StringBuilder();
+
+        private final StringBuilder runText = new StringBuilder();
+        private int runFormat;
+
+        Parser(Sink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void text(char[] buf, int off, int len) {
+            int end = off + len;
+            int i = off;
+            while (i < end) {
+                char c = buf[i];
+                if (c == '\n') {
+                    endLine();
+                    i++;
+                } else if (c <= ' ') {
+                    if (lineHasText) {
+                        whitespace.append(c);
+                    }
+                    i++;
+                } else {
+                    int j = i + 1;
+                    while (j < end && buf[j] > ' ') {
+                        j++;
+                    }
+                    appendText(buf, i, j - i);
+                    i = j;
+                }
+            }
+        }
+
+        @Override
+        public void startTag(String tag) {
+            if (tag == HtmlText.BR) {
+                endLine();
+            } else if (tag == HtmlText.UL || tag == HtmlText.OL) {
+                endParagraph();
+                lists.push(new ListFrame(tag == HtmlText.OL, nextListId++));
+            } else if (tag == HtmlText.LI) {
+                endParagraph();
+                ListFrame frame = lists.peek();
+                if (frame == null) {
+                    frame = new ListFrame(false, nextListId++);
+                    lists.push(frame);
+                }
+                pendingItem = new ListItem(frame.ordered, Math.min(lists.size() - 1, MAX_LIST_LEVEL),
+                        frame.listId, ++frame.count);
+            } else if (isBlock(tag)) {
+                endParagraph();
+                if (isHeading(tag)) {
+                    boldDepth++;
+                }
+            } else if (tag == HtmlText.B || tag == HtmlText.STRONG) {
+                boldDepth++;
+            } else if (tag == HtmlText.I || tag == HtmlText.EM) {
+                italicDepth++;
+            } else if (tag == HtmlText.U) {
+                underlineDepth++;
+            }
+        }
+
+        @Override
+        public void endTag(String tag) {
+            if (tag == HtmlText.UL || tag == HtmlText.OL) {
+                endParagraph();
+                pendingItem = null;
+                if (!lists.isEmpty()) {
+                    lists.pop();
+                }
+            } else if (isBlock(tag)) {
+                endParagraph();
+                if (tag == HtmlText.LI) {
+                    pendingItem = null;
+                } else if (isHeading(tag) && boldDepth > 0) {
+                    boldDepth--;
+                }
+            } else if ((tag == HtmlText.B || tag == HtmlText.STRONG) && boldDepth > 0) {
+                boldDepth--;
+            } else if ((tag == HtmlText.I || tag == HtmlText.EM) && italicDepth > 0) {
+                italicDepth--;
+            } else if (tag == HtmlText.U && underlineDepth > 0) {
+                underlineDepth--;
+            }
+        }
+
+        private int currentFormat() {
+            return (boldDepth > 0 ? BOLD : 0) | (italicDepth > 0 ? ITALIC : 0)
+                    | (underlineDepth > 0 ? UNDERLINE : 0);
+        }
+
+        private void appendText(char[] buf, int off, int len) {
+            int format = currentFormat();
+            if (!paragraphOpen) {
+                sink.startParagraph(pendingItem);
+                pendingItem = null;
+                paragraphOpen = true;
+            }
+            if (pendingBreak) {
+                flushRun();
+                sink.lineBreak();
+                pendingBreak = false;
+            }
+            if (format != runFormat && runText.length() > 0) {
+                flushRun();
+            }
+            runFormat = format;
+            if (whitespace.length() > 0) {
+                runText.append(whitespace);
+                whitespace.setLength(0);
+            }
+            runText.append(buf, off, len);
+            lineHasText = true;
+        }
+
+        private void flushRun() {
+            if (runText.length() > 0) {
+                sink.run(runText.toString(), runFormat);
+                runText.setLength(0);
+            }
+        }
+
+        private void endLine() {
+            whitespace.setLength(0);
+            if (lineHasText) {
+                pendingBreak = true;
+                lineHasText = false;
+            }
+        }
+
+        void endParagraph() {
+            whitespace.setLength(0);
+            lineHasText = false;
+            pendingBreak = false;
+            if (paragraphOpen) {
+                flushRun();
+                sink.endParagraph();
+                paragraphOpen = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.report.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * HTML 文本流式解析工具
+ * 单次扫描 content_html，产生 文本 / 开始标签 / 结束标签 事件，
+ * 同时完成 HTML 实体（含全部 HTML5 命名实体）与数字字符引用的解码。
+ * 供所有 Word 渲染器共用
+ */
+@Slf4j
+public final class HtmlText {
+
+    /**
+     * 解析事件回调
+     * 标签名均为小写的常量字符串（可用 == 比较），未识别的标签不产生事件
+     */
+    public interface Handler {
+
+        /**
+         * 已解码的文本片段，buf 内容仅在回调期间有效
+         */
+        void text(char[] buf, int off, int len);
+
+        default void startTag(String tag) {
+        }
+
+        default void endTag(String tag) {
+        }
+    }
+
+    // 识别的标签
+    public static final String P = "p";
+    public static final String BR = "br";
+    public static final String DIV = "div";
+    public static final String LI = "li";
+    public static final String UL = "ul";
+    public static final String OL = "ol";
+    public static final String B = "b";
+    public static final String STRONG = "strong";
+    public static final String I = "i";
+    public static final String EM = "em";
+    public static final String U = "u";
+    public static final String SPAN = "span";
+    public static final String H1 = "h1";
+    public static final String H2 = "h2";
+    public static final String H3 = "h3";
+    public static final String H4 = "h4";
+    public static final String H5 = "h5";
+    public static final String H6 = "h6";
+
+    private static final String[] KNOWN_TAGS = { P, BR, DIV, LI, UL, OL, B, STRONG, I, EM, U, SPAN,
+            H1, H2, H3, H4, H5, H6 };
+
+    private static final int MAX_ENTITY_LENGTH = 32;
+
+    private static final Map<String, String> ENTITIES = loadEntities();
+
+    private HtmlText() {
+    }
+
+    /**
+     * 将 HTML 转换为去除首尾空白后的非空文本行
+     * &lt;br&gt;、&lt;/p&gt;、块级元素结束和文本中的换行符都会结束当前行
+     */
+    public static List<String> toLines(String html) {
+        if (html == null || html.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LineCollector collector = new LineCollector(html.length());
+        parse(html, collector);
+        collector.flush();
+        return collector.lines;
+    }
+
+    /**
+     * 将 HTML 转换为纯文本，各行以换行符连接
+     */
+    public static String toPlainText(String html) {
+        return String.join("\n", toLines(html));
+    }
+
+    /**
+     * 单次扫描解析 HTML
+     */
+    public static void parse(String html, Handler handler) {
+        if (html == null || html.isEmpty()) {
+            return;
+        }
+        new Scanner(html, handler).run();
+    }
+
+    private static boolean isTagStart(char c) {
+        return c == '/' || c == '!' || c == '?' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static String matchTag(String html, int start, int len) {
+        if (len == 0) {
+            return null;
+        }
+        for (String tag : KNOWN_TAGS) {
+            if (tag.length() == len && html.regionMatches(true, start, tag, 0, len)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单次解析的扫描状态，文本写入复用的字符缓冲区，满了再整体派发
+     */
+    private static final class Scanner {
+
+        /**
+         * 缓冲区预留空间，保证一次实体解码（最多 4 个 char）不会越界
+         */
+        private static final int RESERVE = 8;
+
+        private final String html;
+        private final Handler handler;
+        private final char[] buf;
+        private int len;
+
+        /**
+         * 之后已不存在 '>'，剩余的 '<' 都按普通文本处理
+         */
+        private boolean noMoreClose;
+
+        Scanner(String html, Handler handler) {
+            this.html = html;
+            this.handler = handler;
+            this.buf = new char[Math.min(html.length(), 8192) + RESERVE];
+        }
+
+        void run() {
+            int length = html.length();
+            int i = 0;
+            while (i < length) {
+                char c = html.charAt(i);
+
+                if (c == '<' && !noMoreClose && i + 1 < length && isTagStart(html.charAt(i + 1))) {
+                    int close = html.indexOf('>', i + 1);
+                    if (close >= 0) {
+                        flushText();
+                        emitTag(i + 1, close);
+                        i = close + 1;
+                        continue;
+                    }
+                    noMoreClose = true;
+                } else if (c == '&') {
+                    int consumed = decodeEntity(i);
+                    if (consumed > 0) {
+                        i += consumed;
+                        continue;
+                    }
+                }
+
+                buf[len++] = c;
+                if (len >= buf.length - RESERVE) {
+                    flushText();
+                }
+                i++;
+            }
+            flushText();
+        }
+
+        private void flushText() {
+            if (len > 0) {
+                handler.text(buf, 0, len);
+                len = 0;
+            }
+        }
+
+        /**
+         * 解析 [start, end) 之间的标签内容（不含尖括号）并派发事件
+         */
+        private void emitTag(int start, int end) {
+            boolean closing = html.charAt(start) == '/';
+            int nameStart = closing ? start + 1 : start;
+            int nameEnd = nameStart;
+            while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String tag = matchTag(html, nameStart, nameEnd - nameStart);
+            if (tag == null) {
+                return;
+            }
+            if (closing) {
+                handler.endTag(tag);
+            } else {
+                handler.startTag(tag);
+                // 自闭合写法 <p/> 视为立即结束（<br/> 本身就是空元素）
+                if (tag != BR && html.charAt(end - 1) == '/') {
+                    handler.endTag(tag);
+                }
+            }
+        }
+
+        /**
+         * 解码从 amp 位置开始的字符引用并写入缓冲区
+         *
+         * @return 消耗的源字符数，不是合法字符引用时返回 0
+         */
+        private int decodeEntity(int amp) {
+            int limit = Math.min(html.length(), amp + MAX_ENTITY_LENGTH + 2);
+            int semi = -1;
+            for (int j = amp + 1; j < limit; j++) {
+                char ch = html.charAt(j);
+                if (ch == ';') {
+                    semi = j;
+                    break;
+                }
+                if (!Character.isLetterOrDigit(ch) && ch != '#') {
+                    break;
+                }
+            }
+            if (semi < 0 || semi == amp + 1) {
+                return 0;
+            }
+
+            int nameStart = amp + 1;
+            int nameLen = semi - nameStart;
+
+            if (html.charAt(nameStart) == '#') {
+                int codePoint = parseCodePoint(nameStart + 1, semi);
+                if (codePoint < 0) {
+                    return 0;
+                }
+                len += Character.toChars(codePoint, buf, len);
+            } else {
+                char replacement = quickEntity(nameStart, nameLen);
+                if (replacement != 0) {
+                    buf[len++] = replacement;
+                } else {
+                    String value = ENTITIES.get(html.substring(nameStart, semi));
+                    if (value == null) {
+                        return 0;
+                    }
+                    value.getChars(0, value.length(), buf, len);
+                    len += value.length();
+                }
+            }
+
+            if (len >= buf.length - RESERVE) {
+                flushText();
+            }
+            return semi - amp + 1;
+        }
+
+        /**
+         * 常用实体快速路径，无需查表和分配
+         * &amp;nbsp; 解码为普通空格，与原有行为保持一致（便于 trim）
+         */
+        private char quickEntity(int start, int nameLen) {
+            switch (nameLen) {
+                case 2:
+                    if (html.regionMatches(start, "lt", 0, 2)) {
+                        return '<';
+                    }
+                    if (html.regionMatches(start, "gt", 0, 2)) {
+                        return '>';
+                    }
+                    return 0;
+                case 3:
+                    return html.regionMatches(start, "amp", 0, 3) ? '&' : 0;
+                case 4:
+                    if (html.regionMatches(start, "nbsp", 0, 4)) {
+                        return ' ';
+                    }
+                    if (html.regionMatches(start, "quot", 0, 4)) {
+                        return '"';
+                    }
+                    if (html.regionMatches(start, "apos", 0, 4)) {
+                        return '\'';
+                    }
+                    return 0;
+                default:
+                    return 0;
+            }
+        }
+
+        private int parseCodePoint(int start, int end) {
+            int radix = 10;
+            if (start < end && (html.charAt(start) == 'x' || html.charAt(start) == 'X')) {
+                radix = 16;
+                start++;
+            }
+            if (start >= end || end - start > 8) {
+                return -1;
+            }
+            int value = 0;
+            for (int j = start; j < end; j++) {
+                int digit = Character.digit(html.charAt(j), radix);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value * radix + digit;
+            }
+            if (value == 0 || !Character.isValidCodePoint(value)
+                    || (value >= Character.MIN_SURROGATE && value <= Character.MAX_SURROGATE)) {
+                return 0xFFFD;
+            }
+            return value;
+        }
+    }
+
+    private static Map<String, String> loadEntities() {
+        Properties props = new Properties();
+        try (InputStream is = HtmlText.class.getResourceAsStream("/html/entities.properties")) {
+            if (is != null) {
+                props.load(is);
+            } else {
+                log.warn("未找到 HTML 实体表，仅支持常用实体");
+            }
+        } catch (IOException e) {
+            log.warn("加载 HTML 实体表失败: {}", e.getMessage());
+        }
+        Map<String, String> map = new HashMap<>(props.size() * 2);
+        for (String name : props.stringPropertyNames()) {
+            map.put(name, props.getProperty(name));
+        }
+        return map;
+    }
+
+    /**
+     * 收集纯文本行
+     */
+    private static final class LineCollector implements Handler {
+
+        private final List<String> lines = new ArrayList<>();
+        private final StringBuilder line;
+
+        LineCollector(int capacityHint) {
+            this.line = new StringBuilder(Math.min(capacityHint, 1024));
+        }
+
+        @Override
+        public void text(char[] buf, int off, int len) {
+            int end = off + len;
+            int segment = off;
+            for (int j = off; j < end; j++) {
+                if (buf[j] == '\n') {
+                    line.append(buf, segment, j - segment);
+                    flush();
+                    segment = j + 1;
+                }
+            }
+            line.append(buf, segment, end - segment);
+        }
+
+        @Override
+        public void startTag(String tag) {
+            if (tag == BR) {
+                flush();
+            }
+        }
+
+        @Override
+        public void endTag(String tag) {
+            if (tag == P || tag == DIV || tag == LI
+                    || tag == H1 || tag == H2 || tag == H3 || tag == H4 || tag == H5 || tag == H6) {
+                flush();
+            }
+        }
+
+        void flush() {
+            int start = 0;
+            int end = line.length();
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (end > start) {
+                lines.add(line.substring(start, end));
+            }
+            line.setLength(0);
+        }
+    }
+}
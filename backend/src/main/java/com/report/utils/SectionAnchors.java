@@ -0,0 +1,146 @@
+package com.report.utils;
+
+import com.report.entity.TemplateSection;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTMarkupRange;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 章节锚点工具
+ * 在模板的标题段落上打书签（以 sectionKey 命名），导出时直接按书签定位标题，
+ * 无需逐段提取文本比对标题
+ */
+@Slf4j
+public class SectionAnchors {
+
+    /**
+     * 章节书签前缀（下划线开头的书签在 Word 中为隐藏书签）
+     */
+    public static final String PREFIX = "_sec_";
+
+    /**
+     * Word 书签名最大长度
+     */
+    private static final int MAX_NAME_LENGTH = 40;
+
+    private static final Pattern VALID_KEY = Pattern.compile("[\\w\u4e00-\u9fa5]+");
+
+    /**
+     * 由 sectionKey 生成书签名
+     * 合法且不超长的 key 直接使用，否则截断并追加哈希以保证唯一
+     */
+    public static String anchorName(String sectionKey) {
+        String key = sectionKey != null ? sectionKey : "";
+        if (VALID_KEY.matcher(key).matches() && PREFIX.length() + key.length() <= MAX_NAME_LENGTH) {
+            return PREFIX + key;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        String hash = String.format("%08x", crc.getValue());
+
+        String sanitized = key.replaceAll("[^\\w\u4e00-\u9fa5]", "_");
+        int maxPrefix = MAX_NAME_LENGTH - PREFIX.length() - hash.length() - 1;
+        if (sanitized.length() > maxPrefix) {
+            sanitized = sanitized.substring(0, maxPrefix);
+        }
+        return PREFIX + sanitized + "_" + hash;
+    }
+
+    /**
+     * 在标题段落上打章节书签
+     * 按文档顺序逐个匹配章节标题，同名标题按出现顺序依次对应，避免重复标题串位
+     *
+     * @param doc      模板文档
+     * @param sections 按文档顺序排列的章节（深度优先）
+     * @return 成功打上书签的章节数
+     */
+    public static int stamp(XWPFDocument doc, List<TemplateSection> sections) {
+        List<XWPFParagraph> paragraphs = doc.getParagraphs();
+
+        // 先清除旧的章节书签，保证重复执行结果一致
+        long nextId = 0;
+        for (XWPFParagraph para : paragraphs) {
+            CTP ctp = para.getCTP();
+            Set<BigInteger> removedIds = new HashSet<>();
+            for (int i = ctp.sizeOfBookmarkStartArray() - 1; i >= 0; i--) {
+                CTBookmark bookmark = ctp.getBookmarkStartArray(i);
+                if (bookmark.getName() != null && bookmark.getName().startsWith(PREFIX)) {
+                    removedIds.add(bookmark.getId());
+                    ctp.removeBookmarkStart(i);
+                } else if (bookmark.getId() != null) {
+                    nextId = Math.max(nextId, bookmark.getId().longValue() + 1);
+                }
+            }
+            for (int i = ctp.sizeOfBookmarkEndArray() - 1; i >= 0; i--) {
+                if (removedIds.contains(ctp.getBookmarkEndArray(i).getId())) {
+                    ctp.removeBookmarkEnd(i);
+                }
+            }
+        }
+        // 避开表格等位置的书签 ID
+        nextId = Math.max(nextId, 100_000);
+
+        int stamped = 0;
+        int searchFrom = 0;
+        for (TemplateSection section : sections) {
+            String title = section.getTitle() != null ? section.getTitle().trim() : "";
+            if (title.isEmpty() || section.getSectionKey() == null) {
+                continue;
+            }
+
+            for (int i = searchFrom; i < paragraphs.size(); i++) {
+                XWPFParagraph para = paragraphs.get(i);
+                if (title.equals(para.getText().trim())) {
+                    addBookmark(para.getCTP(), anchorName(section.getSectionKey()), nextId++);
+                    searchFrom = i + 1;
+                    stamped++;
+                    break;
+                }
+            }
+        }
+
+        log.info("为模板打上了 {} / {} 个章节书签", stamped, sections.size());
+        return stamped;
+    }
+
+    /**
+     * 建立 书签名 -> 段落下标 的索引（下标对应 doc.getParagraphs()）
+     * 只读取段落的书签元素，不提取段落文本
+     */
+    public static Map<String, Integer> indexAnchors(XWPFDocument doc) {
+        Map<String, Integer> index = new HashMap<>();
+        List<XWPFParagraph> paragraphs = doc.getParagraphs();
+        for (int i = 0; i < paragraphs.size(); i++) {
+            CTP ctp = paragraphs.get(i).getCTP();
+            if (ctp.sizeOfBookmarkStartArray() == 0) {
+                continue;
+            }
+            for (CTBookmark bookmark : ctp.getBookmarkStartArray()) {
+                String name = bookmark.getName();
+                if (name != null && name.startsWith(PREFIX)) {
+                    index.putIfAbsent(name, i);
+                }
+            }
+        }
+        return index;
+    }
+
+    private static void addBookmark(CTP ctp, String name, long id) {
+        CTBookmark start = ctp.addNewBookmarkStart();
+        start.setName(name);
+        start.setId(BigInteger.valueOf(id));
+
+        CTMarkupRange end = ctp.addNewBookmarkEnd();
+        end.setId(BigInteger.valueOf(id));
+    }
+}
@@ -0,0 +1,94 @@
+package com.report.utils;
+
+import com.report.dto.SectionData;
+import com.report.entity.TemplateSection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 章节数据树构建工具
+ */
+public final class SectionTrees {
+
+    private SectionTrees() {
+    }
+
+    /**
+     * 按 parent_id 和 sort_order 构建章节数据树
+     */
+    public static List<SectionData> build(List<TemplateSection> sections,
+            Map<String, String> contentMap) {
+        // 构建 ID -> Section 映射
+        Map<Long, TemplateSection> sectionMap = sections.stream()
+                .collect(Collectors.toMap(TemplateSection::getId, s -> s));
+
+        // 构建 ID -> SectionData 映射
+        Map<Long, SectionData> dataMap = new HashMap<>();
+        for (TemplateSection section : sections) {
+            SectionData data = new SectionData();
+            data.setTitle(section.getTitle());
+            data.setContent(contentMap.getOrDefault(section.getSectionKey(), ""));
+            data.setLevel(calculateLevel(section, sectionMap));
+            data.setChildren(new ArrayList<>());
+            dataMap.put(section.getId(), data);
+        }
+
+        // 构建树结构
+        List<SectionData> roots = new ArrayList<>();
+        for (TemplateSection section : sections) {
+            SectionData data = dataMap.get(section.getId());
+            if (section.getParentId() == null || !dataMap.containsKey(section.getParentId())) {
+                roots.add(data);
+            } else {
+                dataMap.get(section.getParentId()).getChildren().add(data);
+            }
+        }
+
+        // 排序
+        sortSectionDataRecursive(roots, sections, dataMap);
+
+        return roots;
+    }
+
+    /**
+     * 计算章节层级
+     */
+    private static int calculateLevel(TemplateSection section, Map<Long, TemplateSection> sectionMap) {
+        int level = 1;
+        Long parentId = section.getParentId();
+        while (parentId != null && sectionMap.containsKey(parentId)) {
+            level++;
+            parentId = sectionMap.get(parentId).getParentId();
+        }
+        return level;
+    }
+
+    /**
+     * 递归排序章节
+     */
+    private static void sortSectionDataRecursive(List<SectionData> dataList,
+            List<TemplateSection> sections,
+            Map<Long, SectionData> dataMap) {
+        // 创建 SectionData -> sortOrder 的映射
+        Map<SectionData, Integer> sortOrderMap = new HashMap<>();
+        for (TemplateSection section : sections) {
+            SectionData data = dataMap.get(section.getId());
+            sortOrderMap.put(data, section.getSortOrder() != null ? section.getSortOrder() : 0);
+        }
+
+        // 排序当前层级
+        dataList.sort(Comparator.comparingInt(d -> sortOrderMap.getOrDefault(d, 0)));
+
+        // 递归排序子节点
+        for (SectionData data : dataList) {
+            if (data.getChildren() != null && !data.getChildren().isEmpty()) {
+                sortSectionDataRecursive(data.getChildren(), sections, dataMap);
+            }
+        }
+    }
+}
@@ -2,15 +2,21 @@ package com.report.utils;
 
 import com.report.entity.TemplateStyle;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
 import org.apache.poi.xwpf.usermodel.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Word 模板样式提取工具
@@ -20,6 +26,11 @@ import java.util.Map;
 @Slf4j
 public class StyleExtractor {
 
+    /**
+     * 推断正文样式时默认最多抽样的段落数
+     */
+    public static final int DEFAULT_BODY_SAMPLE_SIZE = 500;
+
     // Word 中的样式 ID 映射（支持中英文）
     private static final Map<String, String> HEADING_STYLE_MAP = new HashMap<>();
 
@@ -81,19 +92,59 @@ public class StyleExtractor {
         return extractStyles(file.getInputStream(), templateId);
     }
 
+    /**
+     * 从 Word 模板文件中提取样式配置
+     *
+     * @param bodySampleSize 推断正文样式时最多抽样的段落数
+     */
+    public static List<TemplateStyle> extractStyles(MultipartFile file, Long templateId, int bodySampleSize)
+            throws IOException {
+        return extractStyles(file.getInputStream(), templateId, bodySampleSize);
+    }
+
     /**
      * 从输入流中提取样式配置
      */
     public static List<TemplateStyle> extractStyles(InputStream inputStream, Long templateId) throws IOException {
+        return extractStyles(inputStream, templateId, DEFAULT_BODY_SAMPLE_SIZE);
+    }
+
+    /**
+     * 从输入流中提取样式配置
+     *
+     * @param bodySampleSize 推断正文样式时最多抽样的段落数，不大于 0 时使用默认值
+     */
+    public static List<TemplateStyle> extractStyles(InputStream inputStream, Long templateId, int bodySampleSize)
+            throws IOException {
+        return extractStyles(() -> new XWPFDocument(inputStream), templateId, bodySampleSize);
+    }
+
+    /**
+     * 从已打开的 docx 压缩包中提取样式配置，与章节解析共用同一个 ZipFile，不再重新打开文件；
+     * 压缩包由调用方关闭
+     *
+     * @param bodySampleSize 推断正文样式时最多抽样的段落数，不大于 0 时使用默认值
+     */
+    public static List<TemplateStyle> extractStyles(ZipFile zip, Long templateId, int bodySampleSize)
+            throws IOException {
+        return extractStyles(() -> new XWPFDocument(OPCPackage.open(new SharedZipEntrySource(zip))),
+                templateId, bodySampleSize);
+    }
+
+    private static List<TemplateStyle> extractStyles(Callable<XWPFDocument> opener, Long templateId,
+            int bodySampleSize) {
+        if (bodySampleSize <= 0) {
+            bodySampleSize = DEFAULT_BODY_SAMPLE_SIZE;
+        }
         Map<String, TemplateStyle> styleMap = new HashMap<>();
         Map<String, String> detectedStyleIds = new HashMap<>(); // styleType -> wordStyleId
 
-        try (XWPFDocument doc = new XWPFDocument(inputStream)) {
+        try (XWPFDocument doc = opener.call()) {
             // 1. 首先从文档样式定义中探测可用的样式 ID
             detectAvailableStyles(doc, detectedStyleIds);
 
             // 2. 从文档段落中推断样式
-            extractFromParagraphs(doc, templateId, styleMap, detectedStyleIds);
+            extractFromParagraphs(doc, templateId, styleMap, detectedStyleIds, bodySampleSize);
 
             // 3. 填充缺失的样式
             fillMissingStyles(templateId, styleMap, detectedStyleIds);
@@ -169,58 +220,72 @@ public class StyleExtractor {
 
     /**
      * 从文档段落中推断样式
+     * 标题取各级第一个段落；正文只抽样至多 bodySampleSize 个段落（按固定间隔均匀分布在全文），
+     * 每个样本只计算字符特征的哈希并计数，最后只为出现最多的特征构建 TemplateStyle
      */
     private static void extractFromParagraphs(XWPFDocument doc, Long templateId,
             Map<String, TemplateStyle> styleMap,
-            Map<String, String> detectedStyleIds) {
+            Map<String, String> detectedStyleIds,
+            int bodySampleSize) {
 
-        List<TemplateStyle> bodyCandidates = new ArrayList<>();
+        List<XWPFParagraph> paragraphs = doc.getParagraphs();
+        int stride = Math.max(1, (paragraphs.size() + bodySampleSize - 1) / bodySampleSize);
+        int bodySeen = 0;
+
+        StyleHistogram bodyHistogram = new StyleHistogram();
         Map<String, Integer> bodyStyleIdCounts = new HashMap<>();
 
-        for (XWPFParagraph paragraph : doc.getParagraphs()) {
+        for (int i = 0; i < paragraphs.size(); i++) {
+            XWPFParagraph paragraph = paragraphs.get(i);
             String styleId = paragraph.getStyleID();
-            String styleType = null;
+            String styleType;
+            boolean unstyled = styleId == null || styleId.isEmpty();
 
-            if (styleId != null && !styleId.isEmpty()) {
+            if (!unstyled) {
                 styleType = HEADING_STYLE_MAP.get(styleId);
                 if (styleType == null) {
                     styleType = matchStyleType(styleId);
                 }
             } else {
-                // 无样式ID的段落视为正文
-                if (!paragraph.getText().trim().isEmpty()) {
-                    styleType = "BODY";
-                }
+                // 无样式ID的段落视为正文（空段落除外）
+                styleType = "BODY";
             }
 
-            if (styleType != null) {
-                if ("BODY".equals(styleType)) {
-                    // 对于正文，收集所有候选项，最后取出现最频繁的配置
-                    TemplateStyle ts = extractFromParagraph(paragraph, templateId, styleType, styleId);
-                    if (ts != null) {
-                        bodyCandidates.add(ts);
-                        if (styleId != null) {
-                            bodyStyleIdCounts.merge(styleId, 1, Integer::sum);
-                        }
-                    }
-                } else if (!styleMap.containsKey(styleType)) {
-                    // 对于标题，保持"先入为主"策略（通常文档结构靠前的标题是准的）
-                    TemplateStyle ts = extractFromParagraph(paragraph, templateId, styleType, styleId);
-                    if (ts != null) {
-                        // 使用探测到的样式 ID 或原始样式 ID
-                        String wordStyleId = detectedStyleIds.getOrDefault(styleType, styleId);
-                        ts.setWordStyleId(wordStyleId);
-
-                        styleMap.put(styleType, ts);
-                        log.debug("从段落提取样式: {} -> {}, wordStyleId: {}", styleId, styleType, wordStyleId);
-                    }
+            if (styleType == null) {
+                continue;
+            }
+
+            if ("BODY".equals(styleType)) {
+                // 正文只统计抽中的段落，未抽中的不读取文本
+                if (bodySeen++ % stride != 0) {
+                    continue;
+                }
+                if (unstyled && paragraph.getText().trim().isEmpty()) {
+                    continue;
+                }
+                bodyHistogram.add(bodyStyleKey(paragraph), i);
+                if (styleId != null) {
+                    bodyStyleIdCounts.merge(styleId, 1, Integer::sum);
+                }
+            } else if (!styleMap.containsKey(styleType)) {
+                // 对于标题，保持"先入为主"策略（通常文档结构靠前的标题是准的）
+                TemplateStyle ts = extractFromParagraph(paragraph, templateId, styleType, styleId);
+                if (ts != null) {
+                    // 使用探测到的样式 ID 或原始样式 ID
+                    String wordStyleId = detectedStyleIds.getOrDefault(styleType, styleId);
+                    ts.setWordStyleId(wordStyleId);
+
+                    styleMap.put(styleType, ts);
+                    log.debug("从段落提取样式: {} -> {}, wordStyleId: {}", styleId, styleType, wordStyleId);
                 }
             }
         }
 
-        // 处理正文样式：选择最频繁的配置
-        if (!bodyCandidates.isEmpty()) {
-            TemplateStyle bestBodyStyle = findMostFrequentStyle(bodyCandidates);
+        // 处理正文样式：选择最频繁的配置，只为它构建 TemplateStyle
+        if (bodyHistogram.total() > 0) {
+            XWPFParagraph bestParagraph = paragraphs.get(bodyHistogram.mostFrequentFirstIndex());
+            TemplateStyle bestBodyStyle = extractFromParagraph(bestParagraph, templateId, "BODY",
+                    bestParagraph.getStyleID());
 
             // 确定使用哪个 Word Style ID
             String bestStyleId = null;
@@ -239,50 +304,113 @@ public class StyleExtractor {
 
             bestBodyStyle.setWordStyleId(bestStyleId);
             styleMap.put("BODY", bestBodyStyle);
-            log.info("提取正文样式完成，基于 {} 个段落样本，选定字号: {}, 字体: {}",
-                    bodyCandidates.size(), bestBodyStyle.getFontSize(), bestBodyStyle.getFontFamily());
+            log.info("提取正文样式完成，基于 {} 个段落样本（{} 种特征），选定字号: {}, 字体: {}",
+                    bodyHistogram.total(), bodyHistogram.size(),
+                    bestBodyStyle.getFontSize(), bestBodyStyle.getFontFamily());
         }
     }
 
     /**
-     * 找出列表中出现最频繁的样式配置
+     * 正文段落的字符特征哈希（第一个 Run 的字体、字号、加粗、斜体、颜色），
+     * 与 extractFromParagraph 提取的字符属性一一对应，用于比较视觉一致性，忽略间距等微小差异
      */
-    private static TemplateStyle findMostFrequentStyle(List<TemplateStyle> styles) {
-        if (styles.isEmpty()) {
-            return null;
+    static long bodyStyleKey(XWPFParagraph paragraph) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        if (runs.isEmpty()) {
+            return 0L;
         }
+        XWPFRun run = runs.get(0);
+
+        String fontFamily = run.getFontFamily();
+        String color = run.getColor();
+        long h = fontFamily == null || fontFamily.isEmpty() ? 0 : fontFamily.hashCode();
+        h = h * 0x100000001B3L + (color == null ? 0 : color.hashCode());
+        // 字号按半磅取整，与 w:sz 的存储精度一致
+        Double fontSize = run.getFontSizeAsDouble();
+        h = h * 0x100000001B3L + (fontSize == null ? 0 : Math.max(Math.round(fontSize * 2), 0));
+        h = (h << 3) | (run.isBold() ? 4 : 0) | (run.isItalic() ? 2 : 0) | 1;
+        // 打散高低位，避免开放寻址时聚集；0 留给没有 Run 的段落
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h == 0L ? 1L : h;
+    }
 
-        // 使用特征字符串来分组统计
-        Map<String, Integer> frequencyMap = new HashMap<>();
-        Map<String, TemplateStyle> keyToStyleMap = new HashMap<>();
+    /**
+     * 正文特征计数：以 long 哈希为键的开放寻址表，记录每种特征的出现次数和第一次出现的段落下标
+     */
+    static final class StyleHistogram {
+
+        private long[] keys = new long[16];
+        private int[] counts = new int[16];
+        private int[] firstIndexes = new int[16];
+        private int size;
+        private int total;
+
+        void add(long key, int paragraphIndex) {
+            int slot = find(keys, key);
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                firstIndexes[slot] = paragraphIndex;
+                size++;
+            }
+            counts[slot]++;
+            total++;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        /**
+         * 出现次数最多的特征第一次出现的段落下标；次数相同时取先出现的
+         */
+        int mostFrequentFirstIndex() {
+            int best = -1;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (counts[slot] == 0) {
+                    continue;
+                }
+                if (best < 0 || counts[slot] > counts[best]
+                        || counts[slot] == counts[best] && firstIndexes[slot] < firstIndexes[best]) {
+                    best = slot;
+                }
+            }
+            return best < 0 ? -1 : firstIndexes[best];
+        }
 
-        for (TemplateStyle style : styles) {
-            String key = generateStyleFingerprint(style);
-            frequencyMap.merge(key, 1, Integer::sum);
-            keyToStyleMap.putIfAbsent(key, style);
+        int size() {
+            return size;
         }
 
-        // 找出最频繁的 key
-        String bestKey = frequencyMap.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        int total() {
+            return total;
+        }
 
-        return keyToStyleMap.get(bestKey);
-    }
+        private int find(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = (int) key & mask;
+            while (counts[slot] != 0 && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
 
-    /**
-     * 生成样式的指纹特征（用于比较视觉一致性）
-     */
-    private static String generateStyleFingerprint(TemplateStyle s) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("font=").append(s.getFontFamily()).append(";");
-        sb.append("size=").append(s.getFontSize()).append(";");
-        sb.append("bold=").append(s.getBold()).append(";");
-        sb.append("italic=").append(s.getItalic()).append(";");
-        sb.append("color=").append(s.getFontColor()).append(";");
-        // 忽略间距等微小差异，主要关注字体特征
-        return sb.toString();
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int[] oldFirst = firstIndexes;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            firstIndexes = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                    firstIndexes[slot] = oldFirst[i];
+                }
+            }
+        }
     }
 
     /**
@@ -435,4 +563,42 @@ public class StyleExtractor {
 
         return styles;
     }
+
+    /**
+     * 把调用方持有的 ZipFile 提供给 OPCPackage，关闭文档时不关闭底层压缩包
+     */
+    private static final class SharedZipEntrySource implements ZipEntrySource {
+
+        private final ZipFile zip;
+        private boolean closed;
+
+        SharedZipEntrySource(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public Enumeration<? extends ZipArchiveEntry> getEntries() {
+            return zip.getEntries();
+        }
+
+        @Override
+        public ZipArchiveEntry getEntry(String path) {
+            return zip.getEntry(path);
+        }
+
+        @Override
+        public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+            return zip.getInputStream(entry);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
 }
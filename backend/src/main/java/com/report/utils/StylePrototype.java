@@ -0,0 +1,66 @@
+package com.report.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+
+import java.util.function.Consumer;
+
+/**
+ * 预先编译好的段落 / 字符格式
+ * 用 POI 的 setter 在一个脱离文档的段落上设置一次格式，保存得到的 pPr / rPr，
+ * 之后每个新段落和文字片段直接复制这两个节点，不再逐项调用 setter。
+ * 编译后不再修改，可在多个线程中共享
+ */
+public final class StylePrototype {
+
+    public static final StylePrototype NONE = new StylePrototype(null, null);
+
+    private final CTPPr paragraphProperties;
+    private final CTRPr runProperties;
+
+    private StylePrototype(CTPPr paragraphProperties, CTRPr runProperties) {
+        this.paragraphProperties = paragraphProperties;
+        this.runProperties = runProperties;
+    }
+
+    /**
+     * 编译格式
+     *
+     * @param paragraphFormat 段落格式设置，只调用一次
+     * @param runFormat       字符格式设置，只调用一次
+     */
+    public static StylePrototype compile(Consumer<XWPFParagraph> paragraphFormat, Consumer<XWPFRun> runFormat) {
+        CTP ctp = CTP.Factory.newInstance();
+        XWPFParagraph paragraph = new XWPFParagraph(ctp, HtmlDocxWriter.DetachedOwner.DOCUMENT);
+        XWPFRun run = paragraph.createRun();
+        paragraphFormat.accept(paragraph);
+        runFormat.accept(run);
+
+        CTR r = run.getCTR();
+        return new StylePrototype(
+                ctp.isSetPPr() ? (CTPPr) ctp.getPPr().copy() : null,
+                r.isSetRPr() ? (CTRPr) r.getRPr().copy() : null);
+    }
+
+    /**
+     * 为新建的段落设置段落格式（替换已有的 pPr）
+     */
+    public void formatParagraph(XWPFParagraph paragraph) {
+        if (paragraphProperties != null) {
+            paragraph.getCTP().setPPr(paragraphProperties);
+        }
+    }
+
+    /**
+     * 为新建的文字片段设置字符格式（替换已有的 rPr）
+     */
+    public void formatRun(XWPFRun run) {
+        if (runProperties != null) {
+            run.getCTR().setRPr(runProperties);
+        }
+    }
+}
@@ -2,14 +2,15 @@ package com.report.utils;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 public class WordUtil {
 
@@ -26,83 +27,29 @@ public class WordUtil {
         }
     }
 
+    /**
+     * 解析上传文件的章节结构（见 DocxHeadingParser）
+     */
     public static List<SectionNode> parseStructure(MultipartFile file) throws IOException {
-        List<SectionNode> roots = new ArrayList<>();
-        Stack<SectionNode> stack = new Stack<>();
-
-        try (XWPFDocument doc = new XWPFDocument(file.getInputStream())) {
-            for (XWPFParagraph p : doc.getParagraphs()) {
-                String text = p.getText().trim();
-                if (text.isEmpty()) {
-                    continue;
-                }
-
-                int level = getHeadingLevel(doc, p);
-                if (level > 0) {
-                    SectionNode newNode = new SectionNode(text, level);
-
-                    while (!stack.isEmpty() && stack.peek().getLevel() >= level) {
-                        stack.pop();
-                    }
-
-                    if (stack.isEmpty()) {
-                        roots.add(newNode);
-                    } else {
-                        stack.peek().getChildren().add(newNode);
-                    }
-                    stack.push(newNode);
-                }
-            }
-        }
-        return roots;
+        return parseStructure(file.getBytes());
     }
 
-    private static int getHeadingLevel(XWPFDocument doc, XWPFParagraph p) {
-        String styleID = p.getStyleID();
-        if (styleID == null)
-            return 0;
-
-        // 1. Check style ID
-        int level = matchLevel(styleID);
-        if (level > 0)
-            return level;
-
-        // 2. Check style Name (if available)
-        if (doc.getStyles() != null) {
-            org.apache.poi.xwpf.usermodel.XWPFStyle style = doc.getStyles().getStyle(styleID);
-            if (style != null && style.getName() != null) {
-                level = matchLevel(style.getName());
-                if (level > 0)
-                    return level;
-            }
+    /**
+     * 解析内存中 docx 内容的章节结构
+     */
+    public static List<SectionNode> parseStructure(byte[] docx) throws IOException {
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(docx))) {
+            return DocxHeadingParser.parse(zip);
         }
-
-        return 0;
     }
 
-    private static int matchLevel(String text) {
-        if (text == null)
-            return 0;
-        String lower = text.trim().toLowerCase();
-
-        // Exact digit match (e.g. "1", "2")
-        if (lower.matches("^[1-6]$")) {
-            return Integer.parseInt(lower);
+    /**
+     * 解析已保存文件的章节结构
+     */
+    public static List<SectionNode> parseStructure(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(Files.newByteChannel(file))) {
+            return DocxHeadingParser.parse(zip);
         }
-
-        // Regex for "Heading 1", "标题 1", "Head 1" etc.
-        // Matches typical patterns like "heading 1", "heading1", "标题1", "title 1"
-        // Also handling potential extra chars if safe, but restricted to ensure it's a
-        // heading.
-        // We match: (any start) + (heading|title|标题) + (optional space) + (1-6) + (any
-        // end)
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(".*(heading|title|标题)\\s*([1-6]).*");
-        java.util.regex.Matcher matcher = pattern.matcher(lower);
-        if (matcher.matches()) {
-            return Integer.parseInt(matcher.group(2));
-        }
-
-        return 0;
     }
 
     // Maintain old method for backward compatibility if needed, or update
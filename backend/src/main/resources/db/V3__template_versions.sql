@@ -0,0 +1,14 @@
+-- ============================================
+-- 数据库迁移：模板版本
+-- 每个 report_template 行是模板的一个不可变版本，修改模板时复制出新版本，
+-- 报告实例的 template_id 固定在创建时的版本上
+-- ============================================
+
+ALTER TABLE report_template
+ADD COLUMN family_id BIGINT COMMENT '模板族ID（第一个版本的ID），同一模板的各版本相同' AFTER base_docx_url,
+ADD COLUMN version_no INT NOT NULL DEFAULT 1 COMMENT '版本号，每次修改生成新版本' AFTER family_id;
+
+-- 现有模板作为各自模板族的第一个版本
+UPDATE report_template SET family_id = id WHERE family_id IS NULL;
+
+CREATE INDEX idx_family_version ON report_template (family_id, version_no);
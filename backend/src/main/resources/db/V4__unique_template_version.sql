@@ -0,0 +1,9 @@
+-- ============================================
+-- 数据库迁移：模板族内版本号唯一
+-- 修改模板时先锁住模板族的第一个版本再生成新版本，唯一约束兜底，防止并发修改生成相同版本号、版本历史分叉
+-- 已有数据库如存在重复版本号，先按 id 顺序重新编号后再执行
+-- ============================================
+
+ALTER TABLE report_template
+DROP INDEX idx_family_version,
+ADD UNIQUE KEY uk_family_version (family_id, version_no);
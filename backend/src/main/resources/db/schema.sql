@@ -7,10 +7,13 @@ CREATE TABLE IF NOT EXISTS report_template (
     name VARCHAR(100) NOT NULL COMMENT '模板名称，如"研发部通用周报"',
     description VARCHAR(255) COMMENT '模板描述',
     base_docx_url VARCHAR(255) COMMENT '对应的空白Word模板文件存储路径(含占位符)',
+    family_id BIGINT COMMENT '模板族ID（第一个版本的ID），同一模板的各版本相同',
+    version_no INT NOT NULL DEFAULT 1 COMMENT '版本号，修改已有报告固定的版本时复制出新版本并加 1',
     is_active BOOLEAN DEFAULT TRUE COMMENT '是否激活',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='报告模板定义表';
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_family_version (family_id, version_no)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='报告模板定义表（每行是模板的一个版本，已有报告固定的版本不再修改）';
 
 -- 2. 模板章节结构表 (核心扩展表)
 CREATE TABLE IF NOT EXISTS template_section (
@@ -29,7 +32,7 @@ CREATE TABLE IF NOT EXISTS template_section (
 -- 3. 报告实例表 (每一次写报告就是生成一条记录)
 CREATE TABLE IF NOT EXISTS report_instance (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    template_id BIGINT NOT NULL COMMENT '关联模板ID',
+    template_id BIGINT NOT NULL COMMENT '关联模板版本ID（创建时的最新版本）',
     user_id BIGINT COMMENT '创建用户ID',
     report_name VARCHAR(200) COMMENT '报告名称',
     start_date DATE COMMENT '报告周期开始日期',
@@ -72,8 +75,8 @@ CREATE TABLE IF NOT EXISTS reference_material (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='参考资料库';
 
 -- 初始数据：默认周报模板
-INSERT INTO report_template (name, description, is_active) VALUES
-('通用周报模板', '适用于各部门的通用周报格式', TRUE);
+INSERT INTO report_template (name, description, family_id, version_no, is_active) VALUES
+('通用周报模板', '适用于各部门的通用周报格式', 1, 1, TRUE);
 
 -- 默认章节结构
 INSERT INTO template_section (template_id, section_key, title, section_type, sort_order, is_active) VALUES
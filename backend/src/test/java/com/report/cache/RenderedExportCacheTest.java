@@ -0,0 +1,109 @@
+package com.report.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RenderedExportCache 单元测试
+ */
+@DisplayName("渲染结果磁盘缓存测试")
+class RenderedExportCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("命中 - 相同渲染键不应重复渲染")
+    void testHitDoesNotRender() throws IOException {
+        RenderedExportCache cache = new RenderedExportCache(tempDir.toString(), 1 << 20);
+        AtomicInteger renders = new AtomicInteger();
+
+        Path first = cache.get(1L, "aaaa", out -> {
+            renders.incrementAndGet();
+            out.write("v1".getBytes(StandardCharsets.UTF_8));
+        });
+        Path second = cache.get(1L, "aaaa", out -> renders.incrementAndGet());
+
+        assertEquals(first, second);
+        assertEquals(1, renders.get());
+        assertEquals("v1", Files.readString(second));
+        assertEquals(1, cache.stats().getHits());
+    }
+
+    @Test
+    @DisplayName("打开通道 - 打开前文件被删除时重新渲染，打开后被删除仍能读完")
+    void testOpenSurvivesDeletion() throws IOException {
+        RenderedExportCache cache = new RenderedExportCache(tempDir.toString(), 1 << 20);
+        AtomicInteger renders = new AtomicInteger();
+        RenderedExportCache.Renderer renderer = out -> {
+            renders.incrementAndGet();
+            out.write("v1".getBytes(StandardCharsets.UTF_8));
+        };
+
+        Files.delete(cache.get(1L, "aaaa", renderer));
+        try (FileChannel channel = cache.open(1L, "aaaa", renderer)) {
+            assertEquals(2, renders.get(), "文件已被删除时应重新渲染");
+
+            // 同一报告的新版本渲染完成后删除旧文件
+            cache.get(1L, "bbbb", out -> out.write("v2".getBytes(StandardCharsets.UTF_8)));
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            channel.read(buffer, 0);
+            assertEquals("v1", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("新版本 - 应删除同一报告的旧文件，不影响其他报告")
+    void testNewVersionReplacesOldFile() throws IOException {
+        RenderedExportCache cache = new RenderedExportCache(tempDir.toString(), 1 << 20);
+
+        Path old = cache.get(1L, "aaaa", out -> out.write(1));
+        Path other = cache.get(2L, "aaaa", out -> out.write(2));
+        Path current = cache.get(1L, "bbbb", out -> out.write(3));
+
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(other));
+        assertTrue(Files.exists(current));
+    }
+
+    @Test
+    @DisplayName("超出上限 - 应淘汰最久未访问的文件")
+    void testEvictsLeastRecentlyUsed() throws IOException {
+        RenderedExportCache cache = new RenderedExportCache(tempDir.toString(), 250);
+
+        Path first = cache.get(1L, "aaaa", out -> out.write(new byte[100]));
+        Files.setLastModifiedTime(first, FileTime.fromMillis(1000));
+        Path second = cache.get(2L, "aaaa", out -> out.write(new byte[100]));
+        Path third = cache.get(3L, "aaaa", out -> out.write(new byte[100]));
+
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(second));
+        assertTrue(Files.exists(third));
+    }
+
+    @Test
+    @DisplayName("渲染失败 - 不应留下缓存文件")
+    void testFailedRenderLeavesNothing() throws IOException {
+        RenderedExportCache cache = new RenderedExportCache(tempDir.toString(), 1 << 20);
+
+        assertThrows(IOException.class, () -> cache.get(1L, "aaaa", out -> {
+            out.write(1);
+            throw new IOException("渲染失败");
+        }));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
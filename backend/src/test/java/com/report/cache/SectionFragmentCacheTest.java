@@ -0,0 +1,56 @@
+package com.report.cache;
+
+import com.report.utils.DocxFragment;
+import com.report.utils.HtmlDocxWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SectionFragmentCache 单元测试
+ */
+@DisplayName("章节片段缓存测试")
+class SectionFragmentCacheTest {
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    @DisplayName("版本未变化时复用片段，版本变化时只重新渲染该章节")
+    void testReuseUntilVersionChanges() throws IOException {
+        SectionFragmentCache cache = new SectionFragmentCache(1 << 20);
+
+        DocxFragment summary = cache.get(1L, "summary", 10L, 1, "s", () -> render("<p>A</p>"));
+        DocxFragment plan = cache.get(1L, "plan", 11L, 1, "s", () -> render("<p>B</p>"));
+        assertEquals(2, renders.get());
+
+        assertSame(summary, cache.get(1L, "summary", 10L, 1, "s", () -> render("<p>A</p>")));
+        assertSame(plan, cache.get(1L, "plan", 11L, 1, "s", () -> render("<p>B</p>")));
+        assertEquals(2, renders.get());
+
+        DocxFragment updated = cache.get(1L, "summary", 10L, 2, "s", () -> render("<p>A2</p><p>A3</p>"));
+        assertEquals(3, renders.get());
+        assertEquals(2, updated.size());
+        assertSame(plan, cache.get(1L, "plan", 11L, 1, "s", () -> render("<p>B</p>")));
+        assertEquals(2, cache.stats().getSize(), "旧版本片段应被释放");
+    }
+
+    @Test
+    @DisplayName("样式摘要变化时重新渲染")
+    void testStyleHashChange() throws IOException {
+        SectionFragmentCache cache = new SectionFragmentCache(1 << 20);
+
+        cache.get(1L, "summary", 10L, 1, "s1", () -> render("<p>A</p>"));
+        cache.get(1L, "summary", 10L, 1, "s2", () -> render("<p>A</p>"));
+        assertEquals(2, renders.get());
+        assertEquals(1, cache.stats().getSize(), "旧样式摘要的片段应被释放");
+    }
+
+    private DocxFragment render(String html) {
+        renders.incrementAndGet();
+        return HtmlDocxWriter.renderFragment(html, para -> { }, run -> { });
+    }
+}
@@ -0,0 +1,78 @@
+package com.report.cache;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplateDocumentCache 单元测试
+ */
+@DisplayName("模板快照缓存测试")
+class TemplateDocumentCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("打开文档 - 应复制出完整正文，各副本互不影响")
+    void testOpenDocumentCopiesBody() throws Exception {
+        Path template = createTemplate();
+        TemplateSnapshot snapshot = new TemplateDocumentCache(1 << 24).get(template);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument first = snapshot.openDocument(); XWPFDocument second = snapshot.openDocument()) {
+            assertEquals(3, first.getBodyElements().size());
+            assertEquals(2, first.getParagraphs().size());
+            assertEquals(1, first.getTables().size());
+            assertEquals("一、概述", first.getParagraphs().get(0).getText());
+            assertEquals("单元格", first.getTables().get(0).getRow(0).getCell(0).getText());
+
+            XWPFParagraph inserted = first.createParagraph();
+            inserted.createRun().setText("新增内容");
+            assertEquals(2, second.getParagraphs().size(), "修改一个副本不应影响另一个副本");
+
+            first.write(out);
+        }
+
+        try (XWPFDocument reloaded = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(3, reloaded.getParagraphs().size());
+            assertEquals("新增内容", reloaded.getParagraphs().get(2).getText());
+            assertNotNull(reloaded.getDocument().getBody().getSectPr(), "节属性应保留");
+        }
+    }
+
+    @Test
+    @DisplayName("缓存权重 - 按模板包和已解析正文计算")
+    void testWeight() throws Exception {
+        Path template = createTemplate();
+        TemplateSnapshot snapshot = new TemplateDocumentCache(1 << 24).get(template);
+
+        SnapshotDocument.Parts parts = snapshot.getParts();
+        assertTrue(snapshot.weight() > parts.getShellBytes().length + parts.getBodyChars());
+        assertTrue(parts.getShellBytes().length < Files.size(template) * 2);
+    }
+
+    private Path createTemplate() throws Exception {
+        Path path = tempDir.resolve("template.docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream os = Files.newOutputStream(path)) {
+            doc.createParagraph().createRun().setText("一、概述");
+            XWPFTable table = doc.createTable(1, 1);
+            table.getRow(0).getCell(0).setText("单元格");
+            doc.createParagraph().createRun().setText("二、计划");
+            doc.getDocument().getBody().addNewSectPr();
+            doc.write(os);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,81 @@
+package com.report.cache;
+
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplateMetadataCache 单元测试
+ */
+@DisplayName("模板元数据缓存测试")
+class TemplateMetadataCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TemplateMetadataCache cache = new TemplateMetadataCache(100, registry);
+
+    @Test
+    @DisplayName("章节列表 - 只加载一次且不可修改，失效后重新加载")
+    void testSectionsInvalidate() {
+        AtomicInteger loads = new AtomicInteger();
+        List<TemplateSection> loaded = new ArrayList<>(List.of(new TemplateSection()));
+
+        List<TemplateSection> first = cache.sections(1L, () -> {
+            loads.incrementAndGet();
+            return loaded;
+        });
+        List<TemplateSection> second = cache.sections(1L, () -> {
+            loads.incrementAndGet();
+            return loaded;
+        });
+
+        assertEquals(1, loads.get(), "第二次应命中缓存");
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, first::clear);
+
+        cache.invalidate(1L);
+        cache.sections(1L, () -> {
+            loads.incrementAndGet();
+            return loaded;
+        });
+        assertEquals(2, loads.get(), "失效后应重新加载");
+    }
+
+    @Test
+    @DisplayName("模板行 - 不存在的模板不缓存")
+    void testMissingTemplateNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.template(5L, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        ReportTemplate template = new ReportTemplate();
+        assertSame(template, cache.template(5L, () -> {
+            loads.incrementAndGet();
+            return template;
+        }));
+        assertSame(template, cache.template(5L, () -> null));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("命中率 - 按缓存分别发布指标")
+    void testHitRatioGauge() {
+        cache.styles(1L, List::of);
+        cache.styles(1L, List::of);
+        cache.styles(1L, List::of);
+        cache.styles(2L, () -> null);
+
+        assertEquals(0.5, registry.get("template.metadata.cache.hit.ratio").tag("cache", "styles").gauge().value());
+        assertEquals(2.0, registry.get("template.metadata.cache.size").tag("cache", "styles").gauge().value());
+        assertEquals(0.0, registry.get("template.metadata.cache.hit.ratio").tag("cache", "sections").gauge().value());
+    }
+}
@@ -0,0 +1,106 @@
+package com.report.cache;
+
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractNum;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyle;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STStyleType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplatePartsCache 单元测试
+ */
+@DisplayName("模板样式部件缓存测试")
+class TemplatePartsCacheTest {
+
+    private static final String THEME_XML =
+            "<a:theme xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\" name=\"测试主题\"/>";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("复制部件 - 新文档应获得模板的样式、编号和主题")
+    void testApplyCopiesParts() throws Exception {
+        Path template = createTemplate();
+        TemplatePartsCache cache = new TemplatePartsCache(1 << 20);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument doc = new XWPFDocument()) {
+            cache.get(template).applyTo(doc);
+            assertNotNull(doc.getStyles().getStyle("Heading1"));
+            assertNotNull(doc.getNumbering().getAbstractNum(BigInteger.ONE));
+            doc.createParagraph().createRun().setText("正文");
+            doc.write(out);
+        }
+
+        try (XWPFDocument reloaded = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            assertNotNull(reloaded.getStyles().getStyle("Heading1"));
+            PackagePart theme = reloaded.getPackage()
+                    .getPart(PackagingURIHelper.createPartName("/word/theme/theme1.xml"));
+            assertNotNull(theme, "主题部件应被复制");
+            assertEquals(THEME_XML, new String(theme.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("缓存 - 模板未变化时不应重新提取，修改后应重新提取")
+    void testCacheHitAndInvalidation() throws Exception {
+        Path template = createTemplate();
+        TemplatePartsCache cache = new TemplatePartsCache(1 << 20);
+
+        TemplateParts first = cache.get(template);
+        assertSame(first, cache.get(template));
+        assertEquals(1, cache.stats().getHits());
+
+        Files.setLastModifiedTime(template,
+                FileTime.fromMillis(Files.getLastModifiedTime(template).toMillis() + 1000));
+        assertNotSame(first, cache.get(template));
+        assertEquals(1, cache.stats().getSize(), "旧版本条目应被清除");
+    }
+
+    private Path createTemplate() throws Exception {
+        Path path = tempDir.resolve("template.docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream os = Files.newOutputStream(path)) {
+            CTStyle ctStyle = CTStyle.Factory.newInstance();
+            ctStyle.setStyleId("Heading1");
+            ctStyle.setType(STStyleType.PARAGRAPH);
+            ctStyle.addNewName().setVal("heading 1");
+            doc.createStyles().addStyle(new XWPFStyle(ctStyle));
+
+            CTAbstractNum abstractNum = CTAbstractNum.Factory.newInstance();
+            abstractNum.setAbstractNumId(BigInteger.ONE);
+            doc.createNumbering().addAbstractNum(new XWPFAbstractNum(abstractNum));
+
+            PackagePartName themeName = PackagingURIHelper.createPartName("/word/theme/theme1.xml");
+            PackagePart theme = doc.getPackage().createPart(themeName, XWPFRelation.THEME.getContentType());
+            try (OutputStream themeOut = theme.getOutputStream()) {
+                themeOut.write(THEME_XML.getBytes(StandardCharsets.UTF_8));
+            }
+            doc.getPackagePart().addRelationship(themeName, TargetMode.INTERNAL, XWPFRelation.THEME.getRelation());
+
+            doc.createParagraph().createRun().setText("标题");
+            doc.write(os);
+        }
+        return path;
+    }
+}
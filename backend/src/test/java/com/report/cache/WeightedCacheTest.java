@@ -0,0 +1,79 @@
+package com.report.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WeightedCache 单元测试
+ */
+@DisplayName("权重缓存测试")
+class WeightedCacheTest {
+
+    @Test
+    @DisplayName("命中与未命中 - 应正确计数且只加载一次")
+    void testHitAndMissCounters() throws IOException {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", 100, String::length);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("abc", cache.get("k", () -> {
+            loads.incrementAndGet();
+            return "abc";
+        }));
+        assertEquals("abc", cache.get("k", () -> {
+            loads.incrementAndGet();
+            return "xyz";
+        }));
+
+        WeightedCache.Stats stats = cache.stats();
+        assertEquals(1, loads.get(), "第二次应命中缓存");
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(3, stats.getWeight());
+    }
+
+    @Test
+    @DisplayName("超出权重上限 - 应淘汰最久未使用的条目")
+    void testEvictsLeastRecentlyUsed() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", 10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertNotNull(cache.getIfPresent("a"), "访问 a 使其成为最近使用");
+
+        cache.put("c", "cccc");
+
+        assertNotNull(cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"), "b 应被淘汰");
+        assertNotNull(cache.getIfPresent("c"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(8, cache.stats().getWeight());
+    }
+
+    @Test
+    @DisplayName("单个条目超过上限 - 不应缓存")
+    void testOversizedEntryNotCached() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", 3, String::length);
+        cache.put("a", "aaaa");
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.stats().getWeight());
+    }
+
+    @Test
+    @DisplayName("按条件失效 - 应同时扣减权重")
+    void testInvalidateIf() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", 100, String::length);
+        cache.put("t1:a", "aa");
+        cache.put("t1:b", "bb");
+        cache.put("t2:a", "cc");
+
+        cache.invalidateIf(key -> key.startsWith("t1:"));
+
+        assertEquals(1, cache.stats().getSize());
+        assertEquals(2, cache.stats().getWeight());
+    }
+}
@@ -0,0 +1,216 @@
+package com.report.service.impl;
+
+import com.report.common.ExportOverloadedException;
+import com.report.dto.BatchExportRequest;
+import com.report.dto.RenderedReport;
+import com.report.entity.ReportInstance;
+import com.report.service.ExportService;
+import com.report.service.ReportService;
+import com.report.service.TemplateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * BatchExportServiceImpl 单元测试
+ */
+@DisplayName("批量导出测试")
+class BatchExportServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("批量导出 - 应打包所有报告，重名自动编号，失败报告记录在错误清单中")
+    void testExportZip() throws IOException {
+        List<ReportInstance> reports = List.of(report(1L, "周报"), report(2L, "周报"), report(3L, "损坏的报告"));
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.listByIds(anyList())).thenReturn(new ArrayList<>(reports));
+
+        ExportService exportService = mock(ExportService.class);
+        when(exportService.render(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            if (id == 3L) {
+                throw new IOException("模板损坏");
+            }
+            Path file = tempDir.resolve(id + ".docx");
+            Files.writeString(file, "docx-" + id);
+            return new RenderedReport(id, "周报", file, "key" + id);
+        });
+
+        BatchExportRequest request = new BatchExportRequest();
+        request.setReportIds(List.of(1L, 2L, 3L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new BatchExportServiceImpl(reportService, mock(TemplateService.class), exportService, executor, 2, 5).exportZip(request, response);
+
+        Map<String, String> entries = readZip(response.getContentAsByteArray());
+        assertEquals("application/zip", response.getContentType());
+        assertEquals(3, entries.size());
+        assertTrue(entries.containsKey("周报.docx"));
+        assertTrue(entries.containsKey("周报 (2).docx"));
+        assertTrue(entries.get("导出失败.txt").contains("模板损坏"));
+        assertEquals(List.of("docx-1", "docx-2"),
+                entries.entrySet().stream().filter(e -> e.getKey().endsWith(".docx"))
+                        .map(Map.Entry::getValue).sorted().toList());
+    }
+
+    @Test
+    @DisplayName("渲染结果被缓存清理 - 应记入错误清单，其余条目完整")
+    void testEvictedFile() throws IOException {
+        List<ReportInstance> reports = List.of(report(1L, "周报"), report(2L, "月报"));
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.listByIds(anyList())).thenReturn(new ArrayList<>(reports));
+
+        ExportService exportService = mock(ExportService.class);
+        when(exportService.render(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            Path file = tempDir.resolve(id + ".docx");
+            if (id == 1L) {
+                Files.writeString(file, "docx-1");
+            }
+            return new RenderedReport(id, "报告", file, "key" + id);
+        });
+
+        BatchExportRequest request = new BatchExportRequest();
+        request.setReportIds(List.of(1L, 2L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new BatchExportServiceImpl(reportService, mock(TemplateService.class), exportService, executor, 2, 5).exportZip(request, response);
+
+        Map<String, String> entries = readZip(response.getContentAsByteArray());
+        assertEquals("docx-1", entries.get("周报.docx"));
+        assertTrue(entries.get("导出失败.txt").contains("月报"));
+    }
+
+    @Test
+    @DisplayName("并行度 - 未配置时只占导出线程池的一半")
+    void testDefaultParallelismLeavesThreads() throws IOException {
+        List<ReportInstance> reports = List.of(report(1L, "周报"), report(2L, "月报"), report(3L, "季报"));
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.listByIds(anyList())).thenReturn(new ArrayList<>(reports));
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExportService exportService = mock(ExportService.class);
+        when(exportService.render(anyLong())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                Long id = invocation.getArgument(0);
+                Path file = tempDir.resolve(id + ".docx");
+                Files.writeString(file, "docx-" + id);
+                return new RenderedReport(id, "报告", file, "key" + id);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        BatchExportRequest request = new BatchExportRequest();
+        request.setReportIds(List.of(1L, 2L, 3L));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new BatchExportServiceImpl(reportService, mock(TemplateService.class), exportService, executor, 0, 5)
+                .exportZip(request, response);
+
+        assertEquals(3, readZip(response.getContentAsByteArray()).size());
+        assertEquals(1, maxRunning.get(), "两个导出线程中应只占用一个");
+    }
+
+    @Test
+    @DisplayName("线程池已满 - 第一个任务被拒绝时返回 429，不写出 zip 响应头")
+    void testOverloaded() throws Exception {
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.listByIds(anyList())).thenReturn(new ArrayList<>(List.of(report(1L, "周报"))));
+        ThreadPoolExecutor full = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            full.execute(() -> awaitQuietly(release));
+            full.execute(() -> awaitQuietly(release));
+
+            BatchExportRequest request = new BatchExportRequest();
+            request.setReportIds(List.of(1L));
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            BatchExportServiceImpl service = new BatchExportServiceImpl(reportService, mock(TemplateService.class),
+                    mock(ExportService.class), full, 2, 5);
+
+            ExportOverloadedException e = assertThrows(ExportOverloadedException.class,
+                    () -> service.exportZip(request, response));
+            assertEquals(5, e.getRetryAfterSeconds());
+            assertNull(response.getContentType());
+            assertNull(response.getHeader("Content-Disposition"));
+        } finally {
+            release.countDown();
+            full.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("无条件 - 既没有报告列表也没有模板时应报错")
+    void testRequiresSelection() {
+        BatchExportServiceImpl service = new BatchExportServiceImpl(mock(ReportService.class),
+                mock(TemplateService.class), mock(ExportService.class), executor, 2, 5);
+
+        assertThrows(RuntimeException.class,
+                () -> service.exportZip(new BatchExportRequest(), new MockHttpServletResponse()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, String> readZip(byte[] bytes) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zis.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private ReportInstance report(Long id, String name) {
+        ReportInstance report = new ReportInstance();
+        report.setId(id);
+        report.setReportName(name);
+        return report;
+    }
+}
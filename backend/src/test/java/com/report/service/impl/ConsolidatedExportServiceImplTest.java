@@ -0,0 +1,139 @@
+package com.report.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.report.cache.TemplateDocumentCache;
+import com.report.cache.TemplatePartsCache;
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.mapper.ReportContentMapper;
+import com.report.service.ReportService;
+import com.report.service.TemplateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ConsolidatedExportServiceImpl 单元测试
+ */
+@DisplayName("部门汇总导出测试")
+class ConsolidatedExportServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        forkJoinPool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("汇总导出 - 每个章节标题下应依次包含各成员的内容")
+    void testExportConsolidated() throws IOException {
+        Files.createDirectories(tempDir.resolve("templates"));
+        try (XWPFDocument doc = new XWPFDocument();
+                OutputStream os = Files.newOutputStream(tempDir.resolve("templates").resolve("weekly.docx"))) {
+            doc.createParagraph().createRun().setText("总结");
+            doc.createParagraph().createRun().setText("计划");
+            doc.write(os);
+        }
+
+        ReportTemplate template = new ReportTemplate();
+        template.setId(7L);
+        template.setName("周报");
+        template.setBaseDocxUrl("weekly.docx");
+
+        TemplateService templateService = mock(TemplateService.class);
+        when(templateService.getById(7L)).thenReturn(template);
+        when(templateService.getVersionIds(7L)).thenReturn(List.of(7L));
+        when(templateService.getTemplateSections(7L)).thenReturn(List.of(section("summary", "总结"),
+                section("plan", "计划")));
+        when(templateService.getTemplateStyleMap(7L)).thenReturn(new HashMap<>());
+
+        ReportService reportService = mock(ReportService.class);
+        when(reportService.list(any(Wrapper.class)))
+                .thenReturn(new ArrayList<>(List.of(report(1L, 101L), report(2L, 102L))));
+
+        ReportContentMapper contentMapper = mock(ReportContentMapper.class);
+        when(contentMapper.selectList(any(Wrapper.class))).thenReturn(List.of(
+                content(1L, "summary", "<p>完成A</p>"),
+                content(2L, "summary", "<ul><li>完成B</li></ul>"),
+                content(2L, "plan", "<p>计划C</p>"),
+                content(1L, "plan", " ")));
+
+        ConsolidatedExportServiceImpl service = new ConsolidatedExportServiceImpl(reportService, contentMapper,
+                templateService, new TemplateBasedExportService(new TemplateDocumentCache(1 << 24)),
+                new WordExportService(new TemplatePartsCache(1 << 20)), forkJoinPool,
+                new ExportAdmission(0, 12, 24, 50, 10_000, 5, meterRegistry), meterRegistry);
+        ReflectionTestUtils.setField(service, "uploadDir", tempDir.toString());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.exportConsolidated(7L, LocalDate.of(2024, 5, 8), response);
+
+        List<String> texts = new ArrayList<>();
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            for (XWPFParagraph para : doc.getParagraphs()) {
+                texts.add(para.getText());
+            }
+            XWPFParagraph listItem = doc.getParagraphs().get(4);
+            assertNotNull(listItem.getNumID(), "成员内容中的列表应保留编号");
+        }
+        assertEquals(List.of("总结", "用户 101", "完成A", "用户 102", "完成B", "计划", "用户 102", "计划C"), texts);
+
+        for (String phase : List.of("load", "fragments", "template-open", "heading-match", "content-insert",
+                "write", "send")) {
+            assertEquals(1, meterRegistry.get("export.phase.duration").tags("phase", phase, "mode", "template",
+                    "template", "7").timer().count(), "应记录阶段耗时: " + phase);
+        }
+    }
+
+    private TemplateSection section(String key, String title) {
+        TemplateSection section = new TemplateSection();
+        section.setSectionKey(key);
+        section.setTitle(title);
+        return section;
+    }
+
+    private ReportInstance report(Long id, Long userId) {
+        ReportInstance report = new ReportInstance();
+        report.setId(id);
+        report.setUserId(userId);
+        report.setTemplateId(7L);
+        return report;
+    }
+
+    private ReportContent content(Long reportId, String key, String html) {
+        ReportContent content = new ReportContent();
+        content.setReportInstanceId(reportId);
+        content.setSectionKey(key);
+        content.setContentHtml(html);
+        return content;
+    }
+}
@@ -0,0 +1,76 @@
+package com.report.service.impl;
+
+import com.report.common.ExportOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExportAdmission 单元测试
+ */
+@DisplayName("导出准入控制测试")
+class ExportAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("预算不足时排队，释放后按顺序准入")
+    void testQueueUntilReleased() throws Exception {
+        ExportAdmission admission = new ExportAdmission(100, 1, 1, 10, 5_000, 5, meterRegistry);
+
+        ExportAdmission.Permit first = admission.acquire(80);
+        CompletableFuture<ExportAdmission.Permit> second = CompletableFuture.supplyAsync(() -> admission.acquire(50));
+
+        waitForQueue(admission, 1);
+        assertFalse(second.isDone(), "预算不足时应排队等待");
+
+        first.close();
+        ExportAdmission.Permit permit = second.get(5, TimeUnit.SECONDS);
+        assertEquals(50, admission.getInUseBytes());
+        permit.close();
+        permit.close();
+        assertEquals(0, admission.getInUseBytes(), "重复关闭不应重复归还预算");
+    }
+
+    @Test
+    @DisplayName("等待超时或队列已满时拒绝，并计入指标")
+    void testReject() {
+        ExportAdmission admission = new ExportAdmission(100, 1, 1, 0, 50, 7, meterRegistry);
+
+        try (ExportAdmission.Permit ignored = admission.acquire(100)) {
+            ExportOverloadedException e = assertThrows(ExportOverloadedException.class,
+                    () -> admission.acquire(10));
+            assertEquals(7, e.getRetryAfterSeconds());
+        }
+
+        ExportAdmission waiting = new ExportAdmission(100, 1, 1, 10, 50, 5, meterRegistry);
+        try (ExportAdmission.Permit ignored = waiting.acquire(60)) {
+            assertThrows(ExportOverloadedException.class, () -> waiting.acquire(60));
+            assertEquals(0, waiting.getWaiting());
+        }
+        assertEquals(2, meterRegistry.get("export.admission.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("单次估算超过整个预算时按独占执行")
+    void testOversizedJobRunsAlone() {
+        ExportAdmission admission = new ExportAdmission(100, 1, 1, 10, 50, 5, meterRegistry);
+        try (ExportAdmission.Permit ignored = admission.acquire(1_000)) {
+            assertEquals(100, admission.getInUseBytes());
+        }
+        assertEquals(0, admission.getInUseBytes());
+    }
+
+    private void waitForQueue(ExportAdmission admission, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.getWaiting() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(depth, admission.getWaiting());
+    }
+}
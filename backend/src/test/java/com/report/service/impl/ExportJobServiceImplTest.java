@@ -0,0 +1,138 @@
+package com.report.service.impl;
+
+import com.report.common.ExportOverloadedException;
+import com.report.dto.ExportJob;
+import com.report.dto.RenderedReport;
+import com.report.service.ExportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExportJobServiceImpl 单元测试
+ */
+@DisplayName("异步导出任务测试")
+class ExportJobServiceImplTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("提交任务 - 应在线程池中渲染并记录排队时间")
+    void testJobCompletes() throws Exception {
+        release.countDown();
+        ExportJobServiceImpl service = new ExportJobServiceImpl(new StubExportService(), executor, registry, 60, 5);
+
+        ExportJob job = service.submit(7L);
+        awaitFinished(job);
+
+        assertEquals(ExportJob.Status.SUCCESS, service.getJob(job.getJobId()).getStatus());
+        assertEquals(7L, job.getResult().getReportId());
+        assertEquals(1, registry.get("export.jobs.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("队列已满 - 应拒绝新任务并计数")
+    void testRejectsWhenQueueFull() {
+        ExportJobServiceImpl service = new ExportJobServiceImpl(new StubExportService(), executor, registry, 60, 5);
+
+        service.submit(1L);
+        service.submit(2L);
+
+        ExportOverloadedException e = assertThrows(ExportOverloadedException.class, () -> service.submit(3L));
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("export.jobs.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("渲染失败 - 任务应标记为失败并保留原因")
+    void testJobFails() throws Exception {
+        release.countDown();
+        ExportService failing = new StubExportService() {
+            @Override
+            public RenderedReport render(Long reportId) throws IOException {
+                throw new IOException("模板损坏");
+            }
+        };
+        ExportJobServiceImpl service = new ExportJobServiceImpl(failing, executor, registry, 60, 5);
+
+        ExportJob job = service.submit(1L);
+        awaitFinished(job);
+
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+        assertEquals("模板损坏", job.getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("下载 - 渲染文件已被删除时提示文件已失效")
+    void testDownloadExpiredFile() throws Exception {
+        release.countDown();
+        ExportService evicted = new StubExportService() {
+            @Override
+            public void sendRendered(RenderedReport rendered, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
+                throw new NoSuchFileException(rendered.getFile().toString());
+            }
+        };
+        ExportJobServiceImpl service = new ExportJobServiceImpl(evicted, executor, registry, 60, 5);
+
+        ExportJob job = service.submit(1L);
+        awaitFinished(job);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.download(job.getJobId(), null, null));
+        assertEquals("导出文件已失效，请重新导出", e.getMessage());
+    }
+
+    private void awaitFinished(ExportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished(), "任务应在超时前完成");
+    }
+
+    private class StubExportService implements ExportService {
+
+        @Override
+        public void exportToWord(Long reportId, HttpServletRequest request, HttpServletResponse response) {
+        }
+
+        @Override
+        public RenderedReport render(Long reportId) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new RenderedReport(reportId, "报告" + reportId, Path.of("report.docx"), "key");
+        }
+
+        @Override
+        public void sendRendered(RenderedReport rendered, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.report.service.impl;
+
+import com.report.entity.ReportTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExportPhases 单元测试
+ */
+@DisplayName("导出阶段计时测试")
+class ExportPhasesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("模板标签 - 同一模板的各版本使用模板族 ID")
+    void testTagsFamilyId() throws Exception {
+        for (long versionId : new long[] {3L, 8L}) {
+            try (ExportPhases phases = ExportPhases.begin(registry)) {
+                ExportPhases.time("load", () -> null);
+                phases.tag("template", template(versionId, 3L));
+                phases.success();
+            }
+        }
+
+        assertEquals(2, registry.get("export.duration").tag("template", "3").tag("outcome", "success")
+                .timer().count());
+        assertEquals(2, registry.get("export.phase.duration").tag("phase", "load").timer().count());
+        assertEquals(1, registry.get("export.duration").timers().size());
+    }
+
+    @Test
+    @DisplayName("导出失败 - 按 failure 记录")
+    void testFailureOutcome() {
+        assertThrows(IllegalStateException.class, () -> {
+            try (ExportPhases ignored = ExportPhases.begin(registry)) {
+                throw new IllegalStateException("报告不存在");
+            }
+        });
+
+        assertEquals(1, registry.get("export.duration").tag("mode", "unknown").tag("outcome", "failure")
+                .timer().count());
+    }
+
+    private ReportTemplate template(Long id, Long familyId) {
+        ReportTemplate template = new ReportTemplate();
+        template.setId(id);
+        template.setFamilyId(familyId);
+        return template;
+    }
+}
@@ -0,0 +1,165 @@
+package com.report.service.impl;
+
+import com.report.cache.TemplateMetadataCache;
+import com.report.dto.ExportReadModel;
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.mapper.ReportContentMapper;
+import com.report.mapper.ReportInstanceMapper;
+import com.report.mapper.ReportTemplateMapper;
+import com.report.mapper.TemplateSectionMapper;
+import com.report.mapper.TemplateStyleMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ExportReadModelLoader 单元测试
+ */
+@DisplayName("导出读模型加载测试")
+class ExportReadModelLoaderTest {
+
+    private final ReportInstanceMapper reportMapper = mock(ReportInstanceMapper.class);
+    private final ReportTemplateMapper templateMapper = mock(ReportTemplateMapper.class);
+    private final TemplateSectionMapper sectionMapper = mock(TemplateSectionMapper.class);
+    private final TemplateStyleMapper styleMapper = mock(TemplateStyleMapper.class);
+    private final ReportContentMapper contentMapper = mock(ReportContentMapper.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final TemplateMetadataCache metadataCache = new TemplateMetadataCache(100, registry);
+
+    private final ExportReadModelLoader loader = new ExportReadModelLoader(reportMapper, templateMapper,
+            sectionMapper, styleMapper, contentMapper, metadataCache, executor, registry);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("加载 - 应组装完整快照并记录数据库调用次数")
+    void testLoad() {
+        ReportInstance report = new ReportInstance();
+        report.setId(1L);
+        report.setTemplateId(9L);
+        when(reportMapper.selectById(1L)).thenReturn(report);
+        when(templateMapper.selectById(9L)).thenReturn(new ReportTemplate());
+        when(sectionMapper.selectByTemplateIdOrdered(9L)).thenReturn(List.of(new TemplateSection()));
+        when(styleMapper.selectByTemplateId(9L)).thenReturn(List.of(style("BODY", "宋体"), style("BODY", "黑体")));
+        when(contentMapper.selectByReportInstanceId(1L)).thenReturn(List.of(content("summary", null)));
+
+        ExportReadModel model = loader.load(1L);
+
+        assertSame(report, model.getReport());
+        assertEquals(1, model.getSections().size());
+        assertEquals("宋体", model.getStyleMap().get("BODY").getFontFamily(), "重复样式应保留第一个");
+        assertEquals("", model.getContentMap().get("summary"));
+        assertEquals(5, model.getDbCalls());
+        assertEquals(5.0, registry.get("export.read.db.calls").summary().totalAmount());
+        assertThrows(UnsupportedOperationException.class, () -> model.getSections().clear());
+    }
+
+    @Test
+    @DisplayName("再次加载 - 模板、章节和样式命中缓存，只查询报告和内容")
+    void testLoadCachedTemplate() {
+        ReportInstance report = new ReportInstance();
+        report.setId(1L);
+        report.setTemplateId(9L);
+        when(reportMapper.selectById(1L)).thenReturn(report);
+        when(templateMapper.selectById(9L)).thenReturn(new ReportTemplate());
+        when(sectionMapper.selectByTemplateIdOrdered(9L)).thenReturn(List.of(new TemplateSection()));
+        when(styleMapper.selectByTemplateId(9L)).thenReturn(List.of(style("BODY", "宋体")));
+        when(contentMapper.selectByReportInstanceId(1L)).thenReturn(List.of());
+
+        loader.load(1L);
+        ExportReadModel model = loader.load(1L);
+
+        assertEquals(2, model.getDbCalls());
+        assertEquals(1, model.getSections().size());
+        assertEquals("宋体", model.getStyleMap().get("BODY").getFontFamily());
+        verify(templateMapper, times(1)).selectById(9L);
+        verify(sectionMapper, times(1)).selectByTemplateIdOrdered(9L);
+    }
+
+    @Test
+    @DisplayName("模板没有样式配置 - 应使用默认样式")
+    void testDefaultStyles() {
+        ReportInstance report = new ReportInstance();
+        report.setId(1L);
+        report.setTemplateId(9L);
+        when(reportMapper.selectById(1L)).thenReturn(report);
+        when(sectionMapper.selectByTemplateIdOrdered(9L)).thenReturn(List.of());
+        when(styleMapper.selectByTemplateId(9L)).thenReturn(List.of());
+        when(contentMapper.selectByReportInstanceId(1L)).thenReturn(List.of());
+
+        ExportReadModel model = loader.load(1L);
+
+        assertNotNull(model.getStyleMap().get("BODY"));
+        assertNotNull(model.getStyleMap().get("HEADING_1"));
+    }
+
+    @Test
+    @DisplayName("只加载版本号 - 不读取正文，渲染前再补全")
+    void testLoadVersionsThenContents() {
+        ReportInstance report = new ReportInstance();
+        report.setId(1L);
+        report.setTemplateId(9L);
+        when(reportMapper.selectById(1L)).thenReturn(report);
+        when(sectionMapper.selectByTemplateIdOrdered(9L)).thenReturn(List.of());
+        when(styleMapper.selectByTemplateId(9L)).thenReturn(List.of(style("BODY", "宋体")));
+        ReportContent version = content("summary", null);
+        version.setVersion(3);
+        when(contentMapper.selectVersionsByReportInstanceId(1L)).thenReturn(List.of(version));
+        when(contentMapper.selectByReportInstanceId(1L)).thenReturn(List.of(content("summary", "<p>正文</p>")));
+
+        ExportReadModel versions = loader.loadVersions(1L);
+
+        assertFalse(versions.isContentsLoaded());
+        assertEquals(3, versions.getContents().get(0).getVersion());
+        assertThrows(IllegalStateException.class, versions::getContentMap);
+        verify(contentMapper, never()).selectByReportInstanceId(1L);
+
+        ExportReadModel full = loader.loadContents(versions);
+
+        assertEquals("<p>正文</p>", full.getContentMap().get("summary"));
+        assertSame(versions.getStyleMap(), full.getStyleMap());
+        assertEquals(versions.getDbCalls() + 1, full.getDbCalls());
+    }
+
+    @Test
+    @DisplayName("报告不存在 - 应报错且不再发起其他查询")
+    void testMissingReport() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> loader.load(404L));
+        assertTrue(e.getMessage().contains("404"));
+    }
+
+    private TemplateStyle style(String type, String fontFamily) {
+        TemplateStyle style = new TemplateStyle();
+        style.setStyleType(type);
+        style.setFontFamily(fontFamily);
+        return style;
+    }
+
+    private ReportContent content(String key, String html) {
+        ReportContent content = new ReportContent();
+        content.setSectionKey(key);
+        content.setContentHtml(html);
+        return content;
+    }
+}
@@ -0,0 +1,86 @@
+package com.report.service.impl;
+
+import com.report.cache.CompiledTemplateCache;
+import com.report.dto.SectionData;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlaceholderExportService 单元测试
+ */
+@DisplayName("占位符模板导出测试")
+class PlaceholderExportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("在 {{sections}} 处生成章节树，模板只编译一次")
+    void testExportSections() throws IOException {
+        Path templatePath = tempDir.resolve("placeholder.docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream os = Files.newOutputStream(templatePath)) {
+            doc.createParagraph().createRun().setText("{{report_title}}");
+            // 占位符被拆分到多个 run 中，编译时合并
+            XWPFParagraph placeholder = doc.createParagraph();
+            placeholder.createRun().setText("{{sec");
+            placeholder.createRun().setText("tions}}");
+            doc.createParagraph().createRun().setText("结尾");
+            doc.write(os);
+        }
+
+        CompiledTemplateCache cache = new CompiledTemplateCache(1 << 24);
+        PlaceholderExportService service = new PlaceholderExportService(cache);
+        assertTrue(service.supports(templatePath));
+
+        SectionData summary = new SectionData("本周总结", "<p>完成A</p><p>完成B</p>", 1);
+        summary.getChildren().add(new SectionData("细节", "<ul><li>一</li></ul>", 2));
+        List<SectionData> sections = List.of(summary, new SectionData("下周计划", null, 1));
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            service.export(templatePath, "周报", "2024-05-06 至 2024-05-12", sections, new HashMap<>(), out);
+
+            List<String> texts = new ArrayList<>();
+            try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+                for (XWPFParagraph para : doc.getParagraphs()) {
+                    if (!para.getText().isEmpty()) {
+                        texts.add(para.getText());
+                    }
+                }
+            }
+            assertEquals(List.of("周报", "本周总结", "完成A", "完成B", "细节", "一", "下周计划", "结尾"), texts);
+        }
+        assertEquals(1, cache.stats().getMisses(), "同一模板版本只应编译一次");
+    }
+
+    @Test
+    @DisplayName("没有 {{sections}} 的模板不走占位符导出")
+    void testTemplateWithoutPlaceholder() throws IOException {
+        Path templatePath = tempDir.resolve("headings.docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream os = Files.newOutputStream(templatePath)) {
+            doc.createParagraph().createRun().setText("{{report_title}}");
+            doc.createParagraph().createRun().setText("本周总结");
+            doc.write(os);
+        }
+
+        PlaceholderExportService service = new PlaceholderExportService(new CompiledTemplateCache(1 << 24));
+        assertFalse(service.supports(templatePath));
+        assertThrows(IOException.class, () -> service.export(templatePath, "周报", "", List.of(), new HashMap<>(),
+                new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.report.service.impl;
+
+import com.report.dto.ExportReadModel;
+import com.report.entity.ReportContent;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReportPreviewServiceImpl 单元测试
+ */
+@DisplayName("报告 HTML 预览测试")
+class ReportPreviewServiceImplTest {
+
+    @Test
+    @DisplayName("预览 - 输出章节树、样式 CSS，并转义内容中的脚本")
+    void testWritePreview() throws IOException {
+        ReportInstance report = new ReportInstance();
+        report.setId(1L);
+        report.setReportName("周报 <第一周>");
+        report.setStartDate(LocalDate.of(2024, 5, 6));
+        report.setEndDate(LocalDate.of(2024, 5, 12));
+
+        ReportTemplate template = new ReportTemplate();
+        template.setId(7L);
+
+        TemplateStyle body = TemplateStyle.createDefaultBody(7L);
+        body.setFontFamily("仿宋");
+        body.setFontColor("FF0000");
+        body.setAlignment("JUSTIFY");
+
+        ReportContent summary = new ReportContent();
+        summary.setSectionKey("summary");
+        summary.setContentHtml("<p>完成<b>A</b><script>alert(1)</script></p><ol><li>一</li><li>二</li></ol>");
+
+        ExportReadModelLoader loader = mock(ExportReadModelLoader.class);
+        when(loader.load(1L)).thenReturn(new ExportReadModel(report, template,
+                List.of(section(10L, null, "summary", "本周总结"), section(11L, 10L, "detail", "细节")),
+                List.of(body), List.of(summary), 5));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ReportPreviewServiceImpl(loader).writePreview(1L, response);
+        String html = response.getContentAsString();
+
+        assertEquals("text/html;charset=UTF-8", response.getContentType());
+        assertTrue(html.contains("<title>周报 &lt;第一周&gt;</title>"));
+        assertTrue(html.contains("2024-05-06 至 2024-05-12"));
+        assertTrue(html.contains(".body { font-family: \"仿宋\", serif; font-size: 14pt;"));
+        assertTrue(html.contains("color: #FF0000;"));
+        assertTrue(html.contains("text-align: justify;"));
+        assertTrue(html.contains(".heading-1 { font-family: \"黑体\", serif; font-size: 22pt; font-weight: bold;"),
+                "缺失的标题样式应使用默认值");
+        assertTrue(html.contains("<h2 class=\"heading-1\">本周总结</h2>"));
+        assertTrue(html.contains("<h3 class=\"heading-2\">细节</h3>"));
+        assertTrue(html.contains("<p class=\"body\">完成<b>A</b>"));
+        assertTrue(html.contains("<span class=\"marker\">2.</span>二</p>"));
+        assertFalse(html.contains("<script"), "内容中的脚本不应原样输出");
+        assertTrue(html.indexOf("本周总结") < html.indexOf("完成") && html.indexOf("完成") < html.indexOf("细节"));
+    }
+
+    private TemplateSection section(Long id, Long parentId, String key, String title) {
+        TemplateSection section = new TemplateSection();
+        section.setId(id);
+        section.setParentId(parentId);
+        section.setSectionKey(key);
+        section.setTitle(title);
+        section.setSortOrder(id.intValue());
+        return section;
+    }
+}
@@ -0,0 +1,133 @@
+package com.report.service.impl;
+
+import com.report.cache.TemplateDocumentCache;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.utils.SectionAnchors;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingTemplateExportService 单元测试
+ */
+@DisplayName("流式模板导出测试")
+class StreamingTemplateExportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final StreamingTemplateExportService streamingService = new StreamingTemplateExportService();
+    private final TemplateBasedExportService domService =
+            new TemplateBasedExportService(new TemplateDocumentCache(1 << 24));
+
+    @Test
+    @DisplayName("书签模板 - 输出应与 DOM 导出一致")
+    void testMatchesDomExportWithAnchors() throws IOException {
+        List<TemplateSection> sections = sections();
+        Path template = createTemplate(sections, true);
+        Map<String, String> content = Map.of(
+                "summary", "<p>本周完成&amp;上线</p>",
+                "progress_a", "进展一<br/>进展二",
+                "progress_b", "<p>第二个进展</p><p>包含<b>加粗</b>的第二段</p>");
+
+        assertEquals(paragraphs(export(domService::exportWithTemplate, template, sections, content, null)),
+                paragraphs(export(streamingService::exportWithTemplate, template, sections, content, null)));
+    }
+
+    @Test
+    @DisplayName("旧模板 - 无书签时应按标题匹配，并应用正文样式配置")
+    void testMatchesDomExportByTitle() throws IOException {
+        List<TemplateSection> sections = sections();
+        Path template = createTemplate(sections, false);
+        Map<String, String> content = Map.of("summary", "总结内容");
+
+        TemplateStyle body = new TemplateStyle();
+        body.setFontFamily("黑体");
+        body.setFontSize(12);
+        body.setBold(true);
+        body.setLineSpacing(2.0);
+
+        byte[] streamed = export(streamingService::exportWithTemplate, template, sections, content, body);
+        byte[] dom = export(domService::exportWithTemplate, template, sections, content, body);
+        assertEquals(paragraphs(dom), paragraphs(streamed));
+
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(streamed))) {
+            XWPFParagraph inserted = doc.getParagraphs().get(1);
+            assertEquals("黑体", inserted.getRuns().get(0).getFontFamily());
+            assertEquals(12, inserted.getRuns().get(0).getFontSizeAsDouble());
+            assertTrue(inserted.getRuns().get(0).isBold());
+        }
+    }
+
+    private byte[] export(Exporter exporter, Path template, List<TemplateSection> sections,
+            Map<String, String> content, TemplateStyle body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(template, sections, content, body, out);
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        void export(Path template, List<TemplateSection> sections, Map<String, String> content,
+                TemplateStyle body, OutputStream out) throws IOException;
+    }
+
+    private List<String> paragraphs(byte[] docx) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            for (XWPFParagraph para : doc.getParagraphs()) {
+                result.add(para.getText() + "|" + para.getStyleID() + "|" + para.getIndentationFirstLine()
+                        + "|" + para.getSpacingBetween());
+            }
+        }
+        return result;
+    }
+
+    private Path createTemplate(List<TemplateSection> sections, boolean stamp) throws IOException {
+        Path path = tempDir.resolve(stamp ? "stamped.docx" : "plain.docx");
+        try (XWPFDocument doc = new XWPFDocument(); OutputStream os = Files.newOutputStream(path)) {
+            doc.createParagraph().createRun().setText("总结");
+            doc.createParagraph().createRun().setText("项目A");
+            doc.createParagraph().createRun().setText("进展");
+            doc.createParagraph().createRun().setText("项目B");
+            doc.createParagraph().createRun().setText("进展");
+            doc.createParagraph().createRun().setText("附录");
+            if (stamp) {
+                SectionAnchors.stamp(doc, sections);
+            }
+            doc.write(os);
+        }
+        return path;
+    }
+
+    private List<TemplateSection> sections() {
+        return List.of(
+                section("summary", "总结"),
+                section("project_a", "项目A"),
+                section("progress_a", "进展"),
+                section("project_b", "项目B"),
+                section("progress_b", "进展"));
+    }
+
+    private TemplateSection section(String key, String title) {
+        TemplateSection section = new TemplateSection();
+        section.setSectionKey(key);
+        section.setTitle(title);
+        return section;
+    }
+}
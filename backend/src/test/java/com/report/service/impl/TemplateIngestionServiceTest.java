@@ -0,0 +1,100 @@
+package com.report.service.impl;
+
+import com.report.dto.TemplateIngestion;
+import com.report.entity.TemplateStyle;
+import com.report.utils.StyleExtractor;
+import com.report.utils.StyleManager;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplateIngestionService 单元测试
+ */
+@DisplayName("模板上传解析测试")
+class TemplateIngestionServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    @DisplayName("一次得到章节结构、样式和内容指纹，并按文件名缓存样式")
+    void testIngest() throws Exception {
+        byte[] docx = templateDocx();
+        TemplateIngestionService service = new TemplateIngestionService(
+                new TemplateStorage(uploadDir.toString()), 10, StyleExtractor.DEFAULT_BODY_SAMPLE_SIZE);
+
+        TemplateIngestion ingestion = service.ingest(
+                new MockMultipartFile("file", "weekly.docx", null, docx));
+
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(docx));
+        assertEquals(sha256, ingestion.getFingerprint());
+        assertEquals(sha256.substring(0, 2) + "/" + sha256 + ".docx", ingestion.getFileName());
+        Path saved = uploadDir.resolve("templates").resolve(ingestion.getFileName());
+        assertArrayEquals(docx, Files.readAllBytes(saved));
+
+        assertEquals(1, ingestion.getSections().size());
+        assertEquals("一、本周工作", ingestion.getSections().get(0).getTitle());
+        assertEquals("1. 已完成", ingestion.getSections().get(0).getChildren().get(0).getTitle());
+        assertFalse(ingestion.getStyles().isEmpty());
+
+        List<TemplateStyle> styles = service.cachedStyles(ingestion.getFileName(), 7L);
+        assertNotNull(styles);
+        assertEquals(ingestion.getStyles().size(), styles.size());
+        for (TemplateStyle style : styles) {
+            assertEquals(7L, style.getTemplateId());
+        }
+        // 返回副本，缓存中的样式不关联模板
+        assertNull(ingestion.getStyles().get(0).getTemplateId());
+        assertNotSame(styles.get(0), service.cachedStyles(ingestion.getFileName(), 7L).get(0));
+
+        assertNull(service.cachedStyles("template_unknown.docx", 7L));
+    }
+
+    @Test
+    @DisplayName("重复上传相同内容只保存一份，并复用已有的解析结果")
+    void testRepeatUpload() throws Exception {
+        byte[] docx = templateDocx();
+        TemplateIngestionService service = new TemplateIngestionService(
+                new TemplateStorage(uploadDir.toString()), 10, StyleExtractor.DEFAULT_BODY_SAMPLE_SIZE);
+
+        TemplateIngestion first = service.ingest(new MockMultipartFile("file", "a.docx", null, docx));
+        TemplateIngestion second = service.ingest(new MockMultipartFile("file", "b.docx", null, docx));
+
+        assertEquals(first.getFileName(), second.getFileName());
+        assertSame(first, second);
+        assertEquals(1, service.stats().getSize());
+        try (Stream<Path> files = Files.walk(uploadDir.resolve("templates"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count(), "临时文件应被清理，内容只保存一份");
+        }
+    }
+
+    private static byte[] templateDocx() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            StyleManager.ensureDefaultStyles(doc);
+            XWPFParagraph h1 = doc.createParagraph();
+            h1.setStyle("Heading1");
+            h1.createRun().setText("一、本周工作");
+            XWPFParagraph h2 = doc.createParagraph();
+            h2.setStyle("Heading2");
+            h2.createRun().setText("1. 已完成");
+            doc.createParagraph().createRun().setText("正文说明");
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.report.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import com.report.cache.TemplateMetadataCache;
+import com.report.entity.ReportInstance;
+import com.report.entity.ReportTemplate;
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.mapper.ReportInstanceMapper;
+import com.report.mapper.ReportTemplateMapper;
+import com.report.mapper.TemplateSectionMapper;
+import com.report.mapper.TemplateStyleMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * TemplateServiceImpl 单元测试
+ */
+@DisplayName("模板服务测试")
+class TemplateServiceImplTest {
+
+    private final ReportTemplateMapper templateMapper = mock(ReportTemplateMapper.class);
+    private final TemplateSectionMapper sectionMapper = mock(TemplateSectionMapper.class);
+    private final TemplateStyleMapper styleMapper = mock(TemplateStyleMapper.class);
+    private final ReportInstanceMapper reportMapper = mock(ReportInstanceMapper.class);
+
+    private TemplateServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TemplateServiceImpl(sectionMapper, styleMapper, mock(TemplateIngestionService.class),
+                mock(TemplateStorage.class), new TemplateMetadataCache(100, new SimpleMeterRegistry()), reportMapper);
+        ReflectionTestUtils.setField(service, "baseMapper", templateMapper);
+
+        // 模板族 1：版本 4（v1，已停用）和最新版本 5（v2）
+        when(templateMapper.selectById(4L)).thenReturn(template(4L, 1, false));
+        when(templateMapper.selectById(5L)).thenReturn(template(5L, 2, true));
+        when(templateMapper.selectOne(any(), anyBoolean())).thenReturn(template(5L, 2, true));
+    }
+
+    @Test
+    @DisplayName("添加章节 - 最新版本没有报告固定时直接修改，不复制新版本")
+    void testAddSectionInPlace() {
+        when(reportMapper.selectCount(any())).thenReturn(0L);
+        when(sectionMapper.selectList(any(Wrapper.class))).thenReturn(List.of(section(50L, 5L, "overview", null)));
+        when(sectionMapper.selectById(40L)).thenReturn(section(40L, 4L, "overview", null));
+
+        TemplateSection section = new TemplateSection();
+        section.setSectionKey("plan");
+        section.setParentId(40L);
+        TemplateSection saved = service.addSection(4L, section, null);
+
+        assertEquals(5L, saved.getTemplateId(), "旧版本 ID 应按最新版本处理");
+        assertEquals(50L, saved.getParentId(), "旧版本的父章节应按 sectionKey 对应到最新版本");
+        verify(templateMapper).lockFamily(1L);
+        verify(sectionMapper).insert(section);
+        verify(templateMapper, never()).insert(any(ReportTemplate.class));
+    }
+
+    @Test
+    @DisplayName("添加章节 - 最新版本已有报告固定时复制出新版本，章节按层级复制并停用旧版本")
+    void testAddSectionCopiesPinnedVersion() {
+        when(reportMapper.selectCount(any())).thenReturn(1L);
+        doAnswer(invocation -> {
+            invocation.<ReportTemplate>getArgument(0).setId(6L);
+            return 1;
+        }).when(templateMapper).insert(any(ReportTemplate.class));
+        when(sectionMapper.selectList(any(Wrapper.class))).thenReturn(List.of(
+                section(11L, 5L, "plan", 10L), section(10L, 5L, "overview", null)));
+        when(sectionMapper.selectById(11L)).thenReturn(section(11L, 5L, "plan", 10L));
+        TemplateStyle style = new TemplateStyle();
+        style.setId(30L);
+        style.setTemplateId(5L);
+        when(styleMapper.selectByTemplateId(5L)).thenReturn(List.of(style));
+
+        List<Object> batched = new ArrayList<>();
+        AtomicLong ids = new AtomicLong(100);
+        try (MockedStatic<Db> db = mockStatic(Db.class)) {
+            db.when(() -> Db.saveBatch(anyCollection())).thenAnswer(invocation -> {
+                for (Object row : invocation.<Collection<?>>getArgument(0)) {
+                    if (row instanceof TemplateSection copy) {
+                        copy.setId(ids.incrementAndGet());
+                    }
+                    batched.add(row);
+                }
+                return true;
+            });
+
+            TemplateSection section = new TemplateSection();
+            section.setSectionKey("detail");
+            section.setParentId(11L);
+            TemplateSection saved = service.addSection(5L, section, null);
+
+            ArgumentCaptor<ReportTemplate> next = ArgumentCaptor.forClass(ReportTemplate.class);
+            verify(templateMapper).insert(next.capture());
+            assertEquals(1L, next.getValue().getFamilyId());
+            assertEquals(3, next.getValue().getVersionNo());
+
+            ArgumentCaptor<ReportTemplate> retired = ArgumentCaptor.forClass(ReportTemplate.class);
+            verify(templateMapper).updateById(retired.capture());
+            assertEquals(5L, retired.getValue().getId());
+            assertFalse(retired.getValue().getIsActive());
+
+            // 父章节先复制（ID 101），子章节指向父章节的副本
+            TemplateSection overview = (TemplateSection) batched.get(0);
+            TemplateSection plan = (TemplateSection) batched.get(1);
+            assertEquals("overview", overview.getSectionKey());
+            assertEquals(6L, overview.getTemplateId());
+            assertEquals(overview.getId(), plan.getParentId());
+            assertEquals(6L, ((TemplateStyle) batched.get(2)).getTemplateId());
+            assertNull(((TemplateStyle) batched.get(2)).getId());
+
+            assertEquals(6L, saved.getTemplateId());
+            assertEquals(plan.getId(), saved.getParentId());
+        }
+    }
+
+    @Test
+    @DisplayName("随修改迁移报告 - 草稿报告固定到修改所在的版本，已归档或其他模板的报告被拒绝")
+    void testRepinDraftReport() {
+        when(reportMapper.selectCount(any())).thenReturn(0L);
+        when(sectionMapper.selectList(any(Wrapper.class))).thenReturn(List.of(section(50L, 5L, "overview", null)));
+        when(sectionMapper.selectById(40L)).thenReturn(section(40L, 4L, "overview", null));
+        when(reportMapper.selectById(9L)).thenReturn(report(9L, 4L, "DRAFT"));
+
+        TemplateSection update = new TemplateSection();
+        update.setTitle("概述");
+        service.updateSection(40L, update, 9L);
+
+        assertEquals(50L, update.getId());
+        ArgumentCaptor<ReportInstance> pinned = ArgumentCaptor.forClass(ReportInstance.class);
+        verify(reportMapper).updateById(pinned.capture());
+        assertEquals(9L, pinned.getValue().getId());
+        assertEquals(5L, pinned.getValue().getTemplateId());
+
+        when(reportMapper.selectById(10L)).thenReturn(report(10L, 4L, "FINALIZED"));
+        assertThrows(IllegalStateException.class, () -> service.deleteSection(40L, 10L));
+
+        ReportTemplate other = template(7L, 1, true);
+        other.setFamilyId(7L);
+        when(templateMapper.selectById(7L)).thenReturn(other);
+        when(reportMapper.selectById(11L)).thenReturn(report(11L, 7L, "DRAFT"));
+        assertThrows(IllegalArgumentException.class, () -> service.deleteSection(40L, 11L));
+    }
+
+    @Test
+    @DisplayName("新建报告固定版本 - 先以共享锁锁住模板族再查询最新版本")
+    void testLockLatestVersionId() {
+        assertEquals(5L, service.lockLatestVersionId(4L));
+
+        InOrder order = inOrder(templateMapper);
+        order.verify(templateMapper).lockFamilyShared(1L);
+        order.verify(templateMapper).selectOne(any(), anyBoolean());
+        assertEquals(99L, service.lockLatestVersionId(99L), "不存在的模板原样返回");
+    }
+
+    @Test
+    @DisplayName("复制新版本时章节按层级分组，父章节在前")
+    void testDepthLevels() {
+        List<TemplateSection> sections = List.of(
+                section(13L, 12L),
+                section(10L, null),
+                section(12L, 10L),
+                section(11L, 10L),
+                section(14L, 99L),
+                section(15L, null));
+
+        List<List<TemplateSection>> levels = TemplateServiceImpl.depthLevels(sections);
+
+        assertEquals(3, levels.size());
+        assertEquals(List.of(10L, 14L, 15L), ids(levels.get(0)), "父章节不在列表中的视为顶级");
+        assertEquals(List.of(12L, 11L), ids(levels.get(1)));
+        assertEquals(List.of(13L), ids(levels.get(2)));
+    }
+
+    @Test
+    @DisplayName("章节 key 由标题生成，保留中文、字母和数字")
+    void testSemanticKey() {
+        assertEquals("一本周工作", TemplateServiceImpl.generateSemanticKey("一、本周工作"));
+        assertEquals("11_Weekly_Plan", TemplateServiceImpl.generateSemanticKey(" 1.1 Weekly  Plan "));
+        assertEquals("section", TemplateServiceImpl.generateSemanticKey("、、"));
+        assertEquals("section", TemplateServiceImpl.generateSemanticKey(null));
+    }
+
+    @Test
+    @DisplayName("章节映射到修改所在的版本：本版本原样返回，刚复制的按复制关系，更早版本按 sectionKey")
+    void testSectionIdInVersion() {
+        TemplateServiceImpl.TemplateVersion version = new TemplateServiceImpl.TemplateVersion(3L, 1L,
+                Map.of(20L, 30L), List.of(section(30L, 3L, "overview"), section(31L, 3L, "plan")));
+
+        assertEquals(31L, version.sectionId(section(31L, 3L, "plan")));
+        assertEquals(30L, version.sectionId(section(20L, 2L, "overview")));
+        assertEquals(31L, version.sectionId(section(11L, 1L, "plan")), "更早版本的章节按 sectionKey 对应");
+        assertThrows(IllegalArgumentException.class, () -> version.sectionId(section(12L, 1L, "removed")));
+    }
+
+    private static ReportTemplate template(Long id, int versionNo, boolean active) {
+        ReportTemplate template = new ReportTemplate();
+        template.setId(id);
+        template.setName("周报");
+        template.setFamilyId(1L);
+        template.setVersionNo(versionNo);
+        template.setIsActive(active);
+        return template;
+    }
+
+    private static ReportInstance report(Long id, Long templateId, String status) {
+        ReportInstance report = new ReportInstance();
+        report.setId(id);
+        report.setTemplateId(templateId);
+        report.setStatus(status);
+        return report;
+    }
+
+    private static TemplateSection section(Long id, Long templateId, String sectionKey, Long parentId) {
+        TemplateSection section = section(id, templateId, sectionKey);
+        section.setParentId(parentId);
+        return section;
+    }
+
+    private static TemplateSection section(Long id, Long templateId, String sectionKey) {
+        TemplateSection section = new TemplateSection();
+        section.setId(id);
+        section.setTemplateId(templateId);
+        section.setSectionKey(sectionKey);
+        return section;
+    }
+
+    private static TemplateSection section(Long id, Long parentId) {
+        TemplateSection section = new TemplateSection();
+        section.setId(id);
+        section.setParentId(parentId);
+        return section;
+    }
+
+    private static List<Long> ids(List<TemplateSection> sections) {
+        List<Long> ids = new ArrayList<>();
+        for (TemplateSection section : sections) {
+            ids.add(section.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,156 @@
+package com.report.service.impl;
+
+import com.report.entity.TemplateSection;
+import com.report.entity.TemplateStyle;
+import com.report.utils.StyleExtractor;
+import com.report.utils.WordUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplateSyncPlan 单元测试
+ */
+@DisplayName("模板重新同步差异测试")
+class TemplateSyncPlanTest {
+
+    private static final Long TEMPLATE_ID = 1L;
+
+    @Test
+    @DisplayName("结构未变时不写入任何章节")
+    void testUnchangedSections() {
+        List<TemplateSection> stored = List.of(
+                section(10L, null, "overview", "一、概述", 1),
+                section(11L, 10L, "background", "1. 背景", 1),
+                section(12L, null, "plan", "二、计划", 2));
+
+        TemplateSyncPlan plan = TemplateSyncPlan.of(TEMPLATE_ID, List.of(), List.of(), stored,
+                List.of(node("一、概述", 1, node("1. 背景", 2)), node("二、计划", 1)),
+                TemplateServiceImpl::generateSemanticKey);
+
+        assertFalse(plan.sectionsChanged());
+        assertEquals(3, plan.sectionsUnchanged);
+        assertEquals(List.of("overview", "background", "plan"), keys(plan.sections));
+    }
+
+    @Test
+    @DisplayName("新增、改名、移动、删除章节时原有章节保留 key")
+    void testChangedSections() {
+        List<TemplateSection> stored = List.of(
+                section(10L, null, "overview", "一、概述", 1),
+                section(11L, 10L, "background", "1. 背景", 1),
+                section(12L, 10L, "scope", "2. 范围", 2),
+                section(13L, null, "plan", "二、计划", 2),
+                section(14L, null, "risk", "三、风险", 3));
+
+        TemplateSyncPlan plan = TemplateSyncPlan.of(TEMPLATE_ID, List.of(), List.of(), stored,
+                List.of(
+                        node("一、概述", 1,
+                                node("1. 项目背景", 2),
+                                node("2. 范围", 2)),
+                        node("二、计划", 1,
+                                node("1. 里程碑", 2,
+                                        node("1.1 第一阶段", 3))),
+                        node("三、附录", 1)),
+                TemplateServiceImpl::generateSemanticKey);
+
+        // "1. 背景" 改名为 "1. 项目背景"，"三、风险" 改名为 "三、附录"，都沿用原 key
+        assertEquals(List.of("overview", "background", "scope", "plan", "1_里程碑", "11_第一阶段", "risk"),
+                keys(plan.sections));
+        assertEquals("1. 项目背景", plan.sections.get(1).getTitle());
+        assertEquals(2, plan.sectionUpdates.size());
+        assertEquals(3, plan.sectionsUnchanged);
+
+        // 新章节按层级分组，子章节插入后再关联父章节
+        assertEquals(2, plan.sectionInsertCount());
+        assertEquals(3, plan.sectionInserts.size());
+        assertTrue(plan.sectionInserts.get(0).isEmpty());
+        TemplateSection milestone = plan.sectionInserts.get(1).get(0);
+        TemplateSection phase = plan.sectionInserts.get(2).get(0);
+        assertEquals(13L, milestone.getParentId());
+        assertNull(phase.getParentId());
+        assertSame(milestone, plan.pendingParents.get(phase));
+        assertTrue(plan.sectionDeactivations.isEmpty());
+    }
+
+    @Test
+    @DisplayName("删除的章节停用，移到顶级的章节单独置空父章节，重复标题生成不冲突的 key")
+    void testRemovedAndMovedSections() {
+        List<TemplateSection> stored = new ArrayList<>(List.of(
+                section(10L, null, "overview", "一、概述", 1),
+                section(11L, 10L, "summary", "小结", 1),
+                section(12L, null, "plan", "二、计划", 2)));
+        TemplateSection inactive = section(13L, null, "小结_1", "旧小结", 9);
+        inactive.setIsActive(false);
+        stored.add(inactive);
+
+        TemplateSyncPlan plan = TemplateSyncPlan.of(TEMPLATE_ID, List.of(), List.of(), stored,
+                List.of(node("小结", 1), node("一、概述", 1), node("小结 1", 1)),
+                TemplateServiceImpl::generateSemanticKey);
+
+        // "小结" 移到顶级后沿用原 key，新章节的 key 避开已停用章节的 key
+        assertEquals(List.of("summary", "overview", "小结_1_1"), keys(plan.sections));
+        assertEquals(List.of(11L), plan.sectionsMovedToRoot);
+        assertNull(plan.sections.get(0).getParentId());
+        assertEquals(2, plan.sectionUpdates.size());
+        assertEquals(1, plan.sectionDeactivations.size());
+        assertEquals(12L, plan.sectionDeactivations.get(0).getId());
+        assertFalse(plan.sectionDeactivations.get(0).getIsActive());
+    }
+
+    @Test
+    @DisplayName("样式只替换有变化的行")
+    void testStyles() {
+        List<TemplateStyle> stored = new ArrayList<>();
+        long id = 100;
+        for (TemplateStyle style : StyleExtractor.createDefaultStyles(TEMPLATE_ID)) {
+            style.setId(id++);
+            stored.add(style);
+        }
+
+        List<TemplateStyle> extracted = StyleExtractor.createDefaultStyles(null);
+        TemplateStyle body = extracted.stream().filter(s -> "BODY".equals(s.getStyleType())).findFirst().orElseThrow();
+        body.setFontSize(12);
+
+        TemplateSyncPlan plan = TemplateSyncPlan.styles(TEMPLATE_ID, stored, extracted);
+
+        assertEquals(4, plan.stylesUnchanged);
+        assertTrue(plan.styleInserts.isEmpty());
+        assertEquals(List.of(body), plan.styleReplacements);
+        assertEquals(List.of(104L), plan.styleDeletes);
+        assertEquals(TEMPLATE_ID, body.getTemplateId());
+        assertNull(body.getId());
+        assertEquals(100L, extracted.get(0).getId(), "未变的样式沿用原 ID");
+    }
+
+    private static TemplateSection section(Long id, Long parentId, String key, String title, int sortOrder) {
+        TemplateSection section = new TemplateSection();
+        section.setId(id);
+        section.setTemplateId(TEMPLATE_ID);
+        section.setParentId(parentId);
+        section.setSectionKey(key);
+        section.setTitle(title);
+        section.setSectionType("RICH_TEXT");
+        section.setSortOrder(sortOrder);
+        section.setIsActive(true);
+        return section;
+    }
+
+    private static WordUtil.SectionNode node(String title, int level, WordUtil.SectionNode... children) {
+        WordUtil.SectionNode node = new WordUtil.SectionNode(title, level);
+        node.getChildren().addAll(List.of(children));
+        return node;
+    }
+
+    private static List<String> keys(List<TemplateSection> sections) {
+        List<String> keys = new ArrayList<>();
+        for (TemplateSection section : sections) {
+            keys.add(section.getSectionKey());
+        }
+        return keys;
+    }
+}
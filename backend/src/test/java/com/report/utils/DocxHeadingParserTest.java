@@ -0,0 +1,222 @@
+package com.report.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHyperlinkRun;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
+import org.apache.poi.xwpf.usermodel.XWPFStyles;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyle;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STStyleType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DocxHeadingParser 单元测试
+ * 与原先基于 XWPFDocument 的解析（reference）逐个对比结果
+ */
+@DisplayName("流式章节结构解析测试")
+class DocxHeadingParserTest {
+
+    @Test
+    @DisplayName("按样式 ID 和样式名称识别标题级别并建树")
+    void testHeadingLevels() throws IOException {
+        byte[] docx;
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            StyleManager.ensureDefaultStyles(doc);
+            addStyle(doc, "1", "heading 1");
+            addStyle(doc, "a5", "标题 2");
+            addStyle(doc, "Custom", "Quote");
+
+            paragraph(doc, "Heading1", "一、工作概述");
+            paragraph(doc, null, "正文段落");
+            paragraph(doc, "a5", "1. 本周完成");
+            paragraph(doc, "Heading3", "1.1 细节");
+            paragraph(doc, "Custom", "引用，不是标题");
+            paragraph(doc, "Heading2", "2. 下周计划");
+            paragraph(doc, "Heading2", "   ");
+            paragraph(doc, "1", "二、问题");
+            paragraph(doc, "Heading4", "直接挂在一级下");
+            doc.write(out);
+            docx = out.toByteArray();
+        }
+
+        List<WordUtil.SectionNode> nodes = parse(docx);
+        assertEquals(reference(docx), nodes);
+
+        assertEquals(2, nodes.size());
+        assertEquals("一、工作概述", nodes.get(0).getTitle());
+        assertEquals(List.of("1. 本周完成", "2. 下周计划"), titles(nodes.get(0).getChildren()));
+        assertEquals(List.of("1.1 细节"), titles(nodes.get(0).getChildren().get(0).getChildren()));
+        assertEquals(List.of("直接挂在一级下"), titles(nodes.get(1).getChildren()));
+    }
+
+    @Test
+    @DisplayName("段落文本与 XWPFParagraph#getText 一致，表格中的段落不计入")
+    void testParagraphText() throws IOException {
+        byte[] docx;
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            StyleManager.ensureDefaultStyles(doc);
+
+            // 标题拆分在多个 run 中，含制表符和换行
+            XWPFParagraph split = doc.createParagraph();
+            split.setStyle("Heading1");
+            split.createRun().setText("第一");
+            XWPFRun tabbed = split.createRun();
+            tabbed.addTab();
+            tabbed.setText("部分");
+            split.createRun().addBreak();
+            split.createRun().setText(" 概述 ");
+
+            // 超链接中的 run
+            XWPFParagraph linked = doc.createParagraph();
+            linked.setStyle("Heading2");
+            linked.createRun().setText("参见");
+            XWPFHyperlinkRun link = linked.createHyperlinkRun("https://example.com");
+            link.setText("链接");
+
+            // 修订删除的 run 和域代码不计入
+            XWPFParagraph revised = doc.createParagraph();
+            revised.setStyle("Heading2");
+            revised.createRun().setText("保留");
+            CTR deleted = revised.getCTP().addNewDel().addNewR();
+            deleted.addNewDelText().setStringValue("删除");
+            CTR field = revised.getCTP().addNewR();
+            field.addNewInstrText().setStringValue(" PAGE ");
+
+            // 表格中的标题段落不计入
+            XWPFTable table = doc.createTable(1, 1);
+            XWPFParagraph cell = table.getRow(0).getCell(0).getParagraphs().get(0);
+            cell.setStyle("Heading1");
+            cell.createRun().setText("表格中的标题");
+
+            doc.write(out);
+            docx = out.toByteArray();
+        }
+
+        List<WordUtil.SectionNode> nodes = parse(docx);
+        assertEquals(reference(docx), nodes);
+
+        assertEquals(1, nodes.size());
+        assertEquals("第一\t部分\n 概述", nodes.get(0).getTitle());
+        assertEquals(List.of("参见链接", "保留"), titles(nodes.get(0).getChildren()));
+    }
+
+    @Test
+    @DisplayName("内置导出模板的解析结果与原实现一致")
+    void testBundledTemplate() throws IOException {
+        byte[] docx;
+        try (InputStream is = getClass().getResourceAsStream("/templates/export_template.docx")) {
+            assertNotNull(is);
+            docx = is.readAllBytes();
+        }
+
+        assertEquals(reference(docx), parse(docx));
+    }
+
+    private static List<WordUtil.SectionNode> parse(byte[] docx) throws IOException {
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(docx))) {
+            return DocxHeadingParser.parse(zip);
+        }
+    }
+
+    private static List<String> titles(List<WordUtil.SectionNode> nodes) {
+        List<String> titles = new ArrayList<>();
+        for (WordUtil.SectionNode node : nodes) {
+            titles.add(node.getTitle());
+        }
+        return titles;
+    }
+
+    private static void paragraph(XWPFDocument doc, String styleId, String text) {
+        XWPFParagraph para = doc.createParagraph();
+        if (styleId != null) {
+            para.setStyle(styleId);
+        }
+        para.createRun().setText(text);
+    }
+
+    private static void addStyle(XWPFDocument doc, String styleId, String name) {
+        XWPFStyles styles = doc.getStyles();
+        CTStyle ctStyle = CTStyle.Factory.newInstance();
+        ctStyle.setStyleId(styleId);
+        ctStyle.setType(STStyleType.PARAGRAPH);
+        ctStyle.addNewName().setVal(name);
+        styles.addStyle(new XWPFStyle(ctStyle, styles));
+    }
+
+    // ---- 原先基于 XWPFDocument 的实现，作为对照 ----
+
+    private static final Pattern HEADING = Pattern.compile(".*(heading|title|标题)\\s*([1-6]).*");
+
+    private static List<WordUtil.SectionNode> reference(byte[] docx) throws IOException {
+        List<WordUtil.SectionNode> roots = new ArrayList<>();
+        Stack<WordUtil.SectionNode> stack = new Stack<>();
+
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            for (XWPFParagraph p : doc.getParagraphs()) {
+                String text = p.getText().trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                int level = referenceLevel(doc, p);
+                if (level > 0) {
+                    WordUtil.SectionNode node = new WordUtil.SectionNode(text, level);
+                    while (!stack.isEmpty() && stack.peek().getLevel() >= level) {
+                        stack.pop();
+                    }
+                    if (stack.isEmpty()) {
+                        roots.add(node);
+                    } else {
+                        stack.peek().getChildren().add(node);
+                    }
+                    stack.push(node);
+                }
+            }
+        }
+        return roots;
+    }
+
+    private static int referenceLevel(XWPFDocument doc, XWPFParagraph p) {
+        String styleId = p.getStyleID();
+        if (styleId == null) {
+            return 0;
+        }
+        int level = referenceMatch(styleId);
+        if (level > 0) {
+            return level;
+        }
+        if (doc.getStyles() != null) {
+            XWPFStyle style = doc.getStyles().getStyle(styleId);
+            if (style != null && style.getName() != null) {
+                return referenceMatch(style.getName());
+            }
+        }
+        return 0;
+    }
+
+    private static int referenceMatch(String text) {
+        String lower = text.trim().toLowerCase();
+        if (lower.matches("^[1-6]$")) {
+            return Integer.parseInt(lower);
+        }
+        Matcher matcher = HEADING.matcher(lower);
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.report.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HtmlRuns / HtmlDocxWriter 单元测试
+ */
+@DisplayName("HTML 富文本写入 Word 测试")
+class HtmlDocxWriterTest {
+
+    @Test
+    @DisplayName("段落与换行 - 每个 p 应生成一个段落，br 保留为段内换行")
+    void testParagraphsAndBreaks() throws IOException {
+        List<XWPFParagraph> paragraphs = render("<p>第一段</p>\n<p> 第二段 <br/>换行</p>\n\n<p> </p>");
+
+        assertEquals(2, paragraphs.size(), "空段落应被丢弃");
+        assertEquals("第一段", paragraphs.get(0).getText());
+        assertEquals("第二段\n换行", paragraphs.get(1).getText());
+    }
+
+    @Test
+    @DisplayName("纯文本 - 与原有行为一致，换行符成为段内换行")
+    void testPlainText() throws IOException {
+        List<XWPFParagraph> paragraphs = render("本周完成A\r\n\n  下周计划B  ");
+
+        assertEquals(1, paragraphs.size());
+        assertEquals("本周完成A\n下周计划B", paragraphs.get(0).getText());
+    }
+
+    @Test
+    @DisplayName("行内格式 - 加粗、斜体、下划线应成为独立文字片段并保留正文格式")
+    void testInlineFormatting() throws IOException {
+        List<XWPFParagraph> paragraphs = render("<p>普通<strong>加粗<em>斜体</em></strong> <u>下划线</u></p>");
+
+        List<XWPFRun> runs = paragraphs.get(0).getRuns();
+        assertEquals(4, runs.size());
+        assertEquals("普通", runs.get(0).text());
+        assertFalse(runs.get(0).isBold());
+        assertEquals("加粗", runs.get(1).text());
+        assertTrue(runs.get(1).isBold());
+        assertFalse(runs.get(1).isItalic());
+        assertTrue(runs.get(2).isBold());
+        assertTrue(runs.get(2).isItalic());
+        assertEquals(" 下划线", runs.get(3).text());
+        assertNotNull(runs.get(3).getUnderline());
+        for (XWPFRun run : runs) {
+            assertEquals("宋体", run.getFontFamily(), "每个片段都应带正文字体");
+        }
+    }
+
+    @Test
+    @DisplayName("片段列表 - 写入后未重新加载的文档中每个片段都应可见")
+    void testRunsVisibleBeforeReload() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument()) {
+            new HtmlDocxWriter(doc).write("<p>普通<strong>加粗</strong>结尾</p><p>第二段<em>斜体</em></p>",
+                    target(doc));
+
+            List<XWPFParagraph> paragraphs = doc.getParagraphs();
+            assertEquals(3, paragraphs.get(0).getRuns().size());
+            assertEquals("普通加粗结尾", paragraphs.get(0).getText());
+            assertEquals(2, paragraphs.get(1).getRuns().size());
+            assertEquals("宋体", paragraphs.get(1).getRuns().get(1).getFontFamily(), "后续片段应复制正文格式");
+        }
+    }
+
+    @Test
+    @DisplayName("列表 - ul/ol 应映射为编号，每个 ol 重新编号")
+    void testLists() throws IOException {
+        List<XWPFParagraph> paragraphs = render(
+                "<ul><li>要点一</li><li>要点二<ul><li>子要点</li></ul></li></ul>"
+                        + "<ol><li>步骤一</li><li>步骤二</li></ol><ol><li>另一列表</li></ol>");
+
+        assertEquals(6, paragraphs.size());
+        assertNotNull(paragraphs.get(0).getNumID());
+        assertEquals(paragraphs.get(0).getNumID(), paragraphs.get(1).getNumID());
+        assertEquals("bullet", paragraphs.get(0).getNumFmt());
+        assertEquals(1, paragraphs.get(2).getNumIlvl().intValue(), "嵌套列表应使用下一级");
+        assertEquals("decimal", paragraphs.get(3).getNumFmt());
+        assertEquals(paragraphs.get(3).getNumID(), paragraphs.get(4).getNumID());
+        assertNotEquals(paragraphs.get(3).getNumID(), paragraphs.get(5).getNumID());
+        assertEquals(-1, paragraphs.get(0).getFirstLineIndent(), "列表项不应保留首行缩进");
+    }
+
+    private List<XWPFParagraph> render(String html) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument doc = new XWPFDocument()) {
+            new HtmlDocxWriter(doc).write(html, target(doc));
+            doc.write(out);
+        }
+        // 重新加载，验证写出的 XML 本身
+        XWPFDocument reloaded = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()));
+        return new ArrayList<>(reloaded.getParagraphs());
+    }
+
+    private HtmlDocxWriter.Target target(XWPFDocument doc) {
+        return new HtmlDocxWriter.Target() {
+            @Override
+            public XWPFParagraph newParagraph() {
+                XWPFParagraph para = doc.createParagraph();
+                para.setFirstLineIndent(480);
+                return para;
+            }
+
+            @Override
+            public void formatRun(XWPFRun run) {
+                run.setFontFamily("宋体");
+                run.setBold(false);
+            }
+        };
+    }
+}
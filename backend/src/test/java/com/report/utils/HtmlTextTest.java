@@ -0,0 +1,97 @@
+package com.report.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HtmlText 单元测试
+ */
+@DisplayName("HTML 文本解析测试")
+class HtmlTextTest {
+
+    @Test
+    @DisplayName("段落与换行 - 应拆分为去除空白的非空行")
+    void testParagraphsAndBreaks() {
+        List<String> lines = HtmlText.toLines("<p>第一段</p><p class=\"x\"> 第二段 <br/>换行</p>\n\n<BR>末尾");
+
+        assertEquals(List.of("第一段", "第二段", "换行", "末尾"), lines);
+    }
+
+    @Test
+    @DisplayName("纯文本 - 换行符应保留为行")
+    void testPlainTextWithNewlines() {
+        assertEquals(List.of("本周完成A", "下周计划B"), HtmlText.toLines("本周完成A\r\n\n  下周计划B  "));
+    }
+
+    @Test
+    @DisplayName("标签 - 未知标签应去除且保留文本")
+    void testStripsUnknownTags() {
+        assertEquals("加粗和链接", HtmlText.toPlainText("<b>加粗</b>和<a href=\"#\">链接</a><!-- 注释 -->"));
+    }
+
+    @Test
+    @DisplayName("非标签尖括号 - 应按文本保留")
+    void testLiteralAngleBrackets() {
+        assertEquals("a < b", HtmlText.toPlainText("a < b"));
+        assertEquals("x<y", HtmlText.toPlainText("x<y"));
+    }
+
+    @Test
+    @DisplayName("实体 - 应解码常用、命名和数字字符引用")
+    void testEntities() {
+        assertEquals("<a> & \"q\" 'x'", HtmlText.toPlainText("&lt;a&gt; &amp; &quot;q&quot; &apos;x&apos;"));
+        assertEquals("© — €", HtmlText.toPlainText("&copy; &mdash; &euro;"));
+        assertEquals("A中😀", HtmlText.toPlainText("&#65;&#x4E2D;&#x1F600;"));
+        assertEquals("&lt;", HtmlText.toPlainText("&amp;lt;"), "实体只解码一次");
+        assertEquals("&unknown; & x", HtmlText.toPlainText("&unknown; & x"), "未知实体应保留原文");
+    }
+
+    @Test
+    @DisplayName("nbsp - 应解码为普通空格并参与首尾去空白")
+    void testNbsp() {
+        assertEquals(List.of("a b"), HtmlText.toLines("&nbsp;a&nbsp;b&nbsp;"));
+    }
+
+    @Test
+    @DisplayName("事件 - 应按顺序产生标签与文本事件")
+    void testEvents() {
+        List<String> events = new ArrayList<>();
+        HtmlText.parse("<ul><li><strong>重点</strong>内容</li></ul>", new HtmlText.Handler() {
+            @Override
+            public void text(char[] buf, int off, int len) {
+                events.add("text:" + new String(buf, off, len));
+            }
+
+            @Override
+            public void startTag(String tag) {
+                events.add("start:" + tag);
+            }
+
+            @Override
+            public void endTag(String tag) {
+                events.add("end:" + tag);
+            }
+        });
+
+        assertEquals(List.of("start:ul", "start:li", "start:strong", "text:重点", "end:strong",
+                "text:内容", "end:li", "end:ul"), events);
+    }
+
+    @Test
+    @DisplayName("大文本 - 跨缓冲区的内容应完整保留")
+    void testLargeInput() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("<p>第").append(i).append("行&amp;内容</p>");
+        }
+        List<String> lines = HtmlText.toLines(sb.toString());
+
+        assertEquals(5000, lines.size());
+        assertEquals("第4999行&内容", lines.get(4999));
+    }
+}
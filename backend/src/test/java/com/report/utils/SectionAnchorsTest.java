@@ -0,0 +1,91 @@
+package com.report.utils;
+
+import com.report.entity.TemplateSection;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SectionAnchors 单元测试
+ */
+@DisplayName("章节锚点工具测试")
+class SectionAnchorsTest {
+
+    @Test
+    @DisplayName("书签名 - 合法短 key 应直接使用")
+    void testAnchorNameShortKey() {
+        assertEquals("_sec_本周工作总结", SectionAnchors.anchorName("本周工作总结"));
+        assertEquals("_sec_weekly_summary", SectionAnchors.anchorName("weekly_summary"));
+    }
+
+    @Test
+    @DisplayName("书签名 - 超长或含非法字符的 key 应截断并保持唯一")
+    void testAnchorNameLongKey() {
+        String longKey = "a_very_long_section_key_that_exceeds_the_word_limit";
+        String name = SectionAnchors.anchorName(longKey);
+
+        assertTrue(name.length() <= 40, "书签名不应超过 40 个字符");
+        assertTrue(name.startsWith(SectionAnchors.PREFIX));
+        assertNotEquals(name, SectionAnchors.anchorName(longKey + "_2"), "不同 key 应生成不同书签名");
+        assertFalse(SectionAnchors.anchorName("a b-c").contains(" "), "书签名不应包含空格");
+    }
+
+    @Test
+    @DisplayName("打书签 - 同名标题应按顺序分别对应")
+    void testStampDuplicateTitles() throws IOException {
+        XWPFDocument doc = new XWPFDocument();
+        doc.createParagraph().createRun().setText("项目A");
+        doc.createParagraph().createRun().setText("进展");
+        doc.createParagraph().createRun().setText("正文内容");
+        doc.createParagraph().createRun().setText("项目B");
+        doc.createParagraph().createRun().setText("进展");
+
+        List<TemplateSection> sections = List.of(
+                section("project_a", "项目A"),
+                section("progress", "进展"),
+                section("project_b", "项目B"),
+                section("progress_1", "进展"));
+
+        assertEquals(4, SectionAnchors.stamp(doc, sections));
+
+        // 写出后重新读取，书签应被保留
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.write(out);
+        try (XWPFDocument reloaded = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            Map<String, Integer> index = SectionAnchors.indexAnchors(reloaded);
+            assertEquals(0, index.get(SectionAnchors.anchorName("project_a")));
+            assertEquals(1, index.get(SectionAnchors.anchorName("progress")));
+            assertEquals(3, index.get(SectionAnchors.anchorName("project_b")));
+            assertEquals(4, index.get(SectionAnchors.anchorName("progress_1")));
+        }
+    }
+
+    @Test
+    @DisplayName("重复打书签 - 应替换旧书签而非叠加")
+    void testStampIsIdempotent() {
+        XWPFDocument doc = new XWPFDocument();
+        doc.createParagraph().createRun().setText("总结");
+
+        List<TemplateSection> sections = List.of(section("summary", "总结"));
+        SectionAnchors.stamp(doc, sections);
+        SectionAnchors.stamp(doc, sections);
+
+        assertEquals(1, doc.getParagraphs().get(0).getCTP().sizeOfBookmarkStartArray());
+        assertEquals(1, doc.getParagraphs().get(0).getCTP().sizeOfBookmarkEndArray());
+    }
+
+    private TemplateSection section(String key, String title) {
+        TemplateSection section = new TemplateSection();
+        section.setSectionKey(key);
+        section.setTitle(title);
+        return section;
+    }
+}
@@ -1,9 +1,16 @@
 package com.report.utils;
 
 import com.report.entity.TemplateStyle;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -129,4 +136,111 @@ class StyleExtractorTest {
                     style.getStyleType() + " 行间距应大于0");
         }
     }
+
+    @Test
+    @DisplayName("正文样式 - 取出现最多的字符特征，并使用其第一个段落的段落格式")
+    void testMostFrequentBodyStyle() throws IOException {
+        byte[] docx;
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            body(doc, "黑体", 16, true);
+            for (int i = 0; i < 3; i++) {
+                body(doc, "宋体", 14, false).getParagraph().setSpacingAfter(200 + i);
+            }
+            body(doc, "宋体", 14, true);
+            doc.createParagraph();
+            doc.write(out);
+            docx = out.toByteArray();
+        }
+
+        TemplateStyle body = bodyStyle(StyleExtractor.extractStyles(new ByteArrayInputStream(docx), 1L));
+
+        assertEquals("宋体", body.getFontFamily());
+        assertEquals(14, body.getFontSize());
+        assertFalse(body.getBold());
+        assertEquals(10.0, body.getSpacingAfter(), "段落格式应取该特征第一次出现的段落");
+        assertEquals(1L, body.getTemplateId());
+    }
+
+    @Test
+    @DisplayName("共用压缩包提取样式 - 结果与输入流一致，且不关闭调用方的压缩包")
+    void testExtractFromSharedZip() throws IOException {
+        byte[] docx;
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            body(doc, "宋体", 14, false);
+            body(doc, "宋体", 14, false);
+            body(doc, "黑体", 16, true);
+            doc.write(out);
+            docx = out.toByteArray();
+        }
+
+        TemplateStyle expected = bodyStyle(StyleExtractor.extractStyles(new ByteArrayInputStream(docx), 1L, 0));
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(docx))) {
+            TemplateStyle body = bodyStyle(StyleExtractor.extractStyles(zip, 1L, 0));
+
+            assertEquals("宋体", body.getFontFamily(), "应从文档推断而非使用默认样式");
+            assertEquals(expected.getFontFamily(), body.getFontFamily());
+            assertEquals(expected.getFontSize(), body.getFontSize());
+            assertEquals(expected.getBold(), body.getBold());
+            assertNotNull(DocxHeadingParser.parse(zip), "提取样式后压缩包应仍可读取");
+        }
+    }
+
+    @Test
+    @DisplayName("正文样式 - 只按固定间隔抽样统计")
+    void testBodySampling() throws IOException {
+        byte[] docx;
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < 100; i++) {
+                if (i % 10 == 0) {
+                    body(doc, "黑体", 16, false);
+                } else {
+                    body(doc, "宋体", 12, false);
+                }
+            }
+            doc.write(out);
+            docx = out.toByteArray();
+        }
+
+        TemplateStyle all = bodyStyle(StyleExtractor.extractStyles(new ByteArrayInputStream(docx), 1L));
+        TemplateStyle sampled = bodyStyle(StyleExtractor.extractStyles(new ByteArrayInputStream(docx), 1L, 10));
+
+        assertEquals("宋体", all.getFontFamily());
+        assertEquals("黑体", sampled.getFontFamily(), "每 10 段抽 1 段时只统计到黑体段落");
+        assertEquals(16, sampled.getFontSize());
+    }
+
+    @Test
+    @DisplayName("特征计数 - 扩容后计数和首次出现位置不变")
+    void testStyleHistogram() {
+        StyleExtractor.StyleHistogram histogram = new StyleExtractor.StyleHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.add(i * 31L, i);
+        }
+        histogram.add(50 * 31L, 200);
+        histogram.add(70 * 31L, 201);
+        histogram.add(70 * 31L, 202);
+
+        assertEquals(100, histogram.size());
+        assertEquals(103, histogram.total());
+        assertEquals(70, histogram.mostFrequentFirstIndex());
+
+        histogram.add(50 * 31L, 203);
+        assertEquals(50, histogram.mostFrequentFirstIndex(), "次数相同时取先出现的");
+    }
+
+    private static XWPFRun body(XWPFDocument doc, String fontFamily, int fontSize, boolean bold) {
+        XWPFRun run = doc.createParagraph().createRun();
+        run.setFontFamily(fontFamily);
+        run.setFontSize(fontSize);
+        run.setBold(bold);
+        run.setText("正文内容");
+        return run;
+    }
+
+    private static TemplateStyle bodyStyle(List<TemplateStyle> styles) {
+        return styles.stream()
+                .filter(s -> "BODY".equals(s.getStyleType()))
+                .findFirst()
+                .orElseThrow();
+    }
 }
@@ -0,0 +1,97 @@
+package com.report.utils;
+
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StylePrototype 单元测试
+ */
+@DisplayName("预编译格式测试")
+class StylePrototypeTest {
+
+    private final Consumer<XWPFParagraph> paragraphFormat = para -> {
+        para.setStyle("BodyText");
+        para.setAlignment(ParagraphAlignment.BOTH);
+        para.setSpacingAfter(120);
+        para.setFirstLineIndent(560);
+    };
+
+    private final Consumer<XWPFRun> runFormat = run -> {
+        run.setFontFamily("宋体");
+        run.setFontSize(14);
+        run.setBold(false);
+        run.setColor("333333");
+    };
+
+    @Test
+    @DisplayName("复制的格式与逐项调用 setter 的结果一致")
+    void testSameAsSetters() throws IOException {
+        StylePrototype prototype = StylePrototype.compile(paragraphFormat, runFormat);
+
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph expected = doc.createParagraph();
+            paragraphFormat.accept(expected);
+            XWPFRun expectedRun = expected.createRun();
+            runFormat.accept(expectedRun);
+            expectedRun.setText("正文");
+
+            XWPFParagraph actual = doc.createParagraph();
+            prototype.formatParagraph(actual);
+            XWPFRun actualRun = actual.createRun();
+            prototype.formatRun(actualRun);
+            actualRun.setText("正文");
+
+            assertEquals(expected.getCTP().xmlText(), actual.getCTP().xmlText());
+            assertEquals("BodyText", actual.getStyle());
+            assertEquals(14.0, actualRun.getFontSizeAsDouble());
+        }
+    }
+
+    @Test
+    @DisplayName("修改已格式化的段落不影响原型")
+    void testPrototypeIsCopied() throws IOException {
+        StylePrototype prototype = StylePrototype.compile(paragraphFormat, runFormat);
+
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph first = doc.createParagraph();
+            prototype.formatParagraph(first);
+            XWPFRun firstRun = first.createRun();
+            prototype.formatRun(firstRun);
+            first.setAlignment(ParagraphAlignment.CENTER);
+            firstRun.setBold(true);
+
+            XWPFParagraph second = doc.createParagraph();
+            prototype.formatParagraph(second);
+            XWPFRun secondRun = second.createRun();
+            prototype.formatRun(secondRun);
+
+            assertEquals(ParagraphAlignment.BOTH, second.getAlignment());
+            assertFalse(secondRun.isBold());
+        }
+    }
+
+    @Test
+    @DisplayName("没有设置任何格式时不添加 pPr / rPr")
+    void testEmptyFormat() throws IOException {
+        StylePrototype prototype = StylePrototype.compile(para -> { }, run -> { });
+
+        try (XWPFDocument doc = new XWPFDocument()) {
+            XWPFParagraph para = doc.createParagraph();
+            prototype.formatParagraph(para);
+            XWPFRun run = para.createRun();
+            prototype.formatRun(run);
+
+            assertFalse(para.getCTP().isSetPPr());
+            assertFalse(run.getCTR().isSetRPr());
+        }
+    }
+}
@@ -170,34 +170,58 @@ const App: React.FC = () => {
     setShowSectionDialog(true);
   };
 
+  // 章节修改在模板的最新版本上进行：打开了草稿报告时修改报告所用的模板，报告随修改固定到修改所在的版本
+  const editTarget = () => {
+    const report = currentReport && currentReport.status === 'DRAFT' ? currentReport : null;
+    return {
+      templateId: report?.templateId || selectedTemplateId || currentReport?.templateId,
+      reportId: report?.id,
+    };
+  };
+
+  // 切换到修改所在的模板版本（旧版本可能已停用），重新加载章节和模板列表
+  const applyTemplateVersion = async (versionId: number, reportId?: number) => {
+    const [updatedSections, templateList] = await Promise.all([
+      api.getTemplateSections(versionId),
+      api.getTemplates(),
+    ]);
+    setSections(updatedSections);
+    setTemplates(templateList);
+    setSelectedTemplateId(versionId);
+    if (reportId) {
+      setCurrentReport(report => report && report.id === reportId ? { ...report, templateId: versionId } : report);
+    }
+    return updatedSections;
+  };
+
   const handleSaveSection = async (data: { title: string; sectionType: string; sectionKey: string }) => {
-    const templateId = selectedTemplateId || currentReport?.templateId;
+    const { templateId, reportId } = editTarget();
     if (!templateId) {
       alert('请先选择模板或创建报告');
       return;
     }
 
     try {
+      let saved: TemplateSection;
       if (editingSection) {
         // Update existing section
-        await api.updateSection(editingSection.id, {
+        saved = await api.updateSection(editingSection.id, {
           title: data.title,
           sectionType: data.sectionType as 'RICH_TEXT' | 'TABLE' | 'CHART',
-        });
+        }, reportId);
       } else {
         // Add new section
-        await api.addSection(templateId, {
+        saved = await api.addSection(templateId, {
           title: data.title,
           sectionKey: data.sectionKey,
           sectionType: data.sectionType as 'RICH_TEXT' | 'TABLE' | 'CHART',
           sortOrder: sections.length + 1,
           parentId: parentSectionId // Use state
-        });
+        }, reportId);
       }
 
       // Refresh sections list
-      const updatedSections = await api.getTemplateSections(templateId);
-      setSections(updatedSections);
+      await applyTemplateVersion(saved.templateId, reportId);
       setShowSectionDialog(false);
       setEditingSection(null);
       setParentSectionId(null);
@@ -212,18 +236,17 @@ const App: React.FC = () => {
   const handleDeleteSection = async (sectionId: number) => {
     if (!confirm('确定删除此章节？删除后无法恢复。')) return;
 
-    const templateId = selectedTemplateId || currentReport?.templateId;
+    const { templateId, reportId } = editTarget();
     if (!templateId) return;
 
     try {
-      await api.deleteSection(sectionId);
+      const deleted = await api.deleteSection(sectionId, reportId);
 
       // Refresh sections list
-      const updatedSections = await api.getTemplateSections(templateId);
-      setSections(updatedSections);
+      const updatedSections = await applyTemplateVersion(deleted.templateId, reportId);
 
       // Reset active section if deleted
-      if (sections.find(s => s.id === sectionId)?.sectionKey === activeSectionKey) {
+      if (deleted.sectionKey === activeSectionKey) {
         setActiveSectionKey(updatedSections[0]?.sectionKey || '');
       }
     } catch (error) {
@@ -54,22 +54,27 @@ export async function getTemplateSections(templateId: number): Promise<TemplateS
     return request<TemplateSection[]>(`/templates/${templateId}/sections`);
 }
 
-export async function addSection(templateId: number, section: Partial<TemplateSection>): Promise<TemplateSection> {
-    return request<TemplateSection>(`/templates/${templateId}/sections`, {
+// 章节修改在模板的最新版本上进行，返回的章节 templateId 为修改所在的版本；
+// 传入 reportId 时该草稿报告随之固定到修改所在的版本
+export async function addSection(templateId: number, section: Partial<TemplateSection>, reportId?: number): Promise<TemplateSection> {
+    const query = reportId ? `?reportId=${reportId}` : '';
+    return request<TemplateSection>(`/templates/${templateId}/sections${query}`, {
         method: 'POST',
         body: JSON.stringify(section),
     });
 }
 
-export async function updateSection(sectionId: number, section: Partial<TemplateSection>): Promise<TemplateSection> {
-    return request<TemplateSection>(`/templates/sections/${sectionId}`, {
+export async function updateSection(sectionId: number, section: Partial<TemplateSection>, reportId?: number): Promise<TemplateSection> {
+    const query = reportId ? `?reportId=${reportId}` : '';
+    return request<TemplateSection>(`/templates/sections/${sectionId}${query}`, {
         method: 'PUT',
         body: JSON.stringify(section),
     });
 }
 
-export async function deleteSection(sectionId: number): Promise<void> {
-    return request<void>(`/templates/sections/${sectionId}`, {
+export async function deleteSection(sectionId: number, reportId?: number): Promise<TemplateSection> {
+    const query = reportId ? `?reportId=${reportId}` : '';
+    return request<TemplateSection>(`/templates/sections/${sectionId}${query}`, {
         method: 'DELETE',
     });
 }